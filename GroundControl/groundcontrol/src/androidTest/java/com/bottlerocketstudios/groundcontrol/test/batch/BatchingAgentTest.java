@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.batch;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BatchingAgentTest extends AndroidTestCase {
+    private static final String TAG = BatchingAgentTest.class.getSimpleName();
+
+    private static final int ITEM_COUNT = 40;
+    private static final long MAX_WAIT_MS = 3000;
+
+    private static final AtomicInteger sExecutorSequence = new AtomicInteger();
+
+    private AgentExecutor mAgentExecutor;
+    private CopyOnWriteArrayList<List<Integer>> mBatchRecord;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        //Each test uses its own AgentExecutor so pending batches do not leak between tests.
+        mAgentExecutor = AgentExecutor.builder(TAG + "." + sExecutorSequence.incrementAndGet()).build();
+        mBatchRecord = new CopyOnWriteArrayList<>();
+    }
+
+    private AgentFuture<String> request(int productId, int maxBatchSize) {
+        return GroundControl.bgAgent(mAgentExecutor, new ProductBatchingAgent(productId, mBatchRecord, maxBatchSize))
+                .bgDirectPolicy()
+                .executeAsFuture();
+    }
+
+    public void testRequestsMergedIntoBatch() throws InterruptedException, ExecutionException, TimeoutException {
+        List<AgentFuture<String>> futureList = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            futureList.add(request(i, ITEM_COUNT));
+        }
+
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            assertEquals("Wrong result fanned out", ProductBatchingAgent.RESULT_PREFIX + i, futureList.get(i).get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        }
+        assertTrue("Requests were not batched " + mBatchRecord.size(), mBatchRecord.size() <= 2);
+    }
+
+    public void testMaxBatchSize() throws InterruptedException, ExecutionException, TimeoutException {
+        int maxBatchSize = 10;
+        List<AgentFuture<String>> futureList = new ArrayList<>();
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            futureList.add(request(i, maxBatchSize));
+        }
+
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            assertEquals("Wrong result fanned out", ProductBatchingAgent.RESULT_PREFIX + i, futureList.get(i).get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        }
+        assertTrue("Too few batches " + mBatchRecord.size(), mBatchRecord.size() >= ITEM_COUNT / maxBatchSize);
+        for (List<Integer> batch : mBatchRecord) {
+            assertTrue("Batch exceeded maximum size", batch.size() <= maxBatchSize);
+        }
+    }
+
+    public void testCoalescedKeyLoadedOnce() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentFuture<String> first = request(7, ITEM_COUNT);
+        AgentFuture<String> second = request(7, ITEM_COUNT);
+        AgentFuture<String> other = request(8, ITEM_COUNT);
+
+        assertEquals("First request failed", ProductBatchingAgent.RESULT_PREFIX + 7, first.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Coalesced request failed", ProductBatchingAgent.RESULT_PREFIX + 7, second.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Other request failed", ProductBatchingAgent.RESULT_PREFIX + 8, other.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+
+        int loadCount = 0;
+        for (List<Integer> batch : mBatchRecord) {
+            for (Integer key : batch) {
+                if (key == 7) {
+                    loadCount++;
+                }
+            }
+        }
+        assertEquals("Coalesced key was loaded more than once", 1, loadCount);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.batch;
+
+import com.bottlerocketstudios.groundcontrol.batch.BatchingAgent;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class ProductBatchingAgent extends BatchingAgent<Integer, String> {
+
+    public static final String RESULT_PREFIX = "product";
+
+    private final List<List<Integer>> mBatchRecord;
+    private final int mMaxBatchSize;
+
+    public ProductBatchingAgent(int productId, CopyOnWriteArrayList<List<Integer>> batchRecord, int maxBatchSize) {
+        super(productId);
+        mBatchRecord = batchRecord;
+        mMaxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return ProductBatchingAgent.class.getCanonicalName() + getKey();
+    }
+
+    @Override
+    public long getBatchWindowMs() {
+        return 50;
+    }
+
+    @Override
+    public int getMaxBatchSize() {
+        return mMaxBatchSize;
+    }
+
+    @Override
+    public Map<Integer, String> loadBatch(List<Integer> keyList) {
+        mBatchRecord.add(keyList);
+        Map<Integer, String> result = new HashMap<>();
+        for (Integer key : keyList) {
+            result.put(key, RESULT_PREFIX + key);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.breaker;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.breaker.CircuitState;
+import com.bottlerocketstudios.groundcontrol.breaker.StandardCircuitBreaker;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+
+public class StandardCircuitBreakerTest extends AndroidTestCase {
+
+    private static final String GROUP = "group";
+    private static final long FAILURE_WINDOW_MS = 200;
+    private static final long OPEN_DURATION_MS = 200;
+
+    private StandardCircuitBreaker createCircuitBreaker() {
+        return StandardCircuitBreaker.builder()
+                .setFailureThreshold(3)
+                .setFailureWindowMs(FAILURE_WINDOW_MS)
+                .setOpenDurationMs(OPEN_DURATION_MS)
+                .build();
+    }
+
+    public void testOpensAfterThreshold() {
+        StandardCircuitBreaker circuitBreaker = createCircuitBreaker();
+        circuitBreaker.recordFailure(GROUP);
+        circuitBreaker.recordFailure(GROUP);
+        assertTrue("Opened before threshold", circuitBreaker.allowExecution(GROUP));
+
+        circuitBreaker.recordFailure(GROUP);
+        assertEquals("Did not open at threshold", CircuitState.OPEN, circuitBreaker.getState(GROUP));
+        assertFalse("Open circuit allowed execution", circuitBreaker.allowExecution(GROUP));
+        assertTrue("Other group was affected", circuitBreaker.allowExecution("other"));
+    }
+
+    public void testFailuresOutsideWindowIgnored() {
+        StandardCircuitBreaker circuitBreaker = createCircuitBreaker();
+        circuitBreaker.recordFailure(GROUP);
+        circuitBreaker.recordFailure(GROUP);
+        TestUtils.safeSleep(FAILURE_WINDOW_MS * 2);
+        circuitBreaker.recordFailure(GROUP);
+        assertEquals("Old failures were counted", CircuitState.CLOSED, circuitBreaker.getState(GROUP));
+    }
+
+    public void testHalfOpenProbe() {
+        StandardCircuitBreaker circuitBreaker = createCircuitBreaker();
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.recordFailure(GROUP);
+        }
+        TestUtils.safeSleep(OPEN_DURATION_MS + 50);
+
+        assertTrue("Probe was not admitted", circuitBreaker.allowExecution(GROUP));
+        assertEquals("Not half open during probe", CircuitState.HALF_OPEN, circuitBreaker.getState(GROUP));
+        assertFalse("Second execution admitted during probe", circuitBreaker.allowExecution(GROUP));
+
+        circuitBreaker.recordFailure(GROUP);
+        assertEquals("Failed probe did not reopen", CircuitState.OPEN, circuitBreaker.getState(GROUP));
+        TestUtils.safeSleep(OPEN_DURATION_MS + 50);
+
+        assertTrue("Second probe was not admitted", circuitBreaker.allowExecution(GROUP));
+        circuitBreaker.recordSuccess(GROUP);
+        assertEquals("Successful probe did not close", CircuitState.CLOSED, circuitBreaker.getState(GROUP));
+        assertTrue("Closed circuit rejected execution", circuitBreaker.allowExecution(GROUP));
+    }
+}
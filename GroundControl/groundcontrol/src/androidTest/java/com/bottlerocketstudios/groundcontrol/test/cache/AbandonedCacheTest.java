@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.cache;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.cache.AgentResultCache;
+import com.bottlerocketstudios.groundcontrol.cache.StandardAgentResultCache;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+import com.bottlerocketstudios.groundcontrol.test.integration.SynchronousTimeAgent;
+import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AbandonedCacheTest extends AndroidTestCase {
+    private static final String TAG = AbandonedCacheTest.class.getSimpleName();
+
+    private static final long ABANDONED_CACHE_TIMEOUT_MS = 100;
+    private static final long CACHE_LIFETIME_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long POLL_INTERVAL_MS = 50;
+    private static final long MAX_WAIT_MS = 5000;
+
+    private AgentResultCache mAgentResultCache;
+    private AgentExecutor mAgentExecutor;
+
+    public void testCollectedTetherAbandonsCache() throws InterruptedException {
+        createAgentExecutor("collected");
+        String heldAgentIdentifier = TAG + ".held";
+        String collectedAgentIdentifier = TAG + ".collected";
+        AgentTether heldTether = executeAndAwaitCache(heldAgentIdentifier);
+        executeAndAwaitCache(collectedAgentIdentifier);
+
+        //The second tether is no longer referenced, once collected its cache entry is reclaimed.
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MS;
+        while (isCached(collectedAgentIdentifier) && System.currentTimeMillis() < deadline) {
+            System.gc();
+            TestUtils.safeSleep(POLL_INTERVAL_MS);
+        }
+
+        assertFalse("Cache for a collected tether was not removed", isCached(collectedAgentIdentifier));
+        assertTrue("Cache for a held tether was removed", isCached(heldAgentIdentifier));
+        assertNotNull(heldTether);
+    }
+
+    public void testReleasedTetherAbandonsCache() throws InterruptedException {
+        createAgentExecutor("released");
+        String agentIdentifier = TAG + ".released";
+        AgentTether agentTether = executeAndAwaitCache(agentIdentifier);
+
+        agentTether.release();
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MS;
+        while (isCached(agentIdentifier) && System.currentTimeMillis() < deadline) {
+            TestUtils.safeSleep(POLL_INTERVAL_MS);
+        }
+
+        assertFalse("Cache for a released tether was not removed", isCached(agentIdentifier));
+    }
+
+    private void createAgentExecutor(String name) {
+        mAgentResultCache = StandardAgentResultCache.builder().build();
+        mAgentExecutor = AgentExecutor.builder(TAG + "." + name)
+                .setAgentResultCache(mAgentResultCache)
+                .setAbandonedCacheTimeoutMs(ABANDONED_CACHE_TIMEOUT_MS)
+                .build();
+    }
+
+    private AgentTether executeAndAwaitCache(String agentIdentifier) throws InterruptedException {
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+        AgentTether agentTether = GroundControl.bgAgent(mAgentExecutor, new SynchronousTimeAgent(agentIdentifier, 0))
+                .bgParallelCallback(new FunctionalAgentListener<Long, Float>() {
+                    @Override
+                    public void onCompletion(String agentIdentifier, Long result) {
+                        completionLatch.countDown();
+                    }
+                })
+                .cacheAgeMs(CACHE_LIFETIME_MS)
+                .execute();
+        assertTrue("Agent did not complete", completionLatch.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        long deadline = System.currentTimeMillis() + MAX_WAIT_MS;
+        while (!isCached(agentIdentifier) && System.currentTimeMillis() < deadline) {
+            TestUtils.safeSleep(POLL_INTERVAL_MS / 10);
+        }
+        assertTrue("Result was not cached", isCached(agentIdentifier));
+        return agentTether;
+    }
+
+    private boolean isCached(String agentIdentifier) {
+        return mAgentResultCache.get(agentIdentifier, CACHE_LIFETIME_MS) != null;
+    }
+}
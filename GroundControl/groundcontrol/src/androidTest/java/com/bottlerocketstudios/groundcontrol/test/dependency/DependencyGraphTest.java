@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.dependency;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+import com.bottlerocketstudios.groundcontrol.agent.Agent;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.dependency.DependencyGraph;
+import com.bottlerocketstudios.groundcontrol.dependency.DependencyGraphAgent;
+import com.bottlerocketstudios.groundcontrol.dependency.GraphInputs;
+import com.bottlerocketstudios.groundcontrol.dependency.GraphListener;
+import com.bottlerocketstudios.groundcontrol.dependency.GraphNode;
+import com.bottlerocketstudios.groundcontrol.dependency.NodeAgentFactory;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.policy.RetryPolicy;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+import com.bottlerocketstudios.groundcontrol.test.integration.SynchronousAgent;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DependencyGraphTest extends AndroidTestCase {
+    private static final String TAG = DependencyGraphTest.class.getSimpleName();
+
+    private static final long EXECUTION_TIME_MS = 100;
+    private static final long MAX_WAIT_MS = 3000;
+    private static final long RETRY_DELAY_MS = 50;
+
+    public void testTypedInputs() {
+        DependencyGraph dependencyGraph = new DependencyGraph();
+        final GraphNode<String> nameNode = dependencyGraph.addNode("name", new ValueFactory<>(TAG + ".name", "graph"));
+        final GraphNode<Integer> countNode = dependencyGraph.addNode("count", new ValueFactory<>(TAG + ".count", 3));
+        GraphNode<String> resultNode = dependencyGraph.addNode("result", new NodeAgentFactory<String>() {
+            @Override
+            public Agent<String, ?> createAgent(GraphInputs inputs) {
+                return new ValueAgent<>(TAG + ".result", inputs.get(nameNode) + inputs.get(countNode));
+            }
+        }, nameNode, countNode);
+
+        final TestUtils.Container<String> resultContainer = new TestUtils.Container<>(null);
+        dependencyGraph.execute(AgentExecutor.getDefault(), resultNode, JobPriority.NORMAL, new GraphListener<String>() {
+            @Override
+            public void onGraphCompleted(String result) {
+                resultContainer.setValue(result);
+            }
+        });
+
+        TestUtils.blockUntilNotNullOrTimeout(resultContainer, 20, MAX_WAIT_MS);
+        assertEquals("Result did not combine typed inputs", "graph3", resultContainer.getValue());
+    }
+
+    public void testCriticalPathPriority() {
+        DependencyGraph dependencyGraph = new DependencyGraph();
+        GraphNode<String> slowNode = dependencyGraph.addNode("slow", new ValueFactory<>(TAG + ".slow", "slow")).setEstimatedCostMs(500);
+        GraphNode<String> fastNode = dependencyGraph.addNode("fast", new ValueFactory<>(TAG + ".fast", "fast")).setEstimatedCostMs(10);
+        GraphNode<String> joinNode = dependencyGraph.addNode("join", new ValueFactory<>(TAG + ".join", "join"), slowNode, fastNode);
+        GraphNode<String> unusedNode = dependencyGraph.addNode("unused", new ValueFactory<>(TAG + ".unused", "unused"), slowNode);
+
+        final TestUtils.Container<String> resultContainer = new TestUtils.Container<>(null);
+        dependencyGraph.execute(AgentExecutor.getDefault(), joinNode, JobPriority.LOW, new GraphListener<String>() {
+            @Override
+            public void onGraphCompleted(String result) {
+                resultContainer.setValue(result);
+            }
+        });
+
+        assertTrue("Slow node should be on the critical path", slowNode.isOnCriticalPath());
+        assertTrue("Join node should be on the critical path", joinNode.isOnCriticalPath());
+        assertFalse("Fast node should have slack", fastNode.isOnCriticalPath());
+        assertEquals("Critical node was not promoted", JobPriority.NORMAL, slowNode.getJobPriority());
+        assertEquals("Non-critical node should keep base priority", JobPriority.LOW, fastNode.getJobPriority());
+        assertNull("Node not required for the result should not be scheduled", unusedNode.getJobPriority());
+
+        TestUtils.blockUntilNotNullOrTimeout(resultContainer, 20, MAX_WAIT_MS);
+        assertEquals("Graph did not complete", "join", resultContainer.getValue());
+    }
+
+    public void testFailureCancelsSubtree() {
+        DependencyGraph dependencyGraph = new DependencyGraph();
+        final SynchronousAgent siblingAgent = new SynchronousAgent(TAG + ".sibling", MAX_WAIT_MS * 5);
+        final AtomicBoolean downstreamCreated = new AtomicBoolean(false);
+
+        GraphNode<String> failingNode = dependencyGraph.addNode("failing", new ValueFactory<String>(TAG + ".failing", null));
+        GraphNode<String> siblingNode = dependencyGraph.addNode("sibling", new NodeAgentFactory<String>() {
+            @Override
+            public Agent<String, ?> createAgent(GraphInputs inputs) {
+                return siblingAgent;
+            }
+        });
+        GraphNode<String> downstreamNode = dependencyGraph.addNode("downstream", new NodeAgentFactory<String>() {
+            @Override
+            public Agent<String, ?> createAgent(GraphInputs inputs) {
+                downstreamCreated.set(true);
+                return new ValueAgent<>(TAG + ".downstream", "downstream");
+            }
+        }, failingNode, siblingNode);
+
+        final TestUtils.Container<Boolean> completedContainer = new TestUtils.Container<>(null);
+        final TestUtils.Container<String> resultContainer = new TestUtils.Container<>(null);
+        dependencyGraph.execute(AgentExecutor.getDefault(), downstreamNode, JobPriority.NORMAL, new GraphListener<String>() {
+            @Override
+            public void onGraphCompleted(String result) {
+                resultContainer.setValue(result);
+                completedContainer.setValue(true);
+            }
+        });
+
+        TestUtils.blockUntilNotNullOrTimeout(completedContainer, 20, MAX_WAIT_MS);
+        assertEquals("Graph did not complete", Boolean.TRUE, completedContainer.getValue());
+        assertNull("Failed graph should deliver null", resultContainer.getValue());
+        assertFalse("Downstream node should not have been created", downstreamCreated.get());
+        TestUtils.safeSleep(EXECUTION_TIME_MS * 2);
+        assertTrue("Sibling without live consumers was not cancelled", siblingAgent.isCanceled());
+    }
+
+    public void testDependencyGraphAgent() throws InterruptedException, ExecutionException, TimeoutException {
+        String result = GroundControl.agent(new DependencyGraphAgent<String>() {
+            @Override
+            protected GraphNode<String> buildGraph(DependencyGraph dependencyGraph) {
+                final GraphNode<String> firstNode = dependencyGraph.addNode("first", new ValueFactory<>(TAG + ".agentFirst", "a"));
+                final GraphNode<String> secondNode = dependencyGraph.addNode("second", new NodeAgentFactory<String>() {
+                    @Override
+                    public Agent<String, ?> createAgent(GraphInputs inputs) {
+                        return new ValueAgent<>(TAG + ".agentSecond", inputs.get(firstNode) + "b");
+                    }
+                }, firstNode);
+                return dependencyGraph.addNode("third", new NodeAgentFactory<String>() {
+                    @Override
+                    public Agent<String, ?> createAgent(GraphInputs inputs) {
+                        return new ValueAgent<>(TAG + ".agentThird", inputs.get(secondNode) + "c");
+                    }
+                }, secondNode);
+            }
+
+            @Override
+            public String getUniqueIdentifier() {
+                return TAG + ".graphAgent";
+            }
+        }).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals("Phases did not run in order", "abc", result);
+    }
+
+    public void testRetriedDependencyGraphAgent() throws InterruptedException, ExecutionException, TimeoutException {
+        AtomicInteger attemptCounter = new AtomicInteger(0);
+        String result = GroundControl.agent(new FailOnceGraphAgent(TAG + ".retriedGraph", attemptCounter, true))
+                .bgDirectPolicy().retry(createRetryPolicy()).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals("Retried graph did not deliver success", "retried", result);
+        assertEquals("Wrong number of graph builds", 2, attemptCounter.get());
+    }
+
+    public void testDependencyGraphAgentWithoutRetryInstance() throws InterruptedException, ExecutionException, TimeoutException {
+        AtomicInteger attemptCounter = new AtomicInteger(0);
+        String result = GroundControl.agent(new FailOnceGraphAgent(TAG + ".unretriedGraph", attemptCounter, false))
+                .bgDirectPolicy().retry(createRetryPolicy()).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        assertNull("Failed result was not delivered", result);
+        assertEquals("Graph was run again", 1, attemptCounter.get());
+    }
+
+    private RetryPolicy createRetryPolicy() {
+        return RetryPolicy.builder()
+                .setMaxAttempts(3)
+                .setInitialDelayMs(RETRY_DELAY_MS)
+                .setJitterRatio(0.0f)
+                .build();
+    }
+
+    public void testUnknownInputRejected() {
+        DependencyGraph dependencyGraph = new DependencyGraph();
+        GraphNode<String> foreignNode = new DependencyGraph().addNode("foreign", new ValueFactory<>(TAG + ".foreign", "foreign"));
+        boolean thrown = false;
+        try {
+            dependencyGraph.addNode("local", new ValueFactory<>(TAG + ".local", "local"), foreignNode);
+        } catch (IllegalArgumentException e) {
+            thrown = true;
+        }
+        assertTrue("Input from another graph was accepted", thrown);
+    }
+
+    /**
+     * Graph whose single node fails on the first attempt. Attempts are counted across instances.
+     */
+    private static class FailOnceGraphAgent extends DependencyGraphAgent<String> {
+        private final String mIdentifier;
+        private final AtomicInteger mAttemptCounter;
+        private final boolean mRetryable;
+
+        FailOnceGraphAgent(String identifier, AtomicInteger attemptCounter, boolean retryable) {
+            mIdentifier = identifier;
+            mAttemptCounter = attemptCounter;
+            mRetryable = retryable;
+        }
+
+        @Override
+        protected GraphNode<String> buildGraph(DependencyGraph dependencyGraph) {
+            int attempt = mAttemptCounter.incrementAndGet();
+            return dependencyGraph.addNode("value", new ValueFactory<>(mIdentifier + ".node" + attempt, attempt > 1 ? "retried" : null));
+        }
+
+        @Override
+        public Agent<String, Void> createRetry() {
+            return mRetryable ? new FailOnceGraphAgent(mIdentifier, mAttemptCounter, true) : null;
+        }
+
+        @Override
+        public String getUniqueIdentifier() {
+            return mIdentifier;
+        }
+    }
+
+    private static class ValueFactory<T> implements NodeAgentFactory<T> {
+        private final String mIdentifier;
+        private final T mValue;
+
+        ValueFactory(String identifier, T value) {
+            mIdentifier = identifier;
+            mValue = value;
+        }
+
+        @Override
+        public Agent<T, ?> createAgent(GraphInputs inputs) {
+            return new ValueAgent<>(mIdentifier, mValue);
+        }
+    }
+
+    private static class ValueAgent<T> extends AbstractAgent<T, Void> {
+        private final String mIdentifier;
+        private final T mValue;
+
+        ValueAgent(String identifier, T value) {
+            mIdentifier = identifier;
+            mValue = value;
+        }
+
+        @Override
+        public String getUniqueIdentifier() {
+            return mIdentifier;
+        }
+
+        @Override
+        public void cancel() {}
+
+        @Override
+        public void onProgressUpdateRequested() {}
+
+        @Override
+        public void run() {
+            TestUtils.safeSleep(EXECUTION_TIME_MS);
+            getAgentListener().onCompletion(getUniqueIdentifier(), mValue);
+        }
+    }
+}
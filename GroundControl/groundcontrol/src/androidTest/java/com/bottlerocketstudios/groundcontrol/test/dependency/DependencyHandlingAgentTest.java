@@ -18,12 +18,23 @@ package com.bottlerocketstudios.groundcontrol.test.dependency;
 import android.test.AndroidTestCase;
 import android.util.Log;
 
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
 import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
 import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
 import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+import com.bottlerocketstudios.groundcontrol.test.integration.ChunkedPrefetchAgent;
+import com.bottlerocketstudios.groundcontrol.test.integration.FlakyAgent;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class DependencyHandlingAgentTest extends AndroidTestCase {
 
@@ -31,6 +42,11 @@ public class DependencyHandlingAgentTest extends AndroidTestCase {
     private static final int MAX_CONCURRENT_AGENTS = 10;
     private static final int MIN_CONCURRENT_AGENTS = 5;
     private static final int TEST_ITERATIONS = 10;
+    private static final int NESTED_DEPTH = 5;
+    private static final String AGENT_THREAD_PREFIX = "nestedAgentPool";
+    private static final int BLOCKING_CHUNK_COUNT = 20;
+    private static final long BLOCKING_CHUNK_TIME_MS = 50;
+    private static final long DEPENDENCY_TIME_MS = 200;
 
     public void testDependencyHandlingAgent() {
         for (int i = 0; i < TEST_ITERATIONS; i++) {
@@ -38,6 +54,67 @@ public class DependencyHandlingAgentTest extends AndroidTestCase {
         }
     }
 
+    public void testNestedDependenciesWithSingleSlot() {
+        AgentExecutor agentExecutor = AgentExecutor.builder(DependencyHandlingAgentTest.class.getSimpleName() + ".singleSlot")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .setThreadFactory(new ThreadFactory() {
+                            @Override
+                            public Thread newThread(Runnable runnable) {
+                                return new Thread(runnable, AGENT_THREAD_PREFIX);
+                            }
+                        })
+                        .build())
+                .build();
+
+        final TestUtils.Container<Integer> resultContainer = new TestUtils.Container<>(null);
+        List<String> continuationThreadList = Collections.synchronizedList(new ArrayList<String>());
+        GroundControl.bgAgent(agentExecutor, new NestedDependencyAgent(NestedDependencyAgent.class.getCanonicalName(), NESTED_DEPTH, continuationThreadList))
+                .bgParallelCallback(new FunctionalAgentListener<Integer, Void>() {
+                    @Override
+                    public void onCompletion(String agentIdentifier, Integer result) {
+                        resultContainer.setValue(result);
+                    }
+                }).execute();
+
+        TestUtils.blockUntilNotNullOrTimeout(resultContainer, 10, TimeUnit.SECONDS.toMillis(5));
+
+        assertEquals("Nested chain did not complete with a single execution slot", Integer.valueOf(NESTED_DEPTH), resultContainer.getValue());
+        assertEquals("Wrong number of continuations", NESTED_DEPTH, continuationThreadList.size());
+        for (String threadName: continuationThreadList) {
+            assertEquals("Continuation did not run as an Agent Job", AGENT_THREAD_PREFIX, threadName);
+        }
+    }
+
+    public void testDroppedContinuationDeliversNull() throws InterruptedException, ExecutionException, TimeoutException {
+        String name = DependencyHandlingAgentTest.class.getSimpleName() + ".droppedContinuation";
+        AgentExecutor agentExecutor = AgentExecutor.builder(name)
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .setMaxQueuedJobs(1)
+                        .build())
+                .build();
+        AgentExecutor dependencyExecutor = AgentExecutor.builder(name + ".dependencies").build();
+
+        //The dependency runs elsewhere so the continuation is queued while the blocker holds the only slot.
+        SlowDependencyAgent dependentAgent = new SlowDependencyAgent(name + ".dependent", dependencyExecutor, DEPENDENCY_TIME_MS);
+        AgentFuture<Long> dependentFuture = GroundControl.bgAgent(agentExecutor, dependentAgent).bgDirectPolicy().disableCache().executeAsFuture();
+
+        ChunkedPrefetchAgent blockingAgent = new ChunkedPrefetchAgent(name + ".blocker", BLOCKING_CHUNK_COUNT, BLOCKING_CHUNK_TIME_MS);
+        AgentFuture<Integer> blockingFuture = GroundControl.bgAgent(agentExecutor, blockingAgent).bgDirectPolicy().executeAsFuture();
+        while (blockingAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+
+        //Fill the queue with HIGH priority work so the NORMAL continuation is dropped when it arrives.
+        FlakyAgent urgentAgent = new FlakyAgent(name + ".urgent", 0);
+        AgentFuture<String> urgentFuture = GroundControl.bgAgent(agentExecutor, urgentAgent).bgDirectPolicy().disableCache().priority(JobPriority.HIGH).executeAsFuture();
+
+        assertNull("Dropped continuation delivered a result", dependentFuture.get(BLOCKING_CHUNK_COUNT * BLOCKING_CHUNK_TIME_MS, TimeUnit.MILLISECONDS));
+        assertFalse("Dropped continuation was not delivered until the blocker finished", blockingFuture.isDone());
+        assertEquals("Queued work was not run", FlakyAgent.SUCCESS, urgentFuture.get(BLOCKING_CHUNK_COUNT * BLOCKING_CHUNK_TIME_MS * 2, TimeUnit.MILLISECONDS));
+    }
+
     private void runIteration() {
         final TestUtils.Container<List<Long>> resultContainer = new TestUtils.Container<>(null);
 
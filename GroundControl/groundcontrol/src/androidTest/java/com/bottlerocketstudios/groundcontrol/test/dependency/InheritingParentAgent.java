@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.dependency;
+
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.dependency.DependencyHandlingAgent;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+import com.bottlerocketstudios.groundcontrol.test.integration.SynchronousAgent;
+
+/**
+ * Runs a single SynchronousAgent dependency and delivers its result.
+ */
+public class InheritingParentAgent extends DependencyHandlingAgent<String, Void> {
+
+    private final String mUniqueIdentifier;
+    private final SynchronousAgent mChildAgent;
+    private String mChildResult;
+
+    public InheritingParentAgent(String uniqueIdentifier, SynchronousAgent childAgent) {
+        mUniqueIdentifier = uniqueIdentifier;
+        mChildAgent = childAgent;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mUniqueIdentifier;
+    }
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    @Override
+    public void run() {
+        addParallelDependency(GroundControl.bgAgent(getAgentExecutor(), mChildAgent), new FunctionalAgentListener<String, Float>() {
+            @Override
+            public void onCompletion(String agentIdentifier, String result) {
+                mChildResult = result;
+            }
+        });
+        executeDependencies();
+    }
+
+    @Override
+    public void onDependenciesCompleted() {
+        getAgentListener().onCompletion(getUniqueIdentifier(), mChildResult);
+    }
+}
@@ -64,10 +64,14 @@ public class MultipleDependencyAgent extends DependencyHandlingAgent<List<Long>,
     }
 
     private void startTheLimit() {
-        while (mConcurrentExecutions.get() < mMaximumConcurrentExecutions && mTotalExecutions.get() < mNumberOfTestDependencies) {
+        while (mConcurrentExecutions.get() < mMaximumConcurrentExecutions) {
+            //Reserve the execution atomically as completions on other threads may also start more.
+            int executionNumber = mTotalExecutions.incrementAndGet();
+            if (executionNumber > mNumberOfTestDependencies) {
+                break;
+            }
             mConcurrentExecutions.incrementAndGet();
-            mTotalExecutions.incrementAndGet();
-            String tempId = String.format(Locale.US, AGENT_ID_FORMAT, mTotalExecutions.get());
+            String tempId = String.format(Locale.US, AGENT_ID_FORMAT, executionNumber);
             long interval = mRandom.nextInt(INTERVAL_RANGE) * INTERVAL_STEP + MIN_INTERVAL;
             SynchronousTimeAgent synchronousTimeAgent = new SynchronousTimeAgent(tempId, interval);
 
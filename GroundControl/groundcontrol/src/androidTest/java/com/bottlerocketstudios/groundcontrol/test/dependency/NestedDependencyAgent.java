@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.dependency;
+
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.dependency.DependencyHandlingAgent;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+
+import java.util.List;
+
+/**
+ * Builds a chain of Agents each depending on the next. Records the Thread that runs each onDependenciesCompleted.
+ */
+public class NestedDependencyAgent extends DependencyHandlingAgent<Integer, Void> {
+
+    private static final long LEAF_EXECUTION_TIME_MS = 20;
+
+    private final String mIdPrefix;
+    private final int mDepth;
+    private final List<String> mContinuationThreadList;
+    private Integer mChildResult;
+
+    public NestedDependencyAgent(String idPrefix, int depth, List<String> continuationThreadList) {
+        mIdPrefix = idPrefix;
+        mDepth = depth;
+        mContinuationThreadList = continuationThreadList;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mIdPrefix + mDepth;
+    }
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    @Override
+    public void run() {
+        if (mDepth == 0) {
+            TestUtils.safeSleep(LEAF_EXECUTION_TIME_MS);
+            getAgentListener().onCompletion(getUniqueIdentifier(), 0);
+            return;
+        }
+
+        addParallelDependency(GroundControl.bgAgent(getAgentExecutor(), new NestedDependencyAgent(mIdPrefix, mDepth - 1, mContinuationThreadList)),
+                new FunctionalAgentListener<Integer, Void>() {
+                    @Override
+                    public void onCompletion(String agentIdentifier, Integer result) {
+                        mChildResult = result;
+                    }
+                });
+        executeDependencies();
+    }
+
+    @Override
+    public void onDependenciesCompleted() {
+        mContinuationThreadList.add(Thread.currentThread().getName());
+        getAgentListener().onCompletion(getUniqueIdentifier(), mChildResult == null ? null : mChildResult + 1);
+    }
+}
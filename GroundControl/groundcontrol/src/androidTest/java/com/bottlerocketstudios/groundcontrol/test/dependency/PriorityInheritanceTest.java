@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.dependency;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+import com.bottlerocketstudios.groundcontrol.test.integration.SynchronousAgent;
+
+public class PriorityInheritanceTest extends AndroidTestCase {
+    private static final String TAG = PriorityInheritanceTest.class.getSimpleName();
+
+    private static final long CHILD_EXECUTION_TIME_MS = 1000;
+    private static final long PARENT_TIMEOUT_MS = 3000;
+    private static final long MAX_WAIT_MS = 2000;
+
+    public void testPriorityAndDeadlineInherited() {
+        String childIdentifier = TAG + ".inheritedChild";
+        final TestUtils.Container<String> resultContainer = new TestUtils.Container<>(null);
+        GroundControl.agent(new InheritingParentAgent(TAG + ".inheritedParent", new SynchronousAgent(childIdentifier, CHILD_EXECUTION_TIME_MS)))
+                .bgParallelCallback(new ResultListener(resultContainer))
+                .priority(JobPriority.HIGH)
+                .timeout(PARENT_TIMEOUT_MS)
+                .execute();
+
+        AgentExecutor agentExecutor = AgentExecutor.getDefault();
+        waitForAgent(agentExecutor, childIdentifier);
+
+        assertEquals("Child did not inherit parent priority", JobPriority.HIGH, agentExecutor.getAgentPriority(childIdentifier));
+        long childRemainingMs = agentExecutor.getRemainingDeadlineMs(childIdentifier);
+        assertTrue("Child deadline was not limited to the parent's remaining budget", childRemainingMs > 0 && childRemainingMs <= PARENT_TIMEOUT_MS);
+
+        TestUtils.blockUntilNotNullOrTimeout(resultContainer, 20, CHILD_EXECUTION_TIME_MS + MAX_WAIT_MS);
+        assertNotNull("Parent did not complete", resultContainer.getValue());
+    }
+
+    public void testParentPromotionPropagates() {
+        String parentIdentifier = TAG + ".promotedParent";
+        String childIdentifier = TAG + ".promotedChild";
+        final TestUtils.Container<String> resultContainer = new TestUtils.Container<>(null);
+        GroundControl.agent(new InheritingParentAgent(parentIdentifier, new SynchronousAgent(childIdentifier, CHILD_EXECUTION_TIME_MS)))
+                .bgParallelCallback(new ResultListener(resultContainer))
+                .priority(JobPriority.LOW)
+                .execute();
+
+        AgentExecutor agentExecutor = AgentExecutor.getDefault();
+        waitForAgent(agentExecutor, childIdentifier);
+        assertEquals("Child should not be demoted below its own policy", JobPriority.NORMAL, agentExecutor.getAgentPriority(childIdentifier));
+
+        //A coalesced request at a higher priority promotes the parent.
+        final TestUtils.Container<String> promotedResultContainer = new TestUtils.Container<>(null);
+        GroundControl.agent(new InheritingParentAgent(parentIdentifier, new SynchronousAgent(childIdentifier, CHILD_EXECUTION_TIME_MS)))
+                .bgParallelCallback(new ResultListener(promotedResultContainer))
+                .priority(JobPriority.HIGH)
+                .execute();
+
+        long start = SystemClock.uptimeMillis();
+        while (agentExecutor.getAgentPriority(childIdentifier) != JobPriority.HIGH && SystemClock.uptimeMillis() - start < MAX_WAIT_MS) {
+            TestUtils.safeSleep(10);
+        }
+        assertEquals("Parent promotion did not propagate to child", JobPriority.HIGH, agentExecutor.getAgentPriority(childIdentifier));
+
+        TestUtils.blockUntilNotNullOrTimeout(promotedResultContainer, 20, CHILD_EXECUTION_TIME_MS + MAX_WAIT_MS);
+        assertNotNull("Promoted request did not complete", promotedResultContainer.getValue());
+    }
+
+    private void waitForAgent(AgentExecutor agentExecutor, String agentIdentifier) {
+        long start = SystemClock.uptimeMillis();
+        while (!agentExecutor.hasStartedAgent(agentIdentifier) && SystemClock.uptimeMillis() - start < MAX_WAIT_MS) {
+            TestUtils.safeSleep(10);
+        }
+        assertTrue("Agent was not started " + agentIdentifier, agentExecutor.hasStartedAgent(agentIdentifier));
+    }
+
+    private static class ResultListener extends FunctionalAgentListener<String, Void> {
+        private final TestUtils.Container<String> mResultContainer;
+
+        ResultListener(TestUtils.Container<String> resultContainer) {
+            mResultContainer = resultContainer;
+        }
+
+        @Override
+        public void onCompletion(String agentIdentifier, String result) {
+            mResultContainer.setValue(result);
+        }
+    }
+}
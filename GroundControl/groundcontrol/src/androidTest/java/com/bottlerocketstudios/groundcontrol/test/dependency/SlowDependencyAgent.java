@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.dependency;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.dependency.DependencyHandlingAgent;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+import com.bottlerocketstudios.groundcontrol.test.integration.SynchronousTimeAgent;
+
+/**
+ * Waits on a single timed dependency run on a separate AgentExecutor, then completes with its result.
+ */
+public class SlowDependencyAgent extends DependencyHandlingAgent<Long, Void> {
+
+    private final String mUniqueIdentifier;
+    private final AgentExecutor mDependencyExecutor;
+    private final long mDependencyTimeMs;
+    private Long mDependencyResult;
+
+    public SlowDependencyAgent(String uniqueIdentifier, AgentExecutor dependencyExecutor, long dependencyTimeMs) {
+        mUniqueIdentifier = uniqueIdentifier;
+        mDependencyExecutor = dependencyExecutor;
+        mDependencyTimeMs = dependencyTimeMs;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mUniqueIdentifier;
+    }
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    @Override
+    public void run() {
+        addParallelDependency(GroundControl.bgAgent(mDependencyExecutor, new SynchronousTimeAgent(mUniqueIdentifier + ".dependency", mDependencyTimeMs)),
+                new FunctionalAgentListener<Long, Float>() {
+                    @Override
+                    public void onCompletion(String agentIdentifier, Long result) {
+                        mDependencyResult = result;
+                    }
+                });
+        executeDependencies();
+    }
+
+    @Override
+    public void onDependenciesCompleted() {
+        getAgentListener().onCompletion(getUniqueIdentifier(), mDependencyResult);
+    }
+}
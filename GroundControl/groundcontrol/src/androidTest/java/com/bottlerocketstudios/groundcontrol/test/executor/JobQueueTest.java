@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.executor;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.executor.IdSequence;
+import com.bottlerocketstudios.groundcontrol.executor.Job;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriorityAndIdComparator;
+import com.bottlerocketstudios.groundcontrol.executor.JobQueue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class JobQueueTest extends AndroidTestCase {
+
+    private static final String BLOCKED_GROUP = "blocked";
+
+    private static final JobQueue.JobFilter ACCEPT_ALL = new JobQueue.JobFilter() {
+        @Override
+        public boolean canExecute(Job job) {
+            return true;
+        }
+    };
+
+    private static final JobQueue.JobFilter REJECT_BLOCKED = new JobQueue.JobFilter() {
+        @Override
+        public boolean canExecute(Job job) {
+            return !BLOCKED_GROUP.equals(job.getConcurrencyGroup());
+        }
+    };
+
+    private IdSequence mIdSequence;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mIdSequence = new IdSequence();
+    }
+
+    private Job createJob(JobPriority jobPriority, String concurrencyGroup) {
+        Job job = new Job(mIdSequence.getNext(), null, 0, jobPriority);
+        job.setConcurrencyGroup(concurrencyGroup);
+        return job;
+    }
+
+    public void testPriorityThenIdOrdering() {
+        JobQueue jobQueue = new JobQueue();
+        Job low = createJob(JobPriority.LOW, null);
+        Job normalFirst = createJob(JobPriority.NORMAL, "a");
+        Job high = createJob(JobPriority.HIGH, "b");
+        Job normalSecond = createJob(JobPriority.NORMAL, null);
+        jobQueue.add(low);
+        jobQueue.add(normalFirst);
+        jobQueue.add(high);
+        jobQueue.add(normalSecond);
+
+        assertEquals("Wrong size", 4, jobQueue.size());
+        assertEquals("Wrong first job", high, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Wrong second job", normalFirst, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Wrong third job", normalSecond, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Wrong fourth job", low, jobQueue.poll(ACCEPT_ALL));
+        assertNull("Empty queue returned a job", jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Wrong size", 0, jobQueue.size());
+    }
+
+    public void testUpdatePriorityReorders() {
+        JobQueue jobQueue = new JobQueue();
+        Job normal = createJob(JobPriority.NORMAL, null);
+        Job low = createJob(JobPriority.LOW, null);
+        jobQueue.add(normal);
+        jobQueue.add(low);
+
+        assertTrue("Queued job was not found", jobQueue.updatePriority(low.getId(), JobPriority.HIGH, 0));
+        assertFalse("Missing job was updated", jobQueue.updatePriority(mIdSequence.getNext(), JobPriority.HIGH, 0));
+        assertEquals("Promoted job did not move ahead", low, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Wrong remaining job", normal, jobQueue.poll(ACCEPT_ALL));
+    }
+
+    public void testFilteredPartitionSkipped() {
+        JobQueue jobQueue = new JobQueue();
+        Job blocked = createJob(JobPriority.HIGH, BLOCKED_GROUP);
+        Job waiting = createJob(JobPriority.LOW, null);
+        jobQueue.add(blocked);
+        jobQueue.add(waiting);
+
+        assertEquals("Blocked partition was not skipped", waiting, jobQueue.poll(REJECT_BLOCKED));
+        assertNull("Blocked job was returned", jobQueue.poll(REJECT_BLOCKED));
+        assertEquals("Blocked job was not retained", blocked, jobQueue.get(blocked.getId()));
+        assertEquals("Removed wrong job", blocked, jobQueue.remove(blocked.getId()));
+        assertEquals("Wrong size", 0, jobQueue.size());
+    }
+
+    public void testPeekOldestByQueuedTime() {
+        JobQueue jobQueue = new JobQueue();
+        Job newer = createJob(JobPriority.LOW, "a");
+        newer.setQueuedTime(200);
+        Job older = createJob(JobPriority.LOW, "b");
+        older.setQueuedTime(100);
+        Job normal = createJob(JobPriority.NORMAL, null);
+        normal.setQueuedTime(50);
+        jobQueue.add(newer);
+        jobQueue.add(older);
+        jobQueue.add(normal);
+
+        assertEquals("Wrong low count", 2, jobQueue.size(JobPriority.LOW));
+        assertEquals("Wrong oldest low job", older, jobQueue.peekOldest(JobPriority.LOW));
+        assertNull("Empty priority returned a job", jobQueue.peekOldest(JobPriority.HIGH));
+
+        jobQueue.remove(older.getId());
+        assertEquals("Wrong oldest after removal", newer, jobQueue.peekOldest(JobPriority.LOW));
+        jobQueue.updatePriority(newer.getId(), JobPriority.NORMAL, 300);
+        assertEquals("Queued time was not reset for the new priority", 300, newer.getQueuedTime());
+        assertNull("Promoted job remained in old priority", jobQueue.peekOldest(JobPriority.LOW));
+        assertEquals("Wrong oldest normal job", normal, jobQueue.peekOldest(JobPriority.NORMAL));
+    }
+
+    private Job createFairShareJob(JobPriority jobPriority, String fairShareKey) {
+        Job job = createJob(jobPriority, null);
+        job.setFairShareKey(fairShareKey);
+        return job;
+    }
+
+    public void testFairShareAlternatesKeys() {
+        JobQueue jobQueue = new JobQueue(new JobPriorityAndIdComparator(), new HashMap<String, Integer>());
+        Job busyFirst = createFairShareJob(JobPriority.NORMAL, "busy");
+        Job busySecond = createFairShareJob(JobPriority.NORMAL, "busy");
+        Job busyThird = createFairShareJob(JobPriority.NORMAL, "busy");
+        Job quiet = createFairShareJob(JobPriority.NORMAL, "quiet");
+        Job high = createFairShareJob(JobPriority.HIGH, "busy");
+        jobQueue.add(busyFirst);
+        jobQueue.add(busySecond);
+        jobQueue.add(busyThird);
+        jobQueue.add(quiet);
+        jobQueue.add(high);
+
+        assertEquals("Priority was not respected", high, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Wrong first job", busyFirst, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Quiet key waited behind busy key", quiet, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Wrong third job", busySecond, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Wrong fourth job", busyThird, jobQueue.poll(ACCEPT_ALL));
+    }
+
+    public void testFairShareWeight() {
+        Map<String, Integer> weightMap = new HashMap<>();
+        weightMap.put("heavy", 3);
+        JobQueue jobQueue = new JobQueue(new JobPriorityAndIdComparator(), weightMap);
+        for (int i = 0; i < 6; i++) {
+            jobQueue.add(createFairShareJob(JobPriority.NORMAL, "heavy"));
+            jobQueue.add(createFairShareJob(JobPriority.NORMAL, "light"));
+        }
+
+        int heavyCount = 0;
+        for (int i = 0; i < 8; i++) {
+            if ("heavy".equals(jobQueue.poll(ACCEPT_ALL).getFairShareKey())) {
+                heavyCount++;
+            }
+        }
+        assertEquals("Weighted key did not receive its share", 6, heavyCount);
+    }
+
+    public void testIdleFairShareKeyDoesNotBurst() {
+        JobQueue jobQueue = new JobQueue(new JobPriorityAndIdComparator(), new HashMap<String, Integer>());
+        for (int i = 0; i < 4; i++) {
+            jobQueue.add(createFairShareJob(JobPriority.NORMAL, "busy"));
+            assertNotNull("Job was not returned", jobQueue.poll(ACCEPT_ALL));
+        }
+
+        Job busy = createFairShareJob(JobPriority.NORMAL, "busy");
+        Job returningFirst = createFairShareJob(JobPriority.NORMAL, "returning");
+        Job returningSecond = createFairShareJob(JobPriority.NORMAL, "returning");
+        jobQueue.add(busy);
+        jobQueue.add(returningFirst);
+        jobQueue.add(returningSecond);
+
+        assertEquals("Wrong first job", returningFirst, jobQueue.poll(ACCEPT_ALL));
+        assertEquals("Returning key claimed unused time", busy, jobQueue.poll(ACCEPT_ALL));
+    }
+}
@@ -21,13 +21,19 @@ import android.util.Log;
 
 import com.bottlerocketstudios.groundcontrol.executor.IdSequence;
 import com.bottlerocketstudios.groundcontrol.executor.Job;
+import com.bottlerocketstudios.groundcontrol.executor.JobExecutionListener;
+import com.bottlerocketstudios.groundcontrol.executor.JobOrdering;
 import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
 import com.bottlerocketstudios.groundcontrol.executor.PriorityQueueingPoolExecutorService;
 import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
 import com.bottlerocketstudios.groundcontrol.test.TestUtils;
 import com.bottlerocketstudios.groundcontrol.inactivity.StandardInactivityCleanupRunnable;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class PriorityQueueingPoolExecutorServiceTest extends AndroidTestCase {
 
@@ -40,6 +46,8 @@ public class PriorityQueueingPoolExecutorServiceTest extends AndroidTestCase {
     public static final int MAX_SIMULTANEOUS_JOBS = 10;
     public static final long IDLE_TIMEOUT_MS = 5000L;
     public static final long TEST_INTERVAL_MS = 1000;
+    public static final int SHORT_JOB_COUNT = 5;
+    public static final long SHORT_JOB_TIME_MS = 20;
 
     //Limit execution to approximately the absolute minimum time required.
     private static final long MAXIMUM_PROCESSING_TIME =
@@ -77,6 +85,312 @@ public class PriorityQueueingPoolExecutorServiceTest extends AndroidTestCase {
         Log.d(TAG, "Execution took " + String.valueOf(MAXIMUM_PROCESSING_TIME - getExecutionDuration()) + "ms less than limit");
     }
 
+    public void testSlotReleasedWhenJobFinishes() {
+        //Cleanup runs far less often than the jobs complete, so only immediate slot release can finish in time.
+        PriorityQueueingPoolExecutorService priorityQueueingPoolExecutorService =
+                StandardPriorityQueueingPoolExecutorService.builder()
+                        .setJobCleanupRunnable(new StandardInactivityCleanupRunnable(IDLE_TIMEOUT_MS, IDLE_TIMEOUT_MS))
+                        .setMaxSimultaneousJobs(1)
+                        .build();
+
+        IdSequence idSequence = new IdSequence();
+        final AtomicInteger completedJobs = new AtomicInteger(0);
+        List<Job> jobList = new ArrayList<>();
+        for (int i = 0; i < SHORT_JOB_COUNT; i++) {
+            jobList.add(new Job(idSequence.getNext(), new Runnable() {
+                @Override
+                public void run() {
+                    TestUtils.safeSleep(SHORT_JOB_TIME_MS);
+                    completedJobs.incrementAndGet();
+                }
+            }, IDLE_TIMEOUT_MS));
+        }
+
+        long start = SystemClock.uptimeMillis();
+        priorityQueueingPoolExecutorService.enqueue(jobList);
+        while (completedJobs.get() < SHORT_JOB_COUNT && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+            TestUtils.safeSleep(SHORT_JOB_TIME_MS);
+        }
+
+        assertEquals("Jobs did not complete", SHORT_JOB_COUNT, completedJobs.get());
+        assertTrue("Slots were not released as jobs finished", SystemClock.uptimeMillis() - start < TEST_INTERVAL_MS);
+    }
+
+    public void testConcurrencyGroupLimit() {
+        final String imageGroup = "image";
+        PriorityQueueingPoolExecutorService priorityQueueingPoolExecutorService =
+                StandardPriorityQueueingPoolExecutorService.builder()
+                        .setJobCleanupRunnable(new StandardInactivityCleanupRunnable(IDLE_TIMEOUT_MS, 100L))
+                        .setMaxSimultaneousJobs(4)
+                        .setConcurrencyGroupLimit(imageGroup, 1)
+                        .build();
+
+        IdSequence idSequence = new IdSequence();
+        final AtomicInteger runningImageJobs = new AtomicInteger(0);
+        final AtomicInteger maxRunningImageJobs = new AtomicInteger(0);
+        final AtomicInteger completedImageJobs = new AtomicInteger(0);
+        final AtomicInteger completedOtherJobs = new AtomicInteger(0);
+        final AtomicInteger imageJobsCompletedBeforeOtherJobs = new AtomicInteger(-1);
+
+        //Queue the image flood first so that the other jobs wait behind it in priority order.
+        List<Job> jobList = new ArrayList<>();
+        for (int i = 0; i < SHORT_JOB_COUNT; i++) {
+            Job imageJob = new Job(idSequence.getNext(), new Runnable() {
+                @Override
+                public void run() {
+                    int running = runningImageJobs.incrementAndGet();
+                    if (running > maxRunningImageJobs.get()) {
+                        maxRunningImageJobs.set(running);
+                    }
+                    TestUtils.safeSleep(SHORT_JOB_TIME_MS * 5);
+                    runningImageJobs.decrementAndGet();
+                    completedImageJobs.incrementAndGet();
+                }
+            }, IDLE_TIMEOUT_MS);
+            imageJob.setConcurrencyGroup(imageGroup);
+            jobList.add(imageJob);
+        }
+        for (int i = 0; i < SHORT_JOB_COUNT; i++) {
+            jobList.add(new Job(idSequence.getNext(), new Runnable() {
+                @Override
+                public void run() {
+                    if (completedOtherJobs.incrementAndGet() == SHORT_JOB_COUNT) {
+                        imageJobsCompletedBeforeOtherJobs.set(completedImageJobs.get());
+                    }
+                }
+            }, IDLE_TIMEOUT_MS));
+        }
+
+        long start = SystemClock.uptimeMillis();
+        priorityQueueingPoolExecutorService.enqueue(jobList);
+        while (completedImageJobs.get() < SHORT_JOB_COUNT && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+            TestUtils.safeSleep(SHORT_JOB_TIME_MS);
+        }
+
+        assertEquals("Image jobs did not complete", SHORT_JOB_COUNT, completedImageJobs.get());
+        assertEquals("Other jobs did not complete", SHORT_JOB_COUNT, completedOtherJobs.get());
+        assertEquals("Concurrency group limit was exceeded", 1, maxRunningImageJobs.get());
+        assertTrue("Other jobs were blocked by the saturated group", imageJobsCompletedBeforeOtherJobs.get() < SHORT_JOB_COUNT - 1);
+    }
+
+    public void testRateLimit() {
+        final String rateLimitGroup = "backend";
+        final int permitsPerSecond = 20;
+        final int burstSize = 2;
+        final int limitedJobCount = 8;
+        PriorityQueueingPoolExecutorService priorityQueueingPoolExecutorService =
+                StandardPriorityQueueingPoolExecutorService.builder()
+                        .setJobCleanupRunnable(new StandardInactivityCleanupRunnable(IDLE_TIMEOUT_MS, 10L))
+                        .setRateLimit(rateLimitGroup, permitsPerSecond, burstSize)
+                        .build();
+
+        IdSequence idSequence = new IdSequence();
+        final AtomicInteger completedLimitedJobs = new AtomicInteger(0);
+        final AtomicInteger completedOtherJobs = new AtomicInteger(0);
+        List<Job> jobList = new ArrayList<>();
+        for (int i = 0; i < limitedJobCount; i++) {
+            Job limitedJob = new Job(idSequence.getNext(), new Runnable() {
+                @Override
+                public void run() {
+                    completedLimitedJobs.incrementAndGet();
+                }
+            }, IDLE_TIMEOUT_MS);
+            limitedJob.setRateLimitGroup(rateLimitGroup);
+            jobList.add(limitedJob);
+        }
+        for (int i = 0; i < SHORT_JOB_COUNT; i++) {
+            jobList.add(new Job(idSequence.getNext(), new Runnable() {
+                @Override
+                public void run() {
+                    completedOtherJobs.incrementAndGet();
+                }
+            }, IDLE_TIMEOUT_MS));
+        }
+
+        long start = SystemClock.uptimeMillis();
+        priorityQueueingPoolExecutorService.enqueue(jobList);
+        TestUtils.safeSleep(SHORT_JOB_TIME_MS);
+        assertEquals("Unlimited jobs waited for rate limited jobs", SHORT_JOB_COUNT, completedOtherJobs.get());
+        assertTrue("Rate limit was not applied", completedLimitedJobs.get() < limitedJobCount);
+
+        while (completedLimitedJobs.get() < limitedJobCount && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+            TestUtils.safeSleep(SHORT_JOB_TIME_MS / 4);
+        }
+        long duration = SystemClock.uptimeMillis() - start;
+
+        assertEquals("Rate limited jobs did not complete", limitedJobCount, completedLimitedJobs.get());
+        long minimumDuration = (limitedJobCount - burstSize) * 1000L / permitsPerSecond;
+        assertTrue("Rate limited jobs finished too quickly " + duration + "ms", duration >= minimumDuration - SHORT_JOB_TIME_MS);
+    }
+
+    public void testPrefetchYieldsToHigherPriorityWork() {
+        PriorityQueueingPoolExecutorService priorityQueueingPoolExecutorService =
+                StandardPriorityQueueingPoolExecutorService.builder()
+                        .setJobCleanupRunnable(new StandardInactivityCleanupRunnable(IDLE_TIMEOUT_MS, 100L))
+                        .setMaxSimultaneousJobs(4)
+                        .build();
+
+        IdSequence idSequence = new IdSequence();
+        final AtomicInteger prefetchStarted = new AtomicInteger(0);
+        final AtomicInteger prefetchYielded = new AtomicInteger(0);
+        final Job[] prefetchJobHolder = new Job[1];
+        prefetchJobHolder[0] = new Job(idSequence.getNext(), new Runnable() {
+            @Override
+            public void run() {
+                prefetchStarted.incrementAndGet();
+                long start = SystemClock.uptimeMillis();
+                while (!prefetchJobHolder[0].isYieldRequested() && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+                    TestUtils.safeSleep(SHORT_JOB_TIME_MS / 4);
+                }
+                if (prefetchJobHolder[0].isYieldRequested()) {
+                    prefetchYielded.incrementAndGet();
+                }
+            }
+        }, IDLE_TIMEOUT_MS, JobPriority.PREFETCH);
+        priorityQueueingPoolExecutorService.enqueue(prefetchJobHolder[0]);
+
+        long start = SystemClock.uptimeMillis();
+        while (prefetchStarted.get() == 0 && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+            TestUtils.safeSleep(SHORT_JOB_TIME_MS / 4);
+        }
+        assertEquals("Prefetch job did not start on an idle pool", 1, prefetchStarted.get());
+
+        final AtomicInteger normalCompleted = new AtomicInteger(0);
+        final AtomicInteger secondPrefetchStartedEarly = new AtomicInteger(0);
+        Job normalJob = new Job(idSequence.getNext(), new Runnable() {
+            @Override
+            public void run() {
+                TestUtils.safeSleep(SHORT_JOB_TIME_MS * 5);
+                normalCompleted.incrementAndGet();
+            }
+        }, IDLE_TIMEOUT_MS, JobPriority.NORMAL);
+        Job secondPrefetchJob = new Job(idSequence.getNext(), new Runnable() {
+            @Override
+            public void run() {
+                if (normalCompleted.get() == 0) {
+                    secondPrefetchStartedEarly.incrementAndGet();
+                }
+                prefetchStarted.incrementAndGet();
+            }
+        }, IDLE_TIMEOUT_MS, JobPriority.PREFETCH);
+        priorityQueueingPoolExecutorService.enqueue(normalJob, secondPrefetchJob);
+
+        while (prefetchStarted.get() < 2 && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+            TestUtils.safeSleep(SHORT_JOB_TIME_MS / 4);
+        }
+
+        assertEquals("Running prefetch job was not asked to yield", 1, prefetchYielded.get());
+        assertEquals("Normal job did not complete", 1, normalCompleted.get());
+        assertEquals("Second prefetch job did not run", 2, prefetchStarted.get());
+        assertEquals("Prefetch job started while higher priority work was running", 0, secondPrefetchStartedEarly.get());
+    }
+
+    public void testShortestExpectedFirstWithAging() {
+        PriorityQueueingPoolExecutorService priorityQueueingPoolExecutorService =
+                StandardPriorityQueueingPoolExecutorService.builder()
+                        .setJobCleanupRunnable(new StandardInactivityCleanupRunnable(IDLE_TIMEOUT_MS, 100L))
+                        .setMaxSimultaneousJobs(1)
+                        .setJobOrdering(JobOrdering.SHORTEST_EXPECTED_FIRST)
+                        .build();
+
+        IdSequence idSequence = new IdSequence();
+        final List<String> completionOrder = Collections.synchronizedList(new ArrayList<String>());
+        priorityQueueingPoolExecutorService.enqueue(createRecordingJob(idSequence, "blocker", SHORT_JOB_TIME_MS * 10, 0, completionOrder));
+        priorityQueueingPoolExecutorService.enqueue(
+                createRecordingJob(idSequence, "slow", 0, SHORT_JOB_TIME_MS * 2, completionOrder),
+                createRecordingJob(idSequence, "fast", 0, 1, completionOrder));
+
+        //A short job arriving after the slow job has waited its expected run time no longer passes it.
+        TestUtils.safeSleep(SHORT_JOB_TIME_MS * 4);
+        priorityQueueingPoolExecutorService.enqueue(createRecordingJob(idSequence, "late", 0, 1, completionOrder));
+
+        long start = SystemClock.uptimeMillis();
+        while (completionOrder.size() < 4 && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+            TestUtils.safeSleep(SHORT_JOB_TIME_MS);
+        }
+        assertEquals("Wrong execution order", Arrays.asList("blocker", "fast", "slow", "late"), completionOrder);
+    }
+
+    public void testLowPriorityAging() {
+        PriorityQueueingPoolExecutorService priorityQueueingPoolExecutorService =
+                StandardPriorityQueueingPoolExecutorService.builder()
+                        .setJobCleanupRunnable(new StandardInactivityCleanupRunnable(IDLE_TIMEOUT_MS, 100L))
+                        .setMaxSimultaneousJobs(1)
+                        .setPriorityAgingMs(SHORT_JOB_TIME_MS)
+                        .build();
+
+        IdSequence idSequence = new IdSequence();
+        final List<String> completionOrder = Collections.synchronizedList(new ArrayList<String>());
+        priorityQueueingPoolExecutorService.enqueue(createRecordingJob(idSequence, "blocker", SHORT_JOB_TIME_MS * 10, 0, completionOrder));
+        Job lowJob = createRecordingJob(idSequence, "low", 0, 0, completionOrder);
+        lowJob.setPriority(JobPriority.LOW);
+        priorityQueueingPoolExecutorService.enqueue(lowJob);
+
+        //After waiting two aging intervals the low job has reached HIGH and passes newer normal jobs.
+        TestUtils.safeSleep(SHORT_JOB_TIME_MS * 3);
+        priorityQueueingPoolExecutorService.enqueue(createRecordingJob(idSequence, "normal", 0, 0, completionOrder));
+        assertEquals("Low job was not aged", JobPriority.HIGH, lowJob.getPriority());
+
+        long start = SystemClock.uptimeMillis();
+        while (completionOrder.size() < 3 && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+            TestUtils.safeSleep(SHORT_JOB_TIME_MS);
+        }
+        assertEquals("Wrong execution order", Arrays.asList("blocker", "low", "normal"), completionOrder);
+    }
+
+    public void testLifoDropsOldest() {
+        PriorityQueueingPoolExecutorService priorityQueueingPoolExecutorService =
+                StandardPriorityQueueingPoolExecutorService.builder()
+                        .setJobCleanupRunnable(new StandardInactivityCleanupRunnable(IDLE_TIMEOUT_MS, 100L))
+                        .setMaxSimultaneousJobs(1)
+                        .setJobOrdering(JobOrdering.LIFO)
+                        .setMaxQueuedJobs(3)
+                        .build();
+
+        IdSequence idSequence = new IdSequence();
+        final List<String> completionOrder = Collections.synchronizedList(new ArrayList<String>());
+        final List<Long> droppedJobIdList = Collections.synchronizedList(new ArrayList<Long>());
+        JobExecutionListener dropRecordingListener = new JobExecutionListener() {
+            @Override
+            public void onJobExecuted(Job job) {}
+
+            @Override
+            public void onJobDropped(Job job) {
+                droppedJobIdList.add(job.getId());
+            }
+        };
+
+        priorityQueueingPoolExecutorService.enqueue(createRecordingJob(idSequence, "blocker", SHORT_JOB_TIME_MS * 10, 0, completionOrder));
+        Job highJob = createRecordingJob(idSequence, "high", 0, 0, completionOrder);
+        highJob.setPriority(JobPriority.HIGH);
+        Job oldestJob = createRecordingJob(idSequence, "oldest", 0, 0, completionOrder);
+        oldestJob.setJobExecutionListener(dropRecordingListener);
+        priorityQueueingPoolExecutorService.enqueue(highJob, oldestJob);
+        priorityQueueingPoolExecutorService.enqueue(
+                createRecordingJob(idSequence, "older", 0, 0, completionOrder),
+                createRecordingJob(idSequence, "newest", 0, 0, completionOrder));
+
+        assertEquals("Oldest job of the lowest priority was not dropped", Collections.singletonList(oldestJob.getId()), droppedJobIdList);
+
+        long start = SystemClock.uptimeMillis();
+        while (completionOrder.size() < 4 && SystemClock.uptimeMillis() - start < IDLE_TIMEOUT_MS) {
+            TestUtils.safeSleep(SHORT_JOB_TIME_MS);
+        }
+        assertEquals("Wrong execution order", Arrays.asList("blocker", "high", "newest", "older"), completionOrder);
+    }
+
+    private Job createRecordingJob(IdSequence idSequence, final String name, final long runTimeMs, long expectedRuntimeMs, final List<String> completionOrder) {
+        Job job = new Job(idSequence.getNext(), new Runnable() {
+            @Override
+            public void run() {
+                TestUtils.safeSleep(runTimeMs);
+                completionOrder.add(name);
+            }
+        }, IDLE_TIMEOUT_MS);
+        job.setExpectedRuntimeMs(expectedRuntimeMs);
+        return job;
+    }
+
     private boolean isOverMaxTime() {
         return getExecutionDuration() > MAXIMUM_PROCESSING_TIME;
     }
@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.executor;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.executor.RuntimeHistory;
+
+public class RuntimeHistoryTest extends AndroidTestCase {
+
+    private static final String KEY = "key";
+
+    public void testPercentiles() {
+        RuntimeHistory runtimeHistory = new RuntimeHistory(100, 10);
+        for (int i = 1; i <= 100; i++) {
+            runtimeHistory.record(KEY, i);
+        }
+        assertEquals("Wrong p50", 50, runtimeHistory.getPercentileMs(KEY, 50));
+        assertEquals("Wrong p95", 95, runtimeHistory.getPercentileMs(KEY, 95));
+        assertEquals("Unknown key should have no percentile", -1, runtimeHistory.getPercentileMs("other", 95));
+    }
+
+    public void testMinimumSamplesAndWindow() {
+        RuntimeHistory runtimeHistory = new RuntimeHistory(10, 5);
+        for (int i = 0; i < 4; i++) {
+            runtimeHistory.record(KEY, 1000);
+        }
+        assertEquals("Percentile reported before minimum samples", -1, runtimeHistory.getPercentileMs(KEY, 95));
+
+        //Old samples leave the window.
+        for (int i = 0; i < 10; i++) {
+            runtimeHistory.record(KEY, 10);
+        }
+        assertEquals("Old samples were not discarded", 10, runtimeHistory.getPercentileMs(KEY, 99));
+    }
+
+    public void testAverage() {
+        RuntimeHistory runtimeHistory = new RuntimeHistory(10, 5);
+        assertEquals("Unknown key should have no average", -1, runtimeHistory.getAverageMs(KEY));
+
+        runtimeHistory.record(KEY, 100);
+        assertEquals("First sample should be the average", 100, runtimeHistory.getAverageMs(KEY));
+
+        runtimeHistory.record(KEY, 200);
+        assertEquals("Average should move part way toward the new sample", 120, runtimeHistory.getAverageMs(KEY));
+    }
+}
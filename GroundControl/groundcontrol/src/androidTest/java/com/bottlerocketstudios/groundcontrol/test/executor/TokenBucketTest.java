@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.executor;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.executor.TokenBucket;
+
+public class TokenBucketTest extends AndroidTestCase {
+
+    public void testBurstThenRefill() {
+        TokenBucket tokenBucket = new TokenBucket(10, 2, 0);
+        assertTrue("First burst token unavailable", tokenBucket.tryAcquire());
+        assertTrue("Second burst token unavailable", tokenBucket.tryAcquire());
+        assertFalse("Token available beyond burst", tokenBucket.tryAcquire());
+
+        tokenBucket.refill(50);
+        assertFalse("Partial token was available", tokenBucket.hasToken());
+        tokenBucket.refill(100);
+        assertTrue("Token was not refilled", tokenBucket.tryAcquire());
+        assertFalse("Too many tokens refilled", tokenBucket.hasToken());
+    }
+
+    public void testRefillCappedAtBurst() {
+        TokenBucket tokenBucket = new TokenBucket(10, 2, 0);
+        tokenBucket.tryAcquire();
+        tokenBucket.tryAcquire();
+        tokenBucket.refill(10000);
+        assertTrue("Burst token unavailable", tokenBucket.tryAcquire());
+        assertTrue("Burst token unavailable", tokenBucket.tryAcquire());
+        assertFalse("Refill exceeded burst size", tokenBucket.tryAcquire());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.future;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+import com.bottlerocketstudios.groundcontrol.future.ResultCombiner;
+import com.bottlerocketstudios.groundcontrol.future.ResultFunction;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+import com.bottlerocketstudios.groundcontrol.test.integration.SynchronousAgent;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class AgentFutureTest extends AndroidTestCase {
+    private static final String TAG = AgentFutureTest.class.getSimpleName();
+
+    private static final long EXECUTION_TIME_MS = 100;
+    private static final long MAX_WAIT_MS = 2000;
+
+    public void testThenApplyInline() throws InterruptedException, ExecutionException, TimeoutException {
+        final TestUtils.Container<Thread> stageThread = new TestUtils.Container<>(null);
+
+        AgentFuture<Integer> lengthFuture = GroundControl.agent(new SynchronousAgent(TAG + ".apply", EXECUTION_TIME_MS))
+                .executeAsFuture()
+                .thenApply(new ResultFunction<String, Integer>() {
+                    @Override
+                    public Integer apply(String input) {
+                        stageThread.setValue(Thread.currentThread());
+                        return input.length();
+                    }
+                });
+
+        Integer length = lengthFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertTrue("Stage did not receive result", length != null && length > 0);
+        assertNotSame("Stage did not run on the completing thread", Thread.currentThread(), stageThread.getValue());
+    }
+
+    public void testThenCombineAndAllOf() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentFuture<String> firstFuture = GroundControl.agent(new SynchronousAgent(TAG + ".first", EXECUTION_TIME_MS)).executeAsFuture();
+        AgentFuture<String> secondFuture = GroundControl.agent(new SynchronousAgent(TAG + ".second", EXECUTION_TIME_MS * 2)).executeAsFuture();
+
+        AgentFuture<String> combinedFuture = firstFuture.thenCombine(secondFuture, new ResultCombiner<String, String, String>() {
+            @Override
+            public String combine(String first, String second) {
+                return first + "|" + second;
+            }
+        });
+
+        AgentFuture.allOf(firstFuture, secondFuture, combinedFuture).get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertTrue("All futures were not done", firstFuture.isDone() && secondFuture.isDone() && combinedFuture.isDone());
+        assertEquals("Combined result was incorrect", firstFuture.get() + "|" + secondFuture.get(), combinedFuture.get());
+    }
+
+    public void testCancelThroughTether() throws InterruptedException, ExecutionException {
+        SynchronousAgent synchronousAgent = new SynchronousAgent(TAG + ".cancel", MAX_WAIT_MS * 5);
+        AgentFuture<String> future = GroundControl.agent(synchronousAgent).executeAsFuture();
+        TestUtils.safeSleep(EXECUTION_TIME_MS);
+
+        assertTrue("Future was not cancelled", future.cancel(true));
+        assertTrue("Future did not report cancellation", future.isCancelled());
+        TestUtils.safeSleep(EXECUTION_TIME_MS);
+        assertTrue("Agent was not cancelled through its tether", synchronousAgent.isCanceled());
+
+        boolean cancellationThrown = false;
+        try {
+            future.get();
+        } catch (CancellationException e) {
+            cancellationThrown = true;
+        }
+        assertTrue("Cancelled future did not throw CancellationException", cancellationThrown);
+    }
+
+    public void testStageFailure() throws InterruptedException, TimeoutException {
+        AgentFuture<Integer> failedFuture = GroundControl.agent(new SynchronousAgent(TAG + ".failure", EXECUTION_TIME_MS))
+                .executeAsFuture()
+                .thenApply(new ResultFunction<String, Integer>() {
+                    @Override
+                    public Integer apply(String input) {
+                        throw new IllegalStateException("Stage failure");
+                    }
+                })
+                .thenApply(new ResultFunction<Integer, Integer>() {
+                    @Override
+                    public Integer apply(Integer input) {
+                        return input + 1;
+                    }
+                });
+
+        boolean executionExceptionThrown = false;
+        try {
+            failedFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            executionExceptionThrown = e.getCause() instanceof IllegalStateException;
+        }
+        assertTrue("Stage failure was not propagated", executionExceptionThrown);
+    }
+}
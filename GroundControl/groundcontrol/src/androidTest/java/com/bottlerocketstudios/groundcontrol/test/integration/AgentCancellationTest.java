@@ -15,16 +15,22 @@
 
 package com.bottlerocketstudios.groundcontrol.test.integration;
 
+import android.os.SystemClock;
 import android.test.AndroidTestCase;
 
 import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
 import com.bottlerocketstudios.groundcontrol.test.TestUtils;
 import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
 import com.bottlerocketstudios.groundcontrol.policy.AgentPolicy;
+import com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder;
+import com.bottlerocketstudios.groundcontrol.policy.RetryPolicy;
 import com.bottlerocketstudios.groundcontrol.policy.StandardAgentPolicyBuilder;
 import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AgentCancellationTest extends AndroidTestCase {
 
@@ -124,6 +130,212 @@ public class AgentCancellationTest extends AndroidTestCase {
         assertTrue("Agent was not cancelled in time.", synchronousAgent.isCanceled());
     }
 
+    public void testCancelQueuedAgent() throws InterruptedException {
+        AgentExecutor agentExecutor = AgentExecutor.builder("testCancelQueuedAgent")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .build())
+                .build();
+        ChunkedPrefetchAgent blockingAgent = new ChunkedPrefetchAgent("testCancelQueuedAgentBlocker", 6, 50);
+        AgentTether blockingTether = agentExecutor.runAgent(blockingAgent, new AgentListener<Integer, Void>() {
+            @Override
+            public void onCompletion(String agentIdentifier, Integer result) {}
+
+            @Override
+            public void onProgress(String agentIdentifier, Void progress) {}
+        });
+        while (blockingAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+
+        FlakyAgent queuedAgent = new FlakyAgent("testCancelQueuedAgent", 0);
+        AgentTether tether = agentExecutor.runAgent(queuedAgent, new AgentListener<String, Void>() {
+            @Override
+            public void onCompletion(String agentIdentifier, String result) {}
+
+            @Override
+            public void onProgress(String agentIdentifier, Void progress) {}
+        });
+        TestUtils.safeSleep(100);
+        assertTrue("Agent was not queued", agentExecutor.hasStartedAgent(queuedAgent.getUniqueIdentifier()));
+
+        tether.cancel();
+        assertFalse("Cancelled agent was not removed from the queue", agentExecutor.hasStartedAgent(queuedAgent.getUniqueIdentifier()));
+        blockingTether.release();
+        TestUtils.safeSleep(500);
+        assertEquals("Cancelled agent reached a worker thread", 0, queuedAgent.getAttemptCount());
+    }
+
+    /**
+     * Start the Agent on the calling thread instead of after a cache check.
+     */
+    private static final AgentPolicy BYPASS_CACHE_POLICY = new StandardAgentPolicyBuilder().setBypassCache(true).build();
+
+    private static class NullCountingListener implements AgentListener<String, Void> {
+        private final AtomicInteger mNullCount = new AtomicInteger();
+        private final AtomicInteger mResultCount = new AtomicInteger();
+        private final AgentExecutor mFollowUpAgentExecutor;
+
+        NullCountingListener() {
+            this(null);
+        }
+
+        /**
+         * Start a follow-up Agent from the completion callback as a listener reacting to a failure would.
+         */
+        NullCountingListener(AgentExecutor followUpAgentExecutor) {
+            mFollowUpAgentExecutor = followUpAgentExecutor;
+        }
+
+        @Override
+        public void onCompletion(String agentIdentifier, String result) {
+            if (result == null) {
+                mNullCount.incrementAndGet();
+            } else {
+                mResultCount.incrementAndGet();
+            }
+            if (mFollowUpAgentExecutor != null) {
+                mFollowUpAgentExecutor.runAgent(new FlakyAgent(agentIdentifier + ".followUp", 0), BYPASS_CACHE_POLICY, new NullCountingListener());
+            }
+        }
+
+        @Override
+        public void onProgress(String agentIdentifier, Void progress) {}
+
+        public int getNullCount() {
+            return mNullCount.get();
+        }
+
+        public int getCompletionCount() {
+            return mNullCount.get() + mResultCount.get();
+        }
+    }
+
+    private AgentPolicy createRetryPolicy(boolean directBackgroundCallback, long retryDelayMs) {
+        AgentPolicyBuilder agentPolicyBuilder = new StandardAgentPolicyBuilder()
+                .setPolicyTimeoutMs(TimeUnit.SECONDS.toMillis(10))
+                .setRetryPolicy(RetryPolicy.builder()
+                        .setMaxAttempts(2)
+                        .setInitialDelayMs(retryDelayMs)
+                        .setJitterRatio(0.0f)
+                        .build());
+        if (directBackgroundCallback) {
+            agentPolicyBuilder.setDirectBackgroundCallback(true);
+        }
+        return agentPolicyBuilder.build();
+    }
+
+    /**
+     * A retry is queued behind a long running Agent until the cancel timeout of the retried Agent expires.
+     */
+    public void testCancelExpiredQueuedAgent() throws InterruptedException {
+        AgentExecutor agentExecutor = AgentExecutor.builder("testCancelExpiredQueuedAgent")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .build())
+                .build();
+
+        FlakyAgent queuedAgent = new FlakyAgent("testCancelExpiredQueuedAgent", 1);
+        queuedAgent.setCancelTimeoutMs(300);
+        NullCountingListener directListener = new NullCountingListener();
+        NullCountingListener handlerListener = new NullCountingListener();
+        agentExecutor.runAgent(queuedAgent, createRetryPolicy(true, 200), directListener);
+        agentExecutor.runAgent(new FlakyAgent("testCancelExpiredQueuedAgent", 1), createRetryPolicy(false, 200), handlerListener);
+        while (queuedAgent.getAttemptCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        ChunkedPrefetchAgent blockingAgent = new ChunkedPrefetchAgent("testCancelExpiredQueuedAgentBlocker", 30, 50);
+        agentExecutor.runAgent(blockingAgent, new AgentListener<Integer, Void>() {
+            @Override
+            public void onCompletion(String agentIdentifier, Integer result) {}
+
+            @Override
+            public void onProgress(String agentIdentifier, Void progress) {}
+        });
+
+        long deadline = SystemClock.uptimeMillis() + 3000;
+        while ((directListener.getNullCount() == 0 || handlerListener.getNullCount() == 0) && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("Blocking agent finished before the retry expired", blockingAgent.getCompletedChunks() < 30);
+        assertFalse("Expired agent was not removed from the queue", agentExecutor.hasStartedAgent(queuedAgent.getUniqueIdentifier()));
+
+        //Let the blocking agent finish so a queued retry would have run.
+        TestUtils.safeSleep(1500);
+        assertEquals("Expired retry reached a worker thread", 1, queuedAgent.getAttemptCount());
+        assertEquals("Direct listener did not receive exactly one null", 1, directListener.getNullCount());
+        assertEquals("Handler listener did not receive exactly one null", 1, handlerListener.getNullCount());
+        assertEquals("Direct listener received a result", 1, directListener.getCompletionCount());
+        assertEquals("Handler listener received a result", 1, handlerListener.getCompletionCount());
+    }
+
+    /**
+     * Expire queued retries with direct listeners which start follow-up Agents while other requests are being started.
+     */
+    public void testCancelExpiredAgentsWhileRequesting() throws InterruptedException {
+        final AgentExecutor agentExecutor = AgentExecutor.builder("testCancelExpiredAgentsWhileRequesting")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .build())
+                .build();
+        AgentPolicy directPolicy = createRetryPolicy(true, 300);
+        FlakyAgent[] expiringAgents = new FlakyAgent[50];
+        NullCountingListener[] listeners = new NullCountingListener[expiringAgents.length];
+        for (int i = 0; i < expiringAgents.length; i++) {
+            expiringAgents[i] = new FlakyAgent("testCancelExpiredAgentsWhileRequesting" + i, 1);
+            expiringAgents[i].setCancelTimeoutMs(50);
+            listeners[i] = new NullCountingListener(agentExecutor);
+            agentExecutor.runAgent(expiringAgents[i], directPolicy, listeners[i]);
+        }
+        for (FlakyAgent expiringAgent : expiringAgents) {
+            while (expiringAgent.getAttemptCount() == 0) {
+                Thread.sleep(10);
+            }
+        }
+
+        //Hold the only slot so that every retry waits in the queue until it expires.
+        agentExecutor.runAgent(new ChunkedPrefetchAgent("testCancelExpiredAgentsWhileRequestingBlocker", 40, 50), new AgentListener<Integer, Void>() {
+            @Override
+            public void onCompletion(String agentIdentifier, Integer result) {}
+
+            @Override
+            public void onProgress(String agentIdentifier, Void progress) {}
+        });
+
+        final AtomicBoolean loading = new AtomicBoolean(true);
+        Thread loadThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; loading.get(); i++) {
+                    agentExecutor.runAgent(new FlakyAgent("testCancelExpiredAgentsWhileRequestingLoad" + i, 0), BYPASS_CACHE_POLICY, new NullCountingListener());
+                    TestUtils.safeSleep(1);
+                }
+            }
+        });
+        loadThread.start();
+
+        long deadline = SystemClock.uptimeMillis() + 3000;
+        int completedCount = 0;
+        while (completedCount < listeners.length && SystemClock.uptimeMillis() < deadline) {
+            Thread.sleep(50);
+            completedCount = 0;
+            for (NullCountingListener listener : listeners) {
+                completedCount += listener.getCompletionCount() > 0 ? 1 : 0;
+            }
+        }
+        loading.set(false);
+        loadThread.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse("Load thread was blocked", loadThread.isAlive());
+        assertEquals("Listeners were not all completed", listeners.length, completedCount);
+
+        TestUtils.safeSleep(300);
+        for (NullCountingListener listener : listeners) {
+            assertEquals("Listener did not receive exactly one null", 1, listener.getNullCount());
+            assertEquals("Listener was completed more than once", 1, listener.getCompletionCount());
+        }
+    }
+
     public void testPolicyTimeout() {
         final SynchronousAgent synchronousAgent = new SynchronousAgent("testPolicyTimeout", TimeUnit.SECONDS.toMillis(5));
         AgentPolicy policy = (new StandardAgentPolicyBuilder()).setPolicyTimeoutMs(1000).build();
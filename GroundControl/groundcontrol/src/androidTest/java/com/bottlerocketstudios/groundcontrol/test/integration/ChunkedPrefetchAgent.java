@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.os.SystemClock;
+
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performs a fixed number of chunks of work, yielding between chunks when asked and resuming where it left off.
+ */
+public class ChunkedPrefetchAgent extends AbstractAgent<Integer, Void> {
+
+    private final String mUniqueIdentifier;
+    private final int mChunkCount;
+    private final long mChunkTimeMs;
+    private final AtomicInteger mCompletedChunks = new AtomicInteger(0);
+    private final AtomicInteger mYieldCount = new AtomicInteger(0);
+    private volatile long mCompletionTime;
+    private volatile boolean mCancelled;
+
+    public ChunkedPrefetchAgent(String uniqueIdentifier, int chunkCount, long chunkTimeMs) {
+        mUniqueIdentifier = uniqueIdentifier;
+        mChunkCount = chunkCount;
+        mChunkTimeMs = chunkTimeMs;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mUniqueIdentifier;
+    }
+
+    @Override
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    public int getCompletedChunks() {
+        return mCompletedChunks.get();
+    }
+
+    public int getYieldCount() {
+        return mYieldCount.get();
+    }
+
+    public long getCompletionTime() {
+        return mCompletionTime;
+    }
+
+    @Override
+    public void run() {
+        while (mCompletedChunks.get() < mChunkCount && !mCancelled) {
+            if (shouldYield() && yieldExecution()) {
+                mYieldCount.incrementAndGet();
+                return;
+            }
+            TestUtils.safeSleep(mChunkTimeMs);
+            mCompletedChunks.incrementAndGet();
+        }
+        mCompletionTime = SystemClock.uptimeMillis();
+        notifyCompletion(mCancelled ? null : mCompletedChunks.get());
+    }
+}
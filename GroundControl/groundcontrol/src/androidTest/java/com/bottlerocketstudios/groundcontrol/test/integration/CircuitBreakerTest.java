@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.breaker.CircuitState;
+import com.bottlerocketstudios.groundcontrol.breaker.StandardCircuitBreaker;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class CircuitBreakerTest extends AndroidTestCase {
+    private static final String TAG = CircuitBreakerTest.class.getSimpleName();
+
+    private static final String GROUP = "backend";
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long OPEN_DURATION_MS = 300;
+    private static final long MAX_WAIT_MS = 2000;
+
+    public void testOpenCircuitShedsAndProbeRestores() throws InterruptedException, ExecutionException, TimeoutException {
+        StandardCircuitBreaker circuitBreaker = StandardCircuitBreaker.builder()
+                .setFailureThreshold(FAILURE_THRESHOLD)
+                .setOpenDurationMs(OPEN_DURATION_MS)
+                .build();
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG).setCircuitBreaker(circuitBreaker).build();
+
+        //Cache a good result before the backend fails. The future is retained so its tether keeps the cache from being abandoned.
+        AgentFuture<String> cachedFuture = GroundControl.bgAgent(agentExecutor, new FlakyAgent(TAG + ".cached", 0)).bgDirectPolicy().circuitBreakerGroup(GROUP).cacheAgeMs(TimeUnit.MINUTES.toMillis(1)).executeAsFuture();
+        assertEquals("Initial request failed", FlakyAgent.SUCCESS, cachedFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertNull("Failing agent succeeded", runAgent(agentExecutor, new FlakyAgent(TAG + ".fail" + i, 1)));
+        }
+        assertEquals("Circuit did not open", CircuitState.OPEN, circuitBreaker.getState(GROUP));
+
+        FlakyAgent shedAgent = new FlakyAgent(TAG + ".shed", 0);
+        assertNull("Shed request did not complete with null", runAgent(agentExecutor, shedAgent));
+        assertEquals("Shed agent was run", 0, shedAgent.getAttemptCount());
+
+        FlakyAgent staleAgent = new FlakyAgent(TAG + ".cached", 0);
+        String staleResult = GroundControl.bgAgent(agentExecutor, staleAgent).bgDirectPolicy().circuitBreakerGroup(GROUP).bypassCache(true).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("Stale cache was not delivered", FlakyAgent.SUCCESS, staleResult);
+        assertEquals("Stale agent was run", 0, staleAgent.getAttemptCount());
+        assertTrue("Cached request did not complete", cachedFuture.isDone());
+
+        TestUtils.safeSleep(OPEN_DURATION_MS + 50);
+        FlakyAgent probeAgent = new FlakyAgent(TAG + ".probe", 0);
+        assertEquals("Probe did not run", FlakyAgent.SUCCESS, runAgent(agentExecutor, probeAgent));
+        assertEquals("Successful probe did not close circuit", CircuitState.CLOSED, circuitBreaker.getState(GROUP));
+    }
+
+    private String runAgent(AgentExecutor agentExecutor, FlakyAgent flakyAgent) throws InterruptedException, ExecutionException, TimeoutException {
+        return GroundControl.bgAgent(agentExecutor, flakyAgent).bgDirectPolicy().circuitBreakerGroup(GROUP).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+    }
+}
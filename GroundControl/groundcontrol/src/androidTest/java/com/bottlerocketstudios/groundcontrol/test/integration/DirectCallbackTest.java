@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.cache.AgentResultCache;
+import com.bottlerocketstudios.groundcontrol.cache.StandardAgentResultCache;
+import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
+import com.bottlerocketstudios.groundcontrol.policy.AgentPolicy;
+import com.bottlerocketstudios.groundcontrol.policy.StandardAgentPolicyBuilder;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class DirectCallbackTest extends AndroidTestCase {
+
+    public void testDirectCallbackOnAgentThread() throws InterruptedException {
+        ThreadRecordingAgent agent = new ThreadRecordingAgent("directCallback", 2);
+        AgentPolicy directPolicy = (new StandardAgentPolicyBuilder()).setDirectBackgroundCallback(true).build();
+
+        final List<Thread> callbackThreadList = Collections.synchronizedList(new ArrayList<Thread>());
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+
+        AgentExecutor.getDefault().runAgent(agent, directPolicy, new AgentListener<String, Integer>() {
+            @Override
+            public void onCompletion(String agentIdentifier, String result) {
+                callbackThreadList.add(Thread.currentThread());
+                completionLatch.countDown();
+            }
+
+            @Override
+            public void onProgress(String agentIdentifier, Integer progress) {
+                callbackThreadList.add(Thread.currentThread());
+            }
+        });
+
+        assertTrue("Completion was not delivered", completionLatch.await(2, TimeUnit.SECONDS));
+        assertEquals("Wrong number of callbacks", 3, callbackThreadList.size());
+        for (Thread callbackThread : callbackThreadList) {
+            assertSame("Callback was not delivered on the agent thread", agent.getRunThread(), callbackThread);
+        }
+    }
+
+    public void testSlowDirectCallbackFallsBackToPool() throws InterruptedException {
+        ThreadRecordingAgent agent = new ThreadRecordingAgent("slowDirectCallback", 1);
+        AgentPolicy directPolicy = (new StandardAgentPolicyBuilder())
+                .setDirectBackgroundCallback(true)
+                .setDirectCallbackBudgetMs(5)
+                .build();
+
+        final List<Thread> callbackThreadList = Collections.synchronizedList(new ArrayList<Thread>());
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+
+        AgentExecutor.getDefault().runAgent(agent, directPolicy, new AgentListener<String, Integer>() {
+            @Override
+            public void onCompletion(String agentIdentifier, String result) {
+                callbackThreadList.add(Thread.currentThread());
+                completionLatch.countDown();
+            }
+
+            @Override
+            public void onProgress(String agentIdentifier, Integer progress) {
+                callbackThreadList.add(Thread.currentThread());
+                //Overrun the direct callback budget.
+                TestUtils.safeSleep(50);
+            }
+        });
+
+        assertTrue("Completion was not delivered", completionLatch.await(2, TimeUnit.SECONDS));
+        assertEquals("Wrong number of callbacks", 2, callbackThreadList.size());
+        assertSame("First callback was not delivered on the agent thread", agent.getRunThread(), callbackThreadList.get(0));
+        assertNotSame("Slow listener was not moved to the thread pool", agent.getRunThread(), callbackThreadList.get(1));
+    }
+
+    public void testDirectCompletionIsAlreadyCached() throws InterruptedException {
+        final AgentResultCache agentResultCache = StandardAgentResultCache.builder().build();
+        AgentExecutor agentExecutor = AgentExecutor.builder(DirectCallbackTest.class.getSimpleName() + ".cached")
+                .setAgentResultCache(agentResultCache)
+                .build();
+        final long cacheAgeMs = TimeUnit.MINUTES.toMillis(1);
+        AgentPolicy directPolicy = (new StandardAgentPolicyBuilder())
+                .setDirectBackgroundCallback(true)
+                .setMaxCacheAgeMs(cacheAgeMs)
+                .build();
+
+        //A listener acting on the result, for example by requesting the same Agent again, must find it in the cache.
+        final TestUtils.Container<Object> cachedContainer = new TestUtils.Container<>(null);
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+        AgentTether agentTether = agentExecutor.runAgent(new ThreadRecordingAgent("cachedDirectCallback", 0), directPolicy, new AgentListener<String, Integer>() {
+            @Override
+            public void onCompletion(String agentIdentifier, String result) {
+                cachedContainer.setValue(agentResultCache.get(agentIdentifier, cacheAgeMs));
+                completionLatch.countDown();
+            }
+
+            @Override
+            public void onProgress(String agentIdentifier, Integer progress) {}
+        });
+
+        assertTrue("Completion was not delivered", completionLatch.await(2, TimeUnit.SECONDS));
+        assertNotNull("Result was delivered before it was cached", cachedContainer.getValue());
+        agentTether.release();
+    }
+}
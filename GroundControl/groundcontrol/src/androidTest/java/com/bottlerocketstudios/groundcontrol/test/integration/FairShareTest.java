@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+import com.bottlerocketstudios.groundcontrol.future.ResultConsumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class FairShareTest extends AndroidTestCase {
+    private static final String TAG = FairShareTest.class.getSimpleName();
+
+    private static final int CHUNK_COUNT = 6;
+    private static final long CHUNK_TIME_MS = 50;
+    private static final int BUSY_AGENT_COUNT = 10;
+    private static final long MAX_WAIT_MS = 5000;
+
+    private AgentExecutor createSingleSlotExecutor(String name, boolean fairShare) throws InterruptedException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + "." + name)
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .setFairShare(fairShare)
+                        .build())
+                .build();
+
+        ChunkedPrefetchAgent blockingAgent = new ChunkedPrefetchAgent(TAG + "." + name + ".blocker", CHUNK_COUNT, CHUNK_TIME_MS);
+        GroundControl.bgAgent(agentExecutor, blockingAgent).bgDirectPolicy().executeAsFuture();
+        while (blockingAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+        return agentExecutor;
+    }
+
+    private AgentFuture<Void> executeForScreen(AgentExecutor agentExecutor, Object screen, FlakyAgent agent, final List<String> completionOrder) {
+        final String agentIdentifier = agent.getUniqueIdentifier();
+        return GroundControl.uiAgent(agentExecutor.getId(), screen, agent).bgDirectPolicy().disableCache().executeAsFuture()
+                .thenAccept(new ResultConsumer<String>() {
+                    @Override
+                    public void accept(String result) {
+                        completionOrder.add(agentIdentifier);
+                    }
+                });
+    }
+
+    /**
+     * Queue many Agents for one screen followed by a single Agent for another and return the position at which the
+     * single Agent completed.
+     */
+    private int getQuietScreenPosition(boolean fairShare) throws InterruptedException, ExecutionException, TimeoutException {
+        String name = fairShare ? "fair" : "unfair";
+        AgentExecutor agentExecutor = createSingleSlotExecutor(name, fairShare);
+        Object busyScreen = new Object();
+        Object quietScreen = new Object();
+        List<String> completionOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        AgentFuture<?>[] futures = new AgentFuture<?>[BUSY_AGENT_COUNT + 1];
+        for (int i = 0; i < BUSY_AGENT_COUNT; i++) {
+            futures[i] = executeForScreen(agentExecutor, busyScreen, new FlakyAgent(TAG + "." + name + ".busy" + i, 0), completionOrder);
+        }
+        FlakyAgent quietAgent = new FlakyAgent(TAG + "." + name + ".quiet", 0);
+        futures[BUSY_AGENT_COUNT] = executeForScreen(agentExecutor, quietScreen, quietAgent, completionOrder);
+
+        AgentFuture.allOf(futures).get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        GroundControl.onDestroy(agentExecutor.getId(), busyScreen);
+        GroundControl.onDestroy(agentExecutor.getId(), quietScreen);
+        return completionOrder.indexOf(quietAgent.getUniqueIdentifier());
+    }
+
+    public void testQuietScreenIsNotStarved() throws InterruptedException, ExecutionException, TimeoutException {
+        assertTrue("Quiet screen waited behind the busy screen", getQuietScreenPosition(true) <= 1);
+    }
+
+    public void testStrictOrderWithoutFairShare() throws InterruptedException, ExecutionException, TimeoutException {
+        assertEquals("Jobs did not start in order", BUSY_AGENT_COUNT, getQuietScreenPosition(false));
+    }
+}
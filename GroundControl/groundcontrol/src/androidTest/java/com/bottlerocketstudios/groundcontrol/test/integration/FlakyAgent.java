@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.os.SystemClock;
+
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Agent which delivers a null result for a number of attempts before succeeding.
+ */
+public class FlakyAgent extends AbstractAgent<String, Void> {
+    public static final String SUCCESS = "success";
+
+    private final String mUniqueIdentifier;
+    private final int mFailureCount;
+    private final AtomicInteger mAttemptCount = new AtomicInteger();
+    private volatile long mLastAttemptTime;
+
+    public FlakyAgent(String uniqueIdentifier, int failureCount) {
+        mUniqueIdentifier = uniqueIdentifier;
+        mFailureCount = failureCount;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mUniqueIdentifier;
+    }
+
+    @Override
+    public void cancel() {}
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    public int getAttemptCount() {
+        return mAttemptCount.get();
+    }
+
+    public long getLastAttemptTime() {
+        return mLastAttemptTime;
+    }
+
+    @Override
+    public void run() {
+        mLastAttemptTime = SystemClock.uptimeMillis();
+        int attempt = mAttemptCount.incrementAndGet();
+        getAgentListener().onCompletion(getUniqueIdentifier(), attempt > mFailureCount ? SUCCESS : null);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+import com.bottlerocketstudios.groundcontrol.agent.Agent;
+import com.bottlerocketstudios.groundcontrol.agent.HedgeableAgent;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.Socket;
+
+/**
+ * Fetches a single line from a local server. Cancellation closes the socket.
+ */
+public class HedgeableFetchAgent extends AbstractAgent<String, Void> implements HedgeableAgent<String, Void> {
+
+    private static final int SOCKET_TIMEOUT_MS = 5000;
+
+    private final String mUniqueIdentifier;
+    private final int mPort;
+    private volatile Socket mSocket;
+    private volatile boolean mCancelled;
+
+    public HedgeableFetchAgent(String uniqueIdentifier, int port) {
+        mUniqueIdentifier = uniqueIdentifier;
+        mPort = port;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mUniqueIdentifier;
+    }
+
+    @Override
+    public Agent<String, Void> createHedge() {
+        return new HedgeableFetchAgent(mUniqueIdentifier, mPort);
+    }
+
+    @Override
+    public void cancel() {
+        mCancelled = true;
+        closeSocket();
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    @Override
+    public void run() {
+        String result = null;
+        try {
+            mSocket = new Socket("127.0.0.1", mPort);
+            mSocket.setSoTimeout(SOCKET_TIMEOUT_MS);
+            if (!mCancelled) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(mSocket.getInputStream(), "UTF-8"));
+                result = reader.readLine();
+            }
+        } catch (IOException e) {
+            //Cancelled or failed, deliver null.
+        } finally {
+            closeSocket();
+        }
+        getAgentListener().onCompletion(getUniqueIdentifier(), mCancelled ? null : result);
+    }
+
+    private void closeSocket() {
+        Socket socket = mSocket;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //Ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+import com.bottlerocketstudios.groundcontrol.agent.Agent;
+import com.bottlerocketstudios.groundcontrol.agent.HedgeableAgent;
+import com.bottlerocketstudios.groundcontrol.convenience.ExecutionBuilder;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HedgedExecutionTest extends AndroidTestCase {
+    private static final String TAG = HedgedExecutionTest.class.getSimpleName();
+
+    private static final long FAST_LATENCY_MS = 20;
+    private static final long SLOW_LATENCY_MS = 800;
+    private static final int SLOW_EVERY = 4;
+    private static final long HEDGE_DELAY_MS = 100;
+    private static final int REQUEST_COUNT = 20;
+    private static final int PERCENTILE = 99;
+    private static final long MAX_WAIT_MS = 3000;
+
+    private LatencyInjectingServer mServer;
+    private int mPort;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mServer = new LatencyInjectingServer(FAST_LATENCY_MS, SLOW_LATENCY_MS, SLOW_EVERY);
+        mPort = mServer.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mServer.stop();
+        super.tearDown();
+    }
+
+    public void testHedgingReducesTailLatency() throws InterruptedException, ExecutionException, TimeoutException, IOException {
+        long unhedgedP99 = measurePercentile("unhedged", false);
+        long hedgedP99 = measurePercentile("hedged", true);
+        Log.i(TAG, "p99 unhedged=" + unhedgedP99 + "ms hedged=" + hedgedP99 + "ms");
+
+        assertTrue("Unhedged run did not observe the slow tail", unhedgedP99 >= SLOW_LATENCY_MS);
+        assertTrue("Hedging did not reduce p99 latency", hedgedP99 < SLOW_LATENCY_MS / 2);
+    }
+
+    public void testLosingInstanceCancelled() throws InterruptedException, ExecutionException, TimeoutException {
+        //Make the next connection the slow one.
+        while ((mServer.getConnectionCount() + 1) % SLOW_EVERY != 0) {
+            GroundControl.agent(new HedgeableFetchAgent(TAG + ".warm" + mServer.getConnectionCount(), mPort)).bgDirectPolicy().executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+
+        HedgeableFetchAgent primaryAgent = new HedgeableFetchAgent(TAG + ".cancelLoser", mPort);
+        String result = GroundControl.agent(primaryAgent).bgDirectPolicy().hedge(HEDGE_DELAY_MS).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals("Hedge did not deliver", LatencyInjectingServer.RESPONSE, result);
+        assertTrue("Slow primary instance was not cancelled", primaryAgent.isCancelled());
+    }
+
+    public void testQueuedLosingHedgeNeverRuns() throws InterruptedException, ExecutionException, TimeoutException {
+        //With a single slot the hedge waits in the queue behind the primary it is hedging.
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + ".queuedHedge")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .build())
+                .build();
+
+        AtomicInteger runCounter = new AtomicInteger(0);
+        CountingHedgeableAgent primaryAgent = new CountingHedgeableAgent(TAG + ".queuedHedge", HEDGE_DELAY_MS * 3, runCounter);
+        String result = GroundControl.bgAgent(agentExecutor, primaryAgent).bgDirectPolicy().hedge(HEDGE_DELAY_MS).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("Primary did not deliver", CountingHedgeableAgent.RESULT, result);
+
+        TestUtils.safeSleep(HEDGE_DELAY_MS * 5);
+        assertEquals("Queued losing hedge was run", 1, runCounter.get());
+    }
+
+    private long measurePercentile(String mode, boolean hedge) throws InterruptedException, ExecutionException, TimeoutException {
+        long[] durations = new long[REQUEST_COUNT];
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            ExecutionBuilder<String, Void> executionBuilder = GroundControl.agent(new HedgeableFetchAgent(TAG + "." + mode + i, mPort)).bgDirectPolicy();
+            if (hedge) {
+                executionBuilder.hedge(HEDGE_DELAY_MS);
+            }
+
+            long start = SystemClock.uptimeMillis();
+            String result = executionBuilder.executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+            durations[i] = SystemClock.uptimeMillis() - start;
+            assertEquals("Fetch failed", LatencyInjectingServer.RESPONSE, result);
+        }
+
+        Arrays.sort(durations);
+        return durations[(int) Math.ceil(PERCENTILE / 100.0 * REQUEST_COUNT) - 1];
+    }
+
+    /**
+     * Counts every run across its hedges and ignores cancellation, as blocking work would.
+     */
+    private static class CountingHedgeableAgent extends AbstractAgent<String, Void> implements HedgeableAgent<String, Void> {
+        static final String RESULT = "counted";
+
+        private final String mUniqueIdentifier;
+        private final long mRunTimeMs;
+        private final AtomicInteger mRunCounter;
+
+        CountingHedgeableAgent(String uniqueIdentifier, long runTimeMs, AtomicInteger runCounter) {
+            mUniqueIdentifier = uniqueIdentifier;
+            mRunTimeMs = runTimeMs;
+            mRunCounter = runCounter;
+        }
+
+        @Override
+        public String getUniqueIdentifier() {
+            return mUniqueIdentifier;
+        }
+
+        @Override
+        public Agent<String, Void> createHedge() {
+            return new CountingHedgeableAgent(mUniqueIdentifier, mRunTimeMs, mRunCounter);
+        }
+
+        @Override
+        public void cancel() {}
+
+        @Override
+        public void onProgressUpdateRequested() {}
+
+        @Override
+        public void run() {
+            mRunCounter.incrementAndGet();
+            TestUtils.safeSleep(mRunTimeMs);
+            getAgentListener().onCompletion(getUniqueIdentifier(), RESULT);
+        }
+    }
+}
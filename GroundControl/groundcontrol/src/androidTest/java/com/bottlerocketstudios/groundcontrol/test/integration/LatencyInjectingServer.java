@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for a remote API. Every Nth connection is answered after a slow latency to simulate
+ * a long tail, all others after a fast latency.
+ */
+public class LatencyInjectingServer {
+    private static final String TAG = LatencyInjectingServer.class.getSimpleName();
+
+    public static final String RESPONSE = "OK";
+
+    private final long mFastLatencyMs;
+    private final long mSlowLatencyMs;
+    private final int mSlowEvery;
+    private final AtomicInteger mConnectionCount = new AtomicInteger(0);
+    private ServerSocket mServerSocket;
+
+    public LatencyInjectingServer(long fastLatencyMs, long slowLatencyMs, int slowEvery) {
+        mFastLatencyMs = fastLatencyMs;
+        mSlowLatencyMs = slowLatencyMs;
+        mSlowEvery = slowEvery;
+    }
+
+    public int start() throws IOException {
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                acceptConnections();
+            }
+        }, TAG);
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+        return mServerSocket.getLocalPort();
+    }
+
+    public void stop() {
+        try {
+            mServerSocket.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Caught java.io.IOException", e);
+        }
+    }
+
+    public int getConnectionCount() {
+        return mConnectionCount.get();
+    }
+
+    private void acceptConnections() {
+        while (!mServerSocket.isClosed()) {
+            try {
+                final Socket socket = mServerSocket.accept();
+                final long latencyMs = mConnectionCount.incrementAndGet() % mSlowEvery == 0 ? mSlowLatencyMs : mFastLatencyMs;
+                Thread responseThread = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        respond(socket, latencyMs);
+                    }
+                });
+                responseThread.setDaemon(true);
+                responseThread.start();
+            } catch (IOException e) {
+                //Server socket was closed.
+            }
+        }
+    }
+
+    private void respond(Socket socket, long latencyMs) {
+        try {
+            Thread.sleep(latencyMs);
+            OutputStream outputStream = socket.getOutputStream();
+            outputStream.write((RESPONSE + "\n").getBytes("UTF-8"));
+            outputStream.flush();
+        } catch (InterruptedException | IOException e) {
+            //Client went away.
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //Ignore
+            }
+        }
+    }
+}
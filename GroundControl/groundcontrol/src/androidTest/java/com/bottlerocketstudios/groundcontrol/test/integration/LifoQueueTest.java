@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.JobOrdering;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class LifoQueueTest extends AndroidTestCase {
+    private static final String TAG = LifoQueueTest.class.getSimpleName();
+
+    private static final int CHUNK_COUNT = 10;
+    private static final long CHUNK_TIME_MS = 50;
+    private static final long MAX_WAIT_MS = 5000;
+
+    public void testNewestRowsLoadFirstAndOldestAreDropped() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + ".rows")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .setJobOrdering(JobOrdering.LIFO)
+                        .setMaxQueuedJobs(2)
+                        .build())
+                .build();
+
+        ChunkedPrefetchAgent blockingAgent = new ChunkedPrefetchAgent(TAG + ".blocker", CHUNK_COUNT, CHUNK_TIME_MS);
+        AgentFuture<Integer> blockingFuture = GroundControl.bgAgent(agentExecutor, blockingAgent).bgDirectPolicy().executeAsFuture();
+        while (blockingAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+
+        FlakyAgent scrolledAwayAgent = new FlakyAgent(TAG + ".row1", 0);
+        FlakyAgent earlierAgent = new FlakyAgent(TAG + ".row2", 0);
+        FlakyAgent visibleAgent = new FlakyAgent(TAG + ".row3", 0);
+        AgentFuture<String> scrolledAwayFuture = GroundControl.bgAgent(agentExecutor, scrolledAwayAgent).bgDirectPolicy().disableCache().executeAsFuture();
+        AgentFuture<String> earlierFuture = GroundControl.bgAgent(agentExecutor, earlierAgent).bgDirectPolicy().disableCache().executeAsFuture();
+        AgentFuture<String> visibleFuture = GroundControl.bgAgent(agentExecutor, visibleAgent).bgDirectPolicy().disableCache().executeAsFuture();
+
+        //The oldest row is dropped as soon as the queue overflows rather than when its request times out.
+        assertNull("Dropped row received a result", scrolledAwayFuture.get(CHUNK_TIME_MS * 2, TimeUnit.MILLISECONDS));
+        assertFalse("Dropped row finished after the blocker", blockingFuture.isDone());
+        assertEquals("Dropped row was executed", 0, scrolledAwayAgent.getAttemptCount());
+
+        assertEquals("Visible row did not load", FlakyAgent.SUCCESS, visibleFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Earlier row did not load", FlakyAgent.SUCCESS, earlierFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertTrue("Newest row did not load first", visibleAgent.getLastAttemptTime() <= earlierAgent.getLastAttemptTime());
+    }
+
+    public void testDroppedDirectListenerIsNotCalledOnEnqueuingThread() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + ".droppedDirect")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .setMaxQueuedJobs(1)
+                        .build())
+                .build();
+
+        ChunkedPrefetchAgent blockingAgent = new ChunkedPrefetchAgent(TAG + ".droppedDirectBlocker", CHUNK_COUNT, CHUNK_TIME_MS);
+        GroundControl.bgAgent(agentExecutor, blockingAgent).bgDirectPolicy().executeAsFuture();
+        while (blockingAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+
+        final Thread[] completionThread = new Thread[1];
+        final CountDownLatch completionLatch = new CountDownLatch(1);
+        GroundControl.bgAgent(agentExecutor, new FlakyAgent(TAG + ".droppedDirect", 0)).bgDirectCallback(new FunctionalAgentListener<String, Void>() {
+            @Override
+            public void onCompletion(String agentIdentifier, String result) {
+                completionThread[0] = Thread.currentThread();
+                completionLatch.countDown();
+            }
+        }).disableCache().execute();
+
+        //Without the cache check this request is enqueued on the test thread and drops the direct request.
+        AgentFuture<String> newerFuture = GroundControl.bgAgent(agentExecutor, new FlakyAgent(TAG + ".droppedDirectNewer", 0)).bgDirectPolicy().disableCache().executeAsFuture();
+
+        assertTrue("Dropped request was not completed", completionLatch.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertNotSame("Dropped request was delivered on the enqueuing thread", Thread.currentThread(), completionThread[0]);
+        assertEquals("Newer request did not load", FlakyAgent.SUCCESS, newerFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class PrefetchTest extends AndroidTestCase {
+    private static final String TAG = PrefetchTest.class.getSimpleName();
+
+    private static final int CHUNK_COUNT = 10;
+    private static final long CHUNK_TIME_MS = 50;
+    private static final long MAX_WAIT_MS = 5000;
+
+    public void testPrefetchYieldsAndResumes() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + ".singleSlot")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .build())
+                .build();
+
+        ChunkedPrefetchAgent prefetchAgent = new ChunkedPrefetchAgent(TAG + ".prefetch", CHUNK_COUNT, CHUNK_TIME_MS);
+        AgentFuture<Integer> prefetchFuture = GroundControl.bgAgent(agentExecutor, prefetchAgent).bgDirectPolicy().priority(JobPriority.PREFETCH).executeAsFuture();
+        while (prefetchAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+
+        FlakyAgent userAgent = new FlakyAgent(TAG + ".user", 0);
+        String userResult = GroundControl.bgAgent(agentExecutor, userAgent).bgDirectPolicy().priority(JobPriority.HIGH).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("User agent did not run", FlakyAgent.SUCCESS, userResult);
+
+        assertEquals("Prefetch did not resume and complete every chunk once", Integer.valueOf(CHUNK_COUNT), prefetchFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertTrue("Prefetch did not yield", prefetchAgent.getYieldCount() >= 1);
+        assertTrue("User agent waited for prefetch to finish", userAgent.getLastAttemptTime() < prefetchAgent.getCompletionTime());
+    }
+
+    public void testPromotedPrefetchDoesNotYield() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + ".promoted")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(2)
+                        .build())
+                .build();
+
+        ChunkedPrefetchAgent prefetchAgent = new ChunkedPrefetchAgent(TAG + ".promotedPrefetch", CHUNK_COUNT, CHUNK_TIME_MS);
+        AgentFuture<Integer> prefetchFuture = GroundControl.bgAgent(agentExecutor, prefetchAgent).bgDirectPolicy().priority(JobPriority.PREFETCH).executeAsFuture();
+        while (prefetchAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+
+        //The user now needs the prefetched data, the coalesced request promotes it.
+        AgentFuture<Integer> userFuture = GroundControl.bgAgent(agentExecutor, new ChunkedPrefetchAgent(TAG + ".promotedPrefetch", CHUNK_COUNT, CHUNK_TIME_MS)).bgDirectPolicy().priority(JobPriority.HIGH).executeAsFuture();
+        GroundControl.bgAgent(agentExecutor, new FlakyAgent(TAG + ".other", 0)).bgDirectPolicy().priority(JobPriority.NORMAL).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals("Promoted prefetch did not complete", Integer.valueOf(CHUNK_COUNT), userFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Prefetch request did not receive the result", Integer.valueOf(CHUNK_COUNT), prefetchFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Promoted prefetch yielded", 0, prefetchAgent.getYieldCount());
+    }
+
+    public void testQueuedYieldIsNotCancelled() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + ".queuedYield")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .build())
+                .build();
+
+        ChunkedPrefetchAgent prefetchAgent = new ChunkedPrefetchAgent(TAG + ".queuedYieldPrefetch", 4, CHUNK_TIME_MS);
+        prefetchAgent.setCancelTimeoutMs(400);
+        AgentFuture<Integer> prefetchFuture = GroundControl.bgAgent(agentExecutor, prefetchAgent).bgDirectPolicy().priority(JobPriority.PREFETCH).executeAsFuture();
+        while (prefetchAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+
+        //Foreground work keeps the yielded prefetch queued for longer than its cancel timeout.
+        ChunkedPrefetchAgent userAgent = new ChunkedPrefetchAgent(TAG + ".queuedYieldUser", 20, CHUNK_TIME_MS);
+        GroundControl.bgAgent(agentExecutor, userAgent).bgDirectPolicy().priority(JobPriority.HIGH).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        assertEquals("Queued prefetch was cancelled", Integer.valueOf(4), prefetchFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertTrue("Prefetch did not yield", prefetchAgent.getYieldCount() >= 1);
+    }
+
+    public void testPrefetchDeliveryDoesNotWaitForIdleListeners() throws InterruptedException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + ".delivery").build();
+
+        //A slow parallel callback keeps the listener pool busy while the prefetch result is delivered.
+        final CountDownLatch slowListenerLatch = new CountDownLatch(1);
+        GroundControl.bgAgent(agentExecutor, new FlakyAgent(TAG + ".slowListener", 0)).bgParallelCallback(new FunctionalAgentListener<String, Void>() {
+            @Override
+            public void onCompletion(String agentIdentifier, String result) {
+                slowListenerLatch.countDown();
+                TestUtils.safeSleep(MAX_WAIT_MS);
+            }
+        }).execute();
+        assertTrue("Slow listener was not called", slowListenerLatch.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+
+        final CountDownLatch prefetchLatch = new CountDownLatch(1);
+        GroundControl.bgAgent(agentExecutor, new FlakyAgent(TAG + ".deliveredPrefetch", 0)).bgParallelCallback(new FunctionalAgentListener<String, Void>() {
+            @Override
+            public void onCompletion(String agentIdentifier, String result) {
+                prefetchLatch.countDown();
+            }
+        }).priority(JobPriority.PREFETCH).execute();
+
+        assertTrue("Prefetch result waited for the listener pool to be idle", prefetchLatch.await(MAX_WAIT_MS / 2, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+import com.bottlerocketstudios.groundcontrol.policy.RetryPolicy;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class RetryTest extends AndroidTestCase {
+    private static final String TAG = RetryTest.class.getSimpleName();
+
+    private static final long RETRY_DELAY_MS = 300;
+    private static final long MAX_WAIT_MS = 5000;
+
+    private RetryPolicy createRetryPolicy(int maxAttempts) {
+        return RetryPolicy.builder()
+                .setMaxAttempts(maxAttempts)
+                .setInitialDelayMs(RETRY_DELAY_MS)
+                .setJitterRatio(0.0f)
+                .build();
+    }
+
+    public void testRetriesUntilSuccess() throws InterruptedException, ExecutionException, TimeoutException {
+        FlakyAgent flakyAgent = new FlakyAgent(TAG + ".success", 2);
+        long start = SystemClock.uptimeMillis();
+        String result = GroundControl.agent(flakyAgent).bgDirectPolicy().retry(createRetryPolicy(3)).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        long duration = SystemClock.uptimeMillis() - start;
+
+        assertEquals("Retry did not deliver success", FlakyAgent.SUCCESS, result);
+        assertEquals("Wrong number of attempts", 3, flakyAgent.getAttemptCount());
+        assertTrue("Backoff was not applied", duration >= RETRY_DELAY_MS * 3);
+    }
+
+    public void testGivesUpAfterMaxAttempts() throws InterruptedException, ExecutionException, TimeoutException {
+        FlakyAgent flakyAgent = new FlakyAgent(TAG + ".exhausted", 5);
+        String result = GroundControl.agent(flakyAgent).bgDirectPolicy().retry(createRetryPolicy(3)).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        assertNull("Failed result was not delivered", result);
+        assertEquals("Wrong number of attempts", 3, flakyAgent.getAttemptCount());
+    }
+
+    public void testCoalescedRequestReceivesRetriedResult() throws InterruptedException, ExecutionException, TimeoutException {
+        FlakyAgent flakyAgent = new FlakyAgent(TAG + ".coalesced", 1);
+        AgentFuture<String> first = GroundControl.agent(flakyAgent).bgDirectPolicy().retry(createRetryPolicy(3)).executeAsFuture();
+        AgentFuture<String> second = GroundControl.agent(new FlakyAgent(TAG + ".coalesced", 0)).bgDirectPolicy().executeAsFuture();
+
+        assertEquals("First request did not receive retried result", FlakyAgent.SUCCESS, first.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Coalesced request did not receive retried result", FlakyAgent.SUCCESS, second.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Wrong number of attempts", 2, flakyAgent.getAttemptCount());
+    }
+
+    public void testBackoffReleasesWorker() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + ".singleSlot")
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .build())
+                .build();
+
+        FlakyAgent flakyAgent = new FlakyAgent(TAG + ".release", 1);
+        AgentFuture<String> retriedFuture = GroundControl.bgAgent(agentExecutor, flakyAgent).bgDirectPolicy().retry(createRetryPolicy(2)).executeAsFuture();
+        while (flakyAgent.getAttemptCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        FlakyAgent otherAgent = new FlakyAgent(TAG + ".other", 0);
+        String otherResult = GroundControl.bgAgent(agentExecutor, otherAgent).bgDirectPolicy().executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("Other agent did not run", FlakyAgent.SUCCESS, otherResult);
+        assertEquals("Other agent waited for the backoff to finish", 1, flakyAgent.getAttemptCount());
+
+        assertEquals("Retry did not deliver success", FlakyAgent.SUCCESS, retriedFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertTrue("Other agent did not run during the backoff", otherAgent.getLastAttemptTime() < flakyAgent.getLastAttemptTime());
+    }
+
+    public void testDeadlineStopsRetry() throws InterruptedException, ExecutionException, TimeoutException {
+        FlakyAgent flakyAgent = new FlakyAgent(TAG + ".deadline", 5);
+        String result = GroundControl.agent(flakyAgent).bgDirectPolicy().timeout(RETRY_DELAY_MS / 2).retry(createRetryPolicy(5)).executeAsFuture().get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        assertNull("Failed result was not delivered", result);
+        assertEquals("Retry was scheduled past the request deadline", 1, flakyAgent.getAttemptCount());
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
+import com.bottlerocketstudios.groundcontrol.policy.AgentPolicy;
+import com.bottlerocketstudios.groundcontrol.policy.StandardAgentPolicyBuilder;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ShardedSerialCallbackTest extends AndroidTestCase {
+    private static final String TAG = ShardedSerialCallbackTest.class.getSimpleName();
+
+    private static final int LANE_COUNT = 4;
+    private static final int AGENT_COUNT = 16;
+    private static final int PROGRESS_COUNT = 25;
+    private static final long SLOW_LISTENER_MS = 20;
+
+    private AgentPolicy createPolicy(int laneCount, String orderingKey) {
+        return (new StandardAgentPolicyBuilder())
+                .setCallbackLooperId(AgentExecutor.getDefault().getBackgroundLooperId())
+                .setSerialCallbackLaneCount(laneCount)
+                .setCallbackOrderingKey(orderingKey)
+                .build();
+    }
+
+    public void testOrderingPerKey() throws InterruptedException {
+        AgentPolicy shardedPolicy = createPolicy(LANE_COUNT, null);
+
+        final Map<String, List<Integer>> deliveryMap = Collections.synchronizedMap(new HashMap<String, List<Integer>>());
+        final Set<Thread> callbackThreadSet = Collections.synchronizedSet(new HashSet<Thread>());
+        final CountDownLatch completionLatch = new CountDownLatch(AGENT_COUNT);
+
+        for (int i = 0; i < AGENT_COUNT; i++) {
+            String agentIdentifier = "shardedOrdering" + i;
+            deliveryMap.put(agentIdentifier, Collections.synchronizedList(new ArrayList<Integer>()));
+            AgentExecutor.getDefault().runAgent(new ThreadRecordingAgent(agentIdentifier, PROGRESS_COUNT), shardedPolicy, new AgentListener<String, Integer>() {
+                @Override
+                public void onCompletion(String agentIdentifier, String result) {
+                    callbackThreadSet.add(Thread.currentThread());
+                    deliveryMap.get(agentIdentifier).add(PROGRESS_COUNT);
+                    completionLatch.countDown();
+                }
+
+                @Override
+                public void onProgress(String agentIdentifier, Integer progress) {
+                    callbackThreadSet.add(Thread.currentThread());
+                    deliveryMap.get(agentIdentifier).add(progress);
+                }
+            });
+        }
+
+        assertTrue("Not all agents completed", completionLatch.await(5, TimeUnit.SECONDS));
+        for (Map.Entry<String, List<Integer>> entry : deliveryMap.entrySet()) {
+            List<Integer> deliveryList = entry.getValue();
+            assertEquals("Missing deliveries for " + entry.getKey(), PROGRESS_COUNT + 1, deliveryList.size());
+            for (int i = 0; i < deliveryList.size(); i++) {
+                assertEquals("Out of order delivery for " + entry.getKey(), Integer.valueOf(i), deliveryList.get(i));
+            }
+        }
+        assertTrue("Callbacks were not spread across lanes", callbackThreadSet.size() > 1);
+        assertTrue("Callbacks used more threads than lanes", callbackThreadSet.size() <= LANE_COUNT);
+    }
+
+    public void testSharedOrderingKey() throws InterruptedException {
+        AgentPolicy shardedPolicy = createPolicy(LANE_COUNT, "sharedOrderingKey");
+
+        final Set<Thread> callbackThreadSet = Collections.synchronizedSet(new HashSet<Thread>());
+        final CountDownLatch completionLatch = new CountDownLatch(AGENT_COUNT);
+        for (int i = 0; i < AGENT_COUNT; i++) {
+            AgentExecutor.getDefault().runAgent(new ThreadRecordingAgent("sharedKey" + i, 0), shardedPolicy, new AgentListener<String, Integer>() {
+                @Override
+                public void onCompletion(String agentIdentifier, String result) {
+                    callbackThreadSet.add(Thread.currentThread());
+                    completionLatch.countDown();
+                }
+
+                @Override
+                public void onProgress(String agentIdentifier, Integer progress) {}
+            });
+        }
+
+        assertTrue("Not all agents completed", completionLatch.await(5, TimeUnit.SECONDS));
+        assertEquals("Shared ordering key was delivered on multiple lanes", 1, callbackThreadSet.size());
+    }
+
+    public void testShardedThroughput() throws InterruptedException {
+        long serialMs = deliverToSlowListeners(createPolicy(1, null), "serialThroughput");
+        long shardedMs = deliverToSlowListeners(createPolicy(LANE_COUNT, null), "shardedThroughput");
+
+        Log.i(TAG, "Delivered " + AGENT_COUNT + " slow callbacks serially in " + serialMs + "ms and across " + LANE_COUNT + " lanes in " + shardedMs + "ms");
+        assertTrue("Sharded delivery was not faster than a single looper", shardedMs < serialMs);
+    }
+
+    private long deliverToSlowListeners(AgentPolicy agentPolicy, String agentIdentifierPrefix) throws InterruptedException {
+        final CountDownLatch completionLatch = new CountDownLatch(AGENT_COUNT);
+        long startTime = SystemClock.uptimeMillis();
+        for (int i = 0; i < AGENT_COUNT; i++) {
+            AgentExecutor.getDefault().runAgent(new ThreadRecordingAgent(agentIdentifierPrefix + i, 0), agentPolicy, new AgentListener<String, Integer>() {
+                @Override
+                public void onCompletion(String agentIdentifier, String result) {
+                    TestUtils.safeSleep(SLOW_LISTENER_MS);
+                    completionLatch.countDown();
+                }
+
+                @Override
+                public void onProgress(String agentIdentifier, Integer progress) {}
+            });
+        }
+        assertTrue("Not all agents completed", completionLatch.await(10, TimeUnit.SECONDS));
+        return SystemClock.uptimeMillis() - startTime;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SlotSupersessionTest extends AndroidTestCase {
+    private static final String TAG = SlotSupersessionTest.class.getSimpleName();
+
+    private static final int CHUNK_COUNT = 6;
+    private static final long CHUNK_TIME_MS = 50;
+    private static final long MAX_WAIT_MS = 5000;
+
+    private AgentExecutor createSingleSlotExecutor(String name) throws InterruptedException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + "." + name)
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .build())
+                .build();
+
+        ChunkedPrefetchAgent blockingAgent = new ChunkedPrefetchAgent(TAG + "." + name + ".blocker", CHUNK_COUNT, CHUNK_TIME_MS);
+        GroundControl.bgAgent(agentExecutor, blockingAgent).bgDirectPolicy().executeAsFuture();
+        while (blockingAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+        return agentExecutor;
+    }
+
+    public void testReboundSlotRemovesQueuedAgent() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = createSingleSlotExecutor("rebound");
+        Object rowView = new Object();
+
+        FlakyAgent previousRowAgent = new FlakyAgent(TAG + ".row1", 0);
+        GroundControl.bgAgent(agentExecutor, previousRowAgent).bgDirectPolicy().disableCache().slotKey(rowView).executeAsFuture();
+        assertTrue("Agent was not queued", agentExecutor.hasStartedAgent(previousRowAgent.getUniqueIdentifier()));
+
+        FlakyAgent currentRowAgent = new FlakyAgent(TAG + ".row2", 0);
+        AgentFuture<String> currentFuture = GroundControl.bgAgent(agentExecutor, currentRowAgent).bgDirectPolicy().disableCache().slotKey(rowView).executeAsFuture();
+        assertFalse("Superseded agent was not removed", agentExecutor.hasStartedAgent(previousRowAgent.getUniqueIdentifier()));
+
+        assertEquals("Current row did not load", FlakyAgent.SUCCESS, currentFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Superseded agent reached a worker thread", 0, previousRowAgent.getAttemptCount());
+    }
+
+    public void testSharedAgentIsNotRemoved() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = createSingleSlotExecutor("shared");
+        Object rowView = new Object();
+
+        FlakyAgent sharedAgent = new FlakyAgent(TAG + ".shared", 0);
+        GroundControl.bgAgent(agentExecutor, sharedAgent).bgDirectPolicy().disableCache().slotKey(rowView).executeAsFuture();
+        AgentFuture<String> headerFuture = GroundControl.bgAgent(agentExecutor, new FlakyAgent(TAG + ".shared", 0)).bgDirectPolicy().disableCache().executeAsFuture();
+
+        AgentFuture<String> currentFuture = GroundControl.bgAgent(agentExecutor, new FlakyAgent(TAG + ".sharedRow2", 0)).bgDirectPolicy().disableCache().slotKey(rowView).executeAsFuture();
+        assertTrue("Agent with another waiting request was removed", agentExecutor.hasStartedAgent(sharedAgent.getUniqueIdentifier()));
+
+        assertEquals("Other request did not receive the result", FlakyAgent.SUCCESS, headerFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+        assertEquals("Current row did not load", FlakyAgent.SUCCESS, currentFuture.get(MAX_WAIT_MS, TimeUnit.MILLISECONDS));
+    }
+}
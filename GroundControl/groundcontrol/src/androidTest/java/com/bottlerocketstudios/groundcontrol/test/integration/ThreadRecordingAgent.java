@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+
+/**
+ * Records the thread it ran on then delivers the requested number of progress updates followed
+ * by completion with the name of that thread.
+ */
+public class ThreadRecordingAgent extends AbstractAgent<String, Integer> {
+
+    private final String mUniqueIdentifier;
+    private final int mProgressCount;
+    private volatile Thread mRunThread;
+
+    public ThreadRecordingAgent(String uniqueIdentifier, int progressCount) {
+        mUniqueIdentifier = uniqueIdentifier;
+        mProgressCount = progressCount;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mUniqueIdentifier;
+    }
+
+    @Override
+    public void cancel() {}
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    public Thread getRunThread() {
+        return mRunThread;
+    }
+
+    @Override
+    public void run() {
+        mRunThread = Thread.currentThread();
+        for (int i = 0; i < mProgressCount; i++) {
+            getAgentListener().onProgress(getUniqueIdentifier(), i);
+        }
+        getAgentListener().onCompletion(getUniqueIdentifier(), mRunThread.getName());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.integration;
+
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.executor.StandardPriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+import com.bottlerocketstudios.groundcontrol.future.ResultConsumer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class UiLifecyclePriorityTest extends AndroidTestCase {
+    private static final String TAG = UiLifecyclePriorityTest.class.getSimpleName();
+
+    private static final int CHUNK_COUNT = 6;
+    private static final long CHUNK_TIME_MS = 50;
+    private static final long MAX_WAIT_MS = 5000;
+
+    private AgentExecutor createSingleSlotExecutor(String name) throws InterruptedException {
+        return createSingleSlotExecutor(name, 0, CHUNK_COUNT);
+    }
+
+    private AgentExecutor createSingleSlotExecutor(String name, long priorityAgingMs, int blockingChunkCount) throws InterruptedException {
+        AgentExecutor agentExecutor = AgentExecutor.builder(TAG + "." + name)
+                .setAgentExecutorService(StandardPriorityQueueingPoolExecutorService.builder()
+                        .setMaxSimultaneousJobs(1)
+                        .setPriorityAgingMs(priorityAgingMs)
+                        .build())
+                .build();
+
+        ChunkedPrefetchAgent blockingAgent = new ChunkedPrefetchAgent(TAG + "." + name + ".blocker", blockingChunkCount, CHUNK_TIME_MS);
+        GroundControl.bgAgent(agentExecutor, blockingAgent).bgDirectPolicy().executeAsFuture();
+        while (blockingAgent.getCompletedChunks() == 0) {
+            Thread.sleep(10);
+        }
+        return agentExecutor;
+    }
+
+    private AgentFuture<Void> executeForScreen(AgentExecutor agentExecutor, Object screen, FlakyAgent agent, final List<String> completionOrder) {
+        final String agentIdentifier = agent.getUniqueIdentifier();
+        return GroundControl.uiAgent(agentExecutor.getId(), screen, agent).bgDirectPolicy().disableCache().executeAsFuture()
+                .thenAccept(new ResultConsumer<String>() {
+                    @Override
+                    public void accept(String result) {
+                        completionOrder.add(agentIdentifier);
+                    }
+                });
+    }
+
+    public void testPausedScreenYieldsToForeground() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = createSingleSlotExecutor("paused");
+        Object backgroundScreen = new Object();
+        Object foregroundScreen = new Object();
+        List<String> completionOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        FlakyAgent backgroundAgent = new FlakyAgent(TAG + ".pausedBackground", 0);
+        FlakyAgent foregroundAgent = new FlakyAgent(TAG + ".pausedForeground", 0);
+        AgentFuture<Void> backgroundFuture = executeForScreen(agentExecutor, backgroundScreen, backgroundAgent, completionOrder);
+        AgentFuture<Void> foregroundFuture = executeForScreen(agentExecutor, foregroundScreen, foregroundAgent, completionOrder);
+
+        GroundControl.onPause(agentExecutor.getId(), backgroundScreen);
+        assertEquals("Paused agent was not demoted", JobPriority.LOW, agentExecutor.getAgentPriority(backgroundAgent.getUniqueIdentifier()));
+
+        AgentFuture.allOf(backgroundFuture, foregroundFuture).get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("Foreground agent did not run first", foregroundAgent.getUniqueIdentifier(), completionOrder.get(0));
+
+        GroundControl.onDestroy(agentExecutor.getId(), backgroundScreen);
+        GroundControl.onDestroy(agentExecutor.getId(), foregroundScreen);
+    }
+
+    public void testResumeRestoresPriority() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = createSingleSlotExecutor("resumed");
+        Object firstScreen = new Object();
+        Object secondScreen = new Object();
+        List<String> completionOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        FlakyAgent firstAgent = new FlakyAgent(TAG + ".resumedFirst", 0);
+        FlakyAgent secondAgent = new FlakyAgent(TAG + ".resumedSecond", 0);
+        AgentFuture<Void> firstFuture = executeForScreen(agentExecutor, firstScreen, firstAgent, completionOrder);
+        AgentFuture<Void> secondFuture = executeForScreen(agentExecutor, secondScreen, secondAgent, completionOrder);
+
+        GroundControl.onPause(agentExecutor.getId(), firstScreen);
+        GroundControl.onResume(agentExecutor.getId(), firstScreen);
+        assertEquals("Resumed agent was not promoted", JobPriority.NORMAL, agentExecutor.getAgentPriority(firstAgent.getUniqueIdentifier()));
+
+        AgentFuture.allOf(firstFuture, secondFuture).get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("Resumed agent lost its place", firstAgent.getUniqueIdentifier(), completionOrder.get(0));
+
+        GroundControl.onDestroy(agentExecutor.getId(), firstScreen);
+        GroundControl.onDestroy(agentExecutor.getId(), secondScreen);
+    }
+
+    public void testSharedAgentIsNotDemoted() throws InterruptedException, ExecutionException, TimeoutException {
+        AgentExecutor agentExecutor = createSingleSlotExecutor("shared");
+        Object backgroundScreen = new Object();
+        Object foregroundScreen = new Object();
+        List<String> completionOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        FlakyAgent sharedAgent = new FlakyAgent(TAG + ".shared", 0);
+        AgentFuture<Void> backgroundFuture = executeForScreen(agentExecutor, backgroundScreen, sharedAgent, completionOrder);
+        AgentFuture<Void> foregroundFuture = executeForScreen(agentExecutor, foregroundScreen, new FlakyAgent(TAG + ".shared", 0), completionOrder);
+
+        GroundControl.onPause(agentExecutor.getId(), backgroundScreen);
+        assertEquals("Agent needed by the foreground was demoted", JobPriority.NORMAL, agentExecutor.getAgentPriority(sharedAgent.getUniqueIdentifier()));
+
+        AgentFuture.allOf(backgroundFuture, foregroundFuture).get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+
+        GroundControl.onDestroy(agentExecutor.getId(), backgroundScreen);
+        GroundControl.onDestroy(agentExecutor.getId(), foregroundScreen);
+    }
+
+    public void testPausedScreenIsNotAgedPastForeground() throws InterruptedException, ExecutionException, TimeoutException {
+        //The slot frees after about 2250ms, when the foreground agent has aged to HIGH and the paused one only to NORMAL.
+        AgentExecutor agentExecutor = createSingleSlotExecutor("aging", 1000, 46);
+        Object backgroundScreen = new Object();
+        Object foregroundScreen = new Object();
+        List<String> completionOrder = Collections.synchronizedList(new ArrayList<String>());
+
+        FlakyAgent backgroundAgent = new FlakyAgent(TAG + ".agingBackground", 0);
+        FlakyAgent foregroundAgent = new FlakyAgent(TAG + ".agingForeground", 0);
+        AgentFuture<Void> backgroundFuture = executeForScreen(agentExecutor, backgroundScreen, backgroundAgent, completionOrder);
+        AgentFuture<Void> foregroundFuture = executeForScreen(agentExecutor, foregroundScreen, foregroundAgent, completionOrder);
+
+        //Pause halfway through the first aging interval so the demoted agent must wait a full interval again.
+        Thread.sleep(500);
+        GroundControl.onPause(agentExecutor.getId(), backgroundScreen);
+
+        AgentFuture.allOf(backgroundFuture, foregroundFuture).get(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        assertEquals("Paused agent was aged past the foreground agent", foregroundAgent.getUniqueIdentifier(), completionOrder.get(0));
+
+        GroundControl.onDestroy(agentExecutor.getId(), backgroundScreen);
+        GroundControl.onDestroy(agentExecutor.getId(), foregroundScreen);
+    }
+}
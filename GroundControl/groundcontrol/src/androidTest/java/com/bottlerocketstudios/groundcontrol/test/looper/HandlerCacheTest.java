@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.looper;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import com.bottlerocketstudios.groundcontrol.looper.HandlerCache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class HandlerCacheTest extends AndroidTestCase {
+    private static final String TAG = HandlerCacheTest.class.getSimpleName();
+
+    private static final int THREAD_COUNT = 8;
+    private static final int DELIVERIES_PER_THREAD = 20000;
+    private static final String[] LOOPER_IDS = {"HCTID1", "HCTID2", "HCTID3", "HCTID4"};
+
+    public void testSameHandlerReturned() {
+        HandlerCache handlerCache = new HandlerCache();
+        Handler handler = handlerCache.getHandler("HCTSame");
+        assertSame("Different handler returned for the same looperId", handler, handlerCache.getHandler("HCTSame"));
+        handlerCache.stopHandler("HCTSame");
+        assertNotSame("Stopped handler was returned", handler, handlerCache.getHandler("HCTSame"));
+        handlerCache.stopHandler("HCTSame");
+    }
+
+    public void testLaneHandlersStopped() {
+        HandlerCache handlerCache = new HandlerCache();
+        Handler laneHandler = handlerCache.getLaneHandler("HCTLanes", "key", 4);
+        assertSame("Different lane handler returned for the same key", laneHandler, handlerCache.getLaneHandler("HCTLanes", "key", 4));
+        handlerCache.stopHandler("HCTLanes");
+        assertNotSame("Lane handler was not stopped with its looperId", laneHandler, handlerCache.getLaneHandler("HCTLanes", "key", 4));
+        handlerCache.stopHandler("HCTLanes");
+    }
+
+    public void testMultithreadedDelivery() throws InterruptedException {
+        final HandlerCache handlerCache = new HandlerCache();
+        //Warm up the loopers so the benchmark measures the lookup path.
+        for (String looperId : LOOPER_IDS) {
+            handlerCache.getHandler(looperId);
+        }
+
+        final AtomicInteger deliveryCount = new AtomicInteger();
+        final CountDownLatch deliveryLatch = new CountDownLatch(THREAD_COUNT * DELIVERIES_PER_THREAD);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final Runnable deliveryRunnable = new Runnable() {
+            @Override
+            public void run() {
+                deliveryCount.incrementAndGet();
+                deliveryLatch.countDown();
+            }
+        };
+
+        final CountDownLatch postLatch = new CountDownLatch(THREAD_COUNT);
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final int threadNumber = i;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                    } catch (InterruptedException e) {
+                        Log.e(TAG, "Caught java.lang.InterruptedException", e);
+                    }
+                    for (int j = 0; j < DELIVERIES_PER_THREAD; j++) {
+                        handlerCache.getHandler(LOOPER_IDS[(threadNumber + j) % LOOPER_IDS.length]).post(deliveryRunnable);
+                    }
+                    postLatch.countDown();
+                }
+            }.start();
+        }
+
+        long startTime = SystemClock.uptimeMillis();
+        startLatch.countDown();
+        assertTrue("Posting did not finish", postLatch.await(30, TimeUnit.SECONDS));
+        long postDurationMs = SystemClock.uptimeMillis() - startTime;
+        assertTrue("Deliveries did not finish", deliveryLatch.await(30, TimeUnit.SECONDS));
+        long deliveryDurationMs = SystemClock.uptimeMillis() - startTime;
+
+        int totalDeliveries = THREAD_COUNT * DELIVERIES_PER_THREAD;
+        Log.i(TAG, "Posted " + totalDeliveries + " deliveries from " + THREAD_COUNT + " threads in " + postDurationMs + "ms, delivered in " + deliveryDurationMs + "ms");
+        assertEquals("Deliveries were lost", totalDeliveries, deliveryCount.get());
+
+        for (String looperId : LOOPER_IDS) {
+            handlerCache.stopHandler(looperId);
+        }
+    }
+}
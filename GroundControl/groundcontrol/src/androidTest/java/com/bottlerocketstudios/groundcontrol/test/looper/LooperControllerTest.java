@@ -15,7 +15,10 @@
 
 package com.bottlerocketstudios.groundcontrol.test.looper;
 
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Process;
+import android.os.SystemClock;
 import android.test.AndroidTestCase;
 import android.util.Log;
 
@@ -25,6 +28,7 @@ import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
 import com.bottlerocketstudios.groundcontrol.looper.LooperController;
 import com.bottlerocketstudios.groundcontrol.policy.AgentPolicy;
 import com.bottlerocketstudios.groundcontrol.policy.StandardAgentPolicyBuilder;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -67,6 +71,46 @@ public class LooperControllerTest extends AndroidTestCase {
         assertTrue("Did not throw an exception with too low of a priority", exceptionThrown);
     }
 
+    public void testLooperCreation() throws InterruptedException {
+        Looper looper = LooperController.getLooper("LCTCreation", Process.THREAD_PRIORITY_BACKGROUND);
+        assertNotNull("Looper was not created", looper);
+
+        final CountDownLatch executionLatch = new CountDownLatch(1);
+        new Handler(looper).post(new Runnable() {
+            @Override
+            public void run() {
+                executionLatch.countDown();
+            }
+        });
+        assertTrue("Looper did not execute posted runnable", executionLatch.await(1, TimeUnit.SECONDS));
+        LooperController.stopLooper("LCTCreation");
+    }
+
+    public void testWarmLooperClaim() throws InterruptedException {
+        LooperController.prewarmLoopers(1, Process.THREAD_PRIORITY_LOWEST);
+        //Allow the warm looper thread to start.
+        TestUtils.safeSleep(100);
+
+        long claimStart = SystemClock.uptimeMillis();
+        Looper looper = LooperController.getLooper("LCTWarm", Process.THREAD_PRIORITY_LOWEST);
+        long claimDurationMs = SystemClock.uptimeMillis() - claimStart;
+        assertNotNull("Warm looper was not claimed", looper);
+        Log.i(TAG, "Claimed warm looper in " + claimDurationMs + "ms");
+
+        final TestUtils.Container<Integer> threadPriority = new TestUtils.Container<>(null);
+        new Handler(looper).post(new Runnable() {
+            @Override
+            public void run() {
+                threadPriority.setValue(Process.getThreadPriority(Process.myTid()));
+            }
+        });
+        TestUtils.blockUntilNotNullOrTimeout(threadPriority, 5, 1000);
+        assertEquals("Warm looper had wrong thread priority", Integer.valueOf(Process.THREAD_PRIORITY_LOWEST), threadPriority.getValue());
+
+        LooperController.stopLooper("LCTWarm");
+        LooperController.prewarmLoopers(0, Process.THREAD_PRIORITY_LOWEST);
+    }
+
     public void testThreadSafety() {
         String[] looperIds = {
                 "LCTID1",
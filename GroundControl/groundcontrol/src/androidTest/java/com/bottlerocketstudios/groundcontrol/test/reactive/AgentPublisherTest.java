@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.reactive;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.reactive.AgentEvent;
+import com.bottlerocketstudios.groundcontrol.reactive.AgentPublisher;
+import com.bottlerocketstudios.groundcontrol.reactive.Subscriber;
+import com.bottlerocketstudios.groundcontrol.reactive.Subscription;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+import com.bottlerocketstudios.groundcontrol.test.integration.SynchronousAgent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AgentPublisherTest extends AndroidTestCase {
+    private static final String TAG = AgentPublisherTest.class.getSimpleName();
+
+    private static final long EXECUTION_TIME_MS = 300;
+    private static final long MAX_WAIT_MS = 3000;
+
+    private AgentPublisher<String, Float> createPublisher(SynchronousAgent agent) {
+        return new AgentPublisher<>(GroundControl.agent(agent).bgDirectPolicy());
+    }
+
+    public void testUnboundedDemandReceivesProgressAndResult() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        createPublisher(new SynchronousAgent(TAG + ".unbounded", EXECUTION_TIME_MS)).subscribe(subscriber);
+
+        assertTrue("Publisher did not complete", subscriber.awaitTermination());
+        List<AgentEvent<String, Float>> eventList = subscriber.getEventList();
+        assertTrue("Progress was not published", eventList.size() > 2);
+        AgentEvent<String, Float> lastEvent = eventList.get(eventList.size() - 1);
+        assertTrue("Last event was not the result", lastEvent.isResult());
+        assertTrue("Wrong result", lastEvent.getResult().startsWith("Finished"));
+        assertNull("Unexpected error", subscriber.getError());
+    }
+
+    public void testDemandThrottlesProgress() throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(1);
+        createPublisher(new SynchronousAgent(TAG + ".throttled", EXECUTION_TIME_MS)).subscribe(subscriber);
+
+        TestUtils.safeSleep(EXECUTION_TIME_MS * 2);
+        assertEquals("More events than demanded were published", 1, subscriber.getEventList().size());
+        assertFalse("Completed without demand for the result", subscriber.isTerminated());
+
+        subscriber.request(1);
+        assertTrue("Publisher did not complete", subscriber.awaitTermination());
+        List<AgentEvent<String, Float>> eventList = subscriber.getEventList();
+        assertEquals("Stale progress was not discarded", 2, eventList.size());
+        assertFalse("First event was not progress", eventList.get(0).isResult());
+        assertTrue("Second event was not the result", eventList.get(1).isResult());
+    }
+
+    public void testCancelCancelsAgent() throws InterruptedException {
+        SynchronousAgent agent = new SynchronousAgent(TAG + ".cancel", EXECUTION_TIME_MS * 10);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        createPublisher(agent).subscribe(subscriber);
+
+        long start = SystemClock.uptimeMillis();
+        while (subscriber.getEventList().isEmpty() && SystemClock.uptimeMillis() - start < MAX_WAIT_MS) {
+            Thread.sleep(10);
+        }
+        subscriber.cancel();
+
+        start = SystemClock.uptimeMillis();
+        while (!agent.isCanceled() && SystemClock.uptimeMillis() - start < MAX_WAIT_MS) {
+            Thread.sleep(10);
+        }
+        assertTrue("Agent was not cancelled", agent.isCanceled());
+        TestUtils.safeSleep(EXECUTION_TIME_MS);
+        assertFalse("Signals were sent after cancellation", subscriber.isTerminated());
+    }
+
+    public void testSecondSubscriberRejected() throws InterruptedException {
+        AgentPublisher<String, Float> publisher = createPublisher(new SynchronousAgent(TAG + ".single", EXECUTION_TIME_MS));
+        RecordingSubscriber firstSubscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        RecordingSubscriber secondSubscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(firstSubscriber);
+        publisher.subscribe(secondSubscriber);
+
+        assertTrue("Second subscriber was not rejected", secondSubscriber.getError() instanceof IllegalStateException);
+        assertTrue("First subscriber did not complete", firstSubscriber.awaitTermination());
+    }
+
+    private static class RecordingSubscriber implements Subscriber<AgentEvent<String, Float>> {
+        private final long mInitialDemand;
+        private final List<AgentEvent<String, Float>> mEventList = new ArrayList<>();
+        private final CountDownLatch mTerminationLatch = new CountDownLatch(1);
+        private Subscription mSubscription;
+        private Throwable mError;
+
+        private RecordingSubscriber(long initialDemand) {
+            mInitialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            synchronized (this) {
+                mSubscription = subscription;
+            }
+            subscription.request(mInitialDemand);
+        }
+
+        @Override
+        public synchronized void onNext(AgentEvent<String, Float> item) {
+            mEventList.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            synchronized (this) {
+                mError = throwable;
+            }
+            mTerminationLatch.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            mTerminationLatch.countDown();
+        }
+
+        private void request(long n) {
+            mSubscription.request(n);
+        }
+
+        private void cancel() {
+            mSubscription.cancel();
+        }
+
+        private boolean awaitTermination() throws InterruptedException {
+            return mTerminationLatch.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+
+        private boolean isTerminated() {
+            return mTerminationLatch.getCount() == 0;
+        }
+
+        private synchronized List<AgentEvent<String, Float>> getEventList() {
+            return new ArrayList<>(mEventList);
+        }
+
+        private synchronized Throwable getError() {
+            return mError;
+        }
+    }
+}
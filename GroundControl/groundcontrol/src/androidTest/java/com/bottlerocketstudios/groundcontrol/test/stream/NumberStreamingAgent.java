@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.stream;
+
+import com.bottlerocketstudios.groundcontrol.stream.StreamingAgent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams sequential numbers in chunks, optionally pausing after a number of chunks until a gate is opened.
+ */
+public class NumberStreamingAgent extends StreamingAgent<Integer> {
+
+    private static final long GATE_TIMEOUT_MS = 5000;
+
+    private final String mUniqueIdentifier;
+    private final int mChunkCount;
+    private final int mChunkSize;
+    private final int mBufferSize;
+    private final int mGateAfterChunks;
+    private final CountDownLatch mGate;
+    private final AtomicInteger mEmittedChunkCount = new AtomicInteger(0);
+
+    public NumberStreamingAgent(String uniqueIdentifier, int chunkCount, int chunkSize, int bufferSize) {
+        this(uniqueIdentifier, chunkCount, chunkSize, bufferSize, 0, null);
+    }
+
+    public NumberStreamingAgent(String uniqueIdentifier, int chunkCount, int chunkSize, int bufferSize, int gateAfterChunks, CountDownLatch gate) {
+        mUniqueIdentifier = uniqueIdentifier;
+        mChunkCount = chunkCount;
+        mChunkSize = chunkSize;
+        mBufferSize = bufferSize;
+        mGateAfterChunks = gateAfterChunks;
+        mGate = gate;
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mUniqueIdentifier;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return mBufferSize;
+    }
+
+    public int getEmittedChunkCount() {
+        return mEmittedChunkCount.get();
+    }
+
+    @Override
+    public void run() {
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            if (mGate != null && chunk == mGateAfterChunks) {
+                try {
+                    mGate.await(GATE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+
+            List<Integer> itemList = new ArrayList<>();
+            for (int i = 0; i < mChunkSize; i++) {
+                itemList.add(chunk * mChunkSize + i);
+            }
+            if (!emit(itemList)) {
+                notifyCompletion(null);
+                return;
+            }
+            mEmittedChunkCount.incrementAndGet();
+        }
+        completeStream();
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.test.stream;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.stream.StreamingAgentListener;
+import com.bottlerocketstudios.groundcontrol.test.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StreamingAgentTest extends AndroidTestCase {
+    private static final String TAG = StreamingAgentTest.class.getSimpleName();
+
+    private static final int CHUNK_COUNT = 5;
+    private static final int CHUNK_SIZE = 10;
+    private static final long MAX_WAIT_MS = 5000;
+
+    private static final AtomicInteger sExecutorSequence = new AtomicInteger();
+
+    private AgentExecutor mAgentExecutor;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mAgentExecutor = AgentExecutor.builder(TAG + "." + sExecutorSequence.incrementAndGet()).build();
+    }
+
+    private static List<Integer> createExpectedItems() {
+        List<Integer> expectedList = new ArrayList<>();
+        for (int i = 0; i < CHUNK_COUNT * CHUNK_SIZE; i++) {
+            expectedList.add(i);
+        }
+        return expectedList;
+    }
+
+    public void testChunksDeliveredInOrder() throws InterruptedException {
+        RecordingStreamListener listener = new RecordingStreamListener(null);
+        GroundControl.bgAgent(mAgentExecutor, new NumberStreamingAgent(TAG + ".ordered", CHUNK_COUNT, CHUNK_SIZE, 2))
+                .bgSerialCallback(listener)
+                .disableCache()
+                .execute();
+
+        assertTrue("Stream did not complete", listener.awaitCompletion());
+        assertEquals("Streamed items were wrong", createExpectedItems(), listener.getStreamedItems());
+        assertEquals("Result was wrong", createExpectedItems(), listener.getResult());
+        assertTrue("Items were not delivered in chunks", listener.getItemCallbackCount() > 1);
+    }
+
+    public void testLateJoinerReceivesReplay() throws InterruptedException {
+        CountDownLatch gate = new CountDownLatch(1);
+        NumberStreamingAgent streamingAgent = new NumberStreamingAgent(TAG + ".replay", CHUNK_COUNT, CHUNK_SIZE, CHUNK_COUNT, 2, gate);
+        RecordingStreamListener firstListener = new RecordingStreamListener(null);
+        GroundControl.bgAgent(mAgentExecutor, streamingAgent).bgSerialCallback(firstListener).disableCache().execute();
+
+        long start = SystemClock.uptimeMillis();
+        while (firstListener.getStreamedItems().size() < 2 * CHUNK_SIZE && SystemClock.uptimeMillis() - start < MAX_WAIT_MS) {
+            Thread.sleep(10);
+        }
+
+        //The late joiner is coalesced with the running stream and delivered on the thread pool in any order.
+        RecordingStreamListener lateListener = new RecordingStreamListener(null);
+        GroundControl.bgAgent(mAgentExecutor, new NumberStreamingAgent(TAG + ".replay", CHUNK_COUNT, CHUNK_SIZE, CHUNK_COUNT))
+                .bgParallelCallback(lateListener)
+                .disableCache()
+                .execute();
+
+        start = SystemClock.uptimeMillis();
+        while (lateListener.getStreamedItems().size() < 2 * CHUNK_SIZE && SystemClock.uptimeMillis() - start < MAX_WAIT_MS) {
+            Thread.sleep(10);
+        }
+        assertEquals("Late joiner did not receive the replayed prefix", 2 * CHUNK_SIZE, lateListener.getStreamedItems().size());
+        gate.countDown();
+
+        assertTrue("First stream did not complete", firstListener.awaitCompletion());
+        assertTrue("Late stream did not complete", lateListener.awaitCompletion());
+        assertEquals("First listener items were wrong", createExpectedItems(), firstListener.getStreamedItems());
+        assertEquals("Late listener items were wrong", createExpectedItems(), lateListener.getStreamedItems());
+        assertEquals("Late listener result was wrong", createExpectedItems(), lateListener.getResult());
+    }
+
+    public void testSlowListenerAppliesBackpressure() throws InterruptedException {
+        int bufferSize = 2;
+        CountDownLatch listenerGate = new CountDownLatch(1);
+        NumberStreamingAgent streamingAgent = new NumberStreamingAgent(TAG + ".backpressure", CHUNK_COUNT, CHUNK_SIZE, bufferSize);
+        RecordingStreamListener listener = new RecordingStreamListener(listenerGate);
+        GroundControl.bgAgent(mAgentExecutor, streamingAgent).bgSerialCallback(listener).disableCache().execute();
+
+        TestUtils.safeSleep(300);
+        assertEquals("Producer was not held back by the full buffer", bufferSize, streamingAgent.getEmittedChunkCount());
+
+        listenerGate.countDown();
+        assertTrue("Stream did not complete", listener.awaitCompletion());
+        assertEquals("Streamed items were wrong", createExpectedItems(), listener.getStreamedItems());
+    }
+
+    private static class RecordingStreamListener extends StreamingAgentListener<Integer> {
+        private final CountDownLatch mCompletionLatch = new CountDownLatch(1);
+        private final CountDownLatch mItemGate;
+        private final List<Integer> mStreamedItemList = new ArrayList<>();
+        private int mItemCallbackCount;
+        private List<Integer> mResult;
+
+        private RecordingStreamListener(CountDownLatch itemGate) {
+            mItemGate = itemGate;
+        }
+
+        @Override
+        public void onItems(String agentIdentifier, List<Integer> newItemList, List<Integer> streamedItemList) {
+            synchronized (this) {
+                mStreamedItemList.addAll(newItemList);
+                mItemCallbackCount++;
+            }
+            if (mItemGate != null) {
+                try {
+                    mItemGate.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    //Finish delivery.
+                }
+            }
+        }
+
+        @Override
+        public void onStreamCompletion(String agentIdentifier, List<Integer> result) {
+            synchronized (this) {
+                mResult = result;
+            }
+            mCompletionLatch.countDown();
+        }
+
+        private boolean awaitCompletion() throws InterruptedException {
+            return mCompletionLatch.await(MAX_WAIT_MS, TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized List<Integer> getStreamedItems() {
+            return new ArrayList<>(mStreamedItemList);
+        }
+
+        private synchronized int getItemCallbackCount() {
+            return mItemCallbackCount;
+        }
+
+        private synchronized List<Integer> getResult() {
+            return mResult;
+        }
+    }
+}
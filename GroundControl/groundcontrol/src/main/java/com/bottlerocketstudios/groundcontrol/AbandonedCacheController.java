@@ -20,27 +20,34 @@ import android.os.SystemClock;
 import com.bottlerocketstudios.groundcontrol.cache.AgentResultCache;
 import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * This class will ensure that data in the AgentResultCache without an externally held strong
  * reference to an associated Tether, will be removed from the cache. This will help clean up
  * data cached for components that no longer need it.
+ *
+ * Tethers are tracked with WeakReferences registered to a ReferenceQueue so that cleanup only
+ * visits references the garbage collector has actually cleared.
  */
 class AbandonedCacheController {
-    private final Map<String, List<WeakReference<AgentTether>>> mAgentTetherMap;
+    private final Map<String, Set<TetherReference>> mAgentTetherMap;
+    private final ReferenceQueue<AgentTether> mTetherReferenceQueue;
     private final AgentResultCache mAgentResultCache;
     private final long mAbandonedCacheLifetimeMs;
     private final Map<String, Long> mAbandonedCacheDeadlineMap;
 
     public AbandonedCacheController(AgentResultCache agentResultCache, long abandonedCacheLifetimeMs) {
-        mAgentTetherMap = Collections.synchronizedMap(new HashMap<String, List<WeakReference<AgentTether>>>());
+        mAgentTetherMap = Collections.synchronizedMap(new HashMap<String, Set<TetherReference>>());
+        mTetherReferenceQueue = new ReferenceQueue<>();
         mAgentResultCache = agentResultCache;
         mAbandonedCacheDeadlineMap = Collections.synchronizedMap(new HashMap<String, Long>());
         mAbandonedCacheLifetimeMs = abandonedCacheLifetimeMs;
@@ -50,51 +57,71 @@ class AbandonedCacheController {
      * Create a WeakReference to the Tether for the supplied agentIdentifier.
      */
     public void addWeakTether(String agentIdentifier, AgentTether agentTether) {
-        mAbandonedCacheDeadlineMap.remove(agentIdentifier);
-
         synchronized (mAgentTetherMap) {
-            List<WeakReference<AgentTether>> tetherList = mAgentTetherMap.get(agentIdentifier);
-            if (tetherList == null) {
-                tetherList = Collections.synchronizedList(new ArrayList<WeakReference<AgentTether>>());
-                mAgentTetherMap.put(agentIdentifier, tetherList);
+            mAbandonedCacheDeadlineMap.remove(agentIdentifier);
+
+            Set<TetherReference> tetherSet = mAgentTetherMap.get(agentIdentifier);
+            if (tetherSet == null) {
+                tetherSet = new HashSet<>();
+                mAgentTetherMap.put(agentIdentifier, tetherSet);
             }
-            tetherList.add(new WeakReference<>(agentTether));
+            tetherSet.add(new TetherReference(agentIdentifier, agentTether, mTetherReferenceQueue));
         }
     }
 
     /**
-     * Remove the specified Tether and any other dead references for the specified agentIdentifier.
+     * Remove the specified Tether for the specified agentIdentifier.
      */
     public void removeWeakTether(String agentIdentifier, AgentTether tether) {
-        List<WeakReference<AgentTether>> tetherList = mAgentTetherMap.get(agentIdentifier);
-        if (tetherList != null) {
-
-            //This instance of the list is the intended target for synchronization
-            //noinspection SynchronizationOnLocalVariableOrMethodParameter
-            synchronized (tetherList) {
-                for (Iterator<WeakReference<AgentTether>> tetherWeakReferenceIterator = tetherList.iterator(); tetherWeakReferenceIterator.hasNext(); ) {
-                    WeakReference<AgentTether> tetherWeakReference = tetherWeakReferenceIterator.next();
-                    //Remove missing weak references while we are at it.
-                    if (tetherWeakReference.get() == null || tetherWeakReference.get().equals(tether)) {
-                        tetherWeakReferenceIterator.remove();
+        synchronized (mAgentTetherMap) {
+            Set<TetherReference> tetherSet = mAgentTetherMap.get(agentIdentifier);
+            if (tetherSet != null) {
+                for (Iterator<TetherReference> tetherReferenceIterator = tetherSet.iterator(); tetherReferenceIterator.hasNext(); ) {
+                    TetherReference tetherReference = tetherReferenceIterator.next();
+                    if (tether.equals(tetherReference.get())) {
+                        tetherReferenceIterator.remove();
+                        //Clearing does not enqueue the reference, it is already accounted for.
+                        tetherReference.clear();
                     }
                 }
+                abandonIfUntethered(agentIdentifier, tetherSet);
             }
         }
     }
 
+    /**
+     * Once the last Tether for an agentIdentifier is gone, schedule its cache entry for destruction. Unless a
+     * new Tether is associated before the deadline, the cache entry will be removed. Must be called while
+     * synchronized on mAgentTetherMap.
+     */
+    private void abandonIfUntethered(String agentIdentifier, Set<TetherReference> tetherSet) {
+        if (tetherSet.isEmpty()) {
+            mAgentTetherMap.remove(agentIdentifier);
+            mAbandonedCacheDeadlineMap.put(agentIdentifier, getTime() + mAbandonedCacheLifetimeMs);
+        }
+    }
+
     private long getTime() {
         return SystemClock.uptimeMillis();
     }
 
     /**
-     * Once all weak references to Tethers for a particular cache entry have been removed add the cache
-     * entry to the list for destruction. Unless a new Tether is associated before this runs a second
-     * time, the cache entry will be removed.
+     * Process Tethers that have been garbage collected since the last cleanup then remove cache entries
+     * which have been untethered for longer than the abandoned cache lifetime.
      */
     public void cleanupUntetheredCache() {
-        long now = getTime();
+        Reference<? extends AgentTether> reference;
+        while ((reference = mTetherReferenceQueue.poll()) != null) {
+            TetherReference tetherReference = (TetherReference) reference;
+            synchronized (mAgentTetherMap) {
+                Set<TetherReference> tetherSet = mAgentTetherMap.get(tetherReference.getAgentIdentifier());
+                if (tetherSet != null && tetherSet.remove(tetherReference)) {
+                    abandonIfUntethered(tetherReference.getAgentIdentifier(), tetherSet);
+                }
+            }
+        }
 
+        long now = getTime();
         synchronized (mAbandonedCacheDeadlineMap) {
             for (Iterator<String> abandonedCacheDeadlineMapKeyIterator = mAbandonedCacheDeadlineMap.keySet().iterator(); abandonedCacheDeadlineMapKeyIterator.hasNext(); ) {
                 //Check if we have passed deadline and remove item if so.
@@ -105,29 +132,21 @@ class AbandonedCacheController {
                 }
             }
         }
+    }
 
+    /**
+     * WeakReference to a Tether which remembers the agentIdentifier it was created for after it is cleared.
+     */
+    private static class TetherReference extends WeakReference<AgentTether> {
+        private final String mAgentIdentifier;
 
-        long deadline = getTime() + mAbandonedCacheLifetimeMs;
-        synchronized (mAgentTetherMap) {
-            for (Iterator<String> agentTetherMapKeyIterator = mAgentTetherMap.keySet().iterator(); agentTetherMapKeyIterator.hasNext(); ) {
-                String agentIdentifier = agentTetherMapKeyIterator.next();
-                List<WeakReference<AgentTether>> tetherList = mAgentTetherMap.get(agentIdentifier);
-
-                //This instance of the list is the intended target for synchronization
-                //noinspection SynchronizationOnLocalVariableOrMethodParameter
-                synchronized (tetherList) {
-                    for (Iterator<WeakReference<AgentTether>> tetherWeakReferenceIterator = tetherList.iterator(); tetherWeakReferenceIterator.hasNext(); ) {
-                        WeakReference<AgentTether> tetherWeakReference = tetherWeakReferenceIterator.next();
-                        if (tetherWeakReference.get() == null) {
-                            tetherWeakReferenceIterator.remove();
-                        }
-                    }
-                    if (tetherList.size() == 0) {
-                        agentTetherMapKeyIterator.remove();
-                        mAbandonedCacheDeadlineMap.put(agentIdentifier, deadline);
-                    }
-                }
-            }
+        public TetherReference(String agentIdentifier, AgentTether agentTether, ReferenceQueue<AgentTether> referenceQueue) {
+            super(agentTether, referenceQueue);
+            mAgentIdentifier = agentIdentifier;
+        }
+
+        public String getAgentIdentifier() {
+            return mAgentIdentifier;
         }
     }
 }
@@ -15,32 +15,45 @@
 
 package com.bottlerocketstudios.groundcontrol;
 
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
 import com.bottlerocketstudios.groundcontrol.agent.Agent;
+import com.bottlerocketstudios.groundcontrol.agent.HedgeableAgent;
+import com.bottlerocketstudios.groundcontrol.agent.RetryableAgent;
+import com.bottlerocketstudios.groundcontrol.breaker.CircuitBreaker;
 import com.bottlerocketstudios.groundcontrol.cache.AgentResultCache;
 import com.bottlerocketstudios.groundcontrol.cache.CacheCheckRunnable;
 import com.bottlerocketstudios.groundcontrol.cache.CacheCheckRunnableListener;
 import com.bottlerocketstudios.groundcontrol.executor.Job;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
 import com.bottlerocketstudios.groundcontrol.executor.PriorityQueueingPoolExecutorService;
+import com.bottlerocketstudios.groundcontrol.executor.RuntimeHistory;
 import com.bottlerocketstudios.groundcontrol.inactivity.InactivityCleanupListener;
 import com.bottlerocketstudios.groundcontrol.inactivity.InactivityCleanupRunnable;
 import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
 import com.bottlerocketstudios.groundcontrol.looper.HandlerCache;
 import com.bottlerocketstudios.groundcontrol.policy.AgentPolicy;
+import com.bottlerocketstudios.groundcontrol.policy.RetryPolicy;
 import com.bottlerocketstudios.groundcontrol.request.AgentRequest;
 import com.bottlerocketstudios.groundcontrol.request.AgentRequestController;
+import com.bottlerocketstudios.groundcontrol.stream.StreamChunk;
+import com.bottlerocketstudios.groundcontrol.stream.StreamingAgent;
 import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
 import com.bottlerocketstudios.groundcontrol.tether.AgentTetherBuilder;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -66,6 +79,11 @@ public class AgentExecutor implements InactivityCleanupListener {
     private final AbandonedCacheController mAbandonedCacheController;
     private final HandlerCache mHandlerCache;
     private final String mBackgroundLooperId;
+    private final String mTimerLooperId;
+    private final RuntimeHistory mRuntimeHistory;
+    private final Random mRetryJitterRandom;
+    private final CircuitBreaker mCircuitBreaker;
+    private final Map<Object, SlotOccupant> mSlotOccupantMap;
 
     //Object is used for a synchronize lock to prevent other Threads from scheduling the same agent twice.
     @SuppressWarnings("FieldCanBeLocal")
@@ -131,10 +149,15 @@ public class AgentExecutor implements InactivityCleanupListener {
         mAgentRequestController = builder.getAgentRequestController();
         mInactivityCleanupRunnable = builder.getInactivityCleanupRunnable();
         mHandlerCache = builder.getHandlerCache();
+        mCircuitBreaker = builder.getCircuitBreaker();
 
         mStartedAgentMap = Collections.synchronizedMap(new HashMap<String, StartedAgent>());
         mAbandonedCacheController = new AbandonedCacheController(mAgentResultCache, builder.getAbandonedCacheTimeoutMs());
         mBackgroundLooperId = UUID.randomUUID().toString();
+        mTimerLooperId = UUID.randomUUID().toString();
+        mRuntimeHistory = new RuntimeHistory();
+        mRetryJitterRandom = new Random();
+        mSlotOccupantMap = new WeakHashMap<>();
     }
 
     /**
@@ -266,7 +289,7 @@ public class AgentExecutor implements InactivityCleanupListener {
                     }
                 });
 
-        Job cacheCheckJob = new Job(mCacheExecutorService.getNextJobId(), cacheCheckRunnable, agentRequest.getPolicyTimeoutMs(), agentRequest.getJobPriority());
+        Job cacheCheckJob = new Job(mCacheExecutorService.getNextJobId(), cacheCheckRunnable, agentRequest.getPolicyTimeoutMs(), agentRequest.getSupportJobPriority());
         mCacheExecutorService.enqueue(cacheCheckJob);
     }
 
@@ -275,9 +298,13 @@ public class AgentExecutor implements InactivityCleanupListener {
      */
     private <ResultType, ProgressType> void startAgentRequest(AgentRequest<ResultType, ProgressType> agentRequest) {
         synchronized (mExecutionLock) {
+            StartedAgent startedAgent = getStartedAgent(agentRequest.getAgentIdentifier());
+            if (startedAgent == null && shedIfCircuitOpen(agentRequest)) {
+                return;
+            }
+
             mAgentRequestController.addAgentRequest(agentRequest);
 
-            StartedAgent startedAgent = getStartedAgent(agentRequest.getAgentIdentifier());
             if (startedAgent == null) {
                 addNewPendingAgentExecution(agentRequest);
             } else {
@@ -286,56 +313,514 @@ public class AgentExecutor implements InactivityCleanupListener {
         }
     }
 
+    private String getCircuitBreakerGroup(AgentRequest<?, ?> agentRequest) {
+        String circuitBreakerGroup = agentRequest.getCircuitBreakerGroup();
+        return circuitBreakerGroup != null ? circuitBreakerGroup : agentRequest.getAgent().getClass().getName();
+    }
+
+    /**
+     * Complete the request without starting the Agent if its CircuitBreaker group is open. Stale cache is delivered when available.
+     */
+    private <ResultType, ProgressType> boolean shedIfCircuitOpen(AgentRequest<ResultType, ProgressType> agentRequest) {
+        if (mCircuitBreaker == null || mCircuitBreaker.allowExecution(getCircuitBreakerGroup(agentRequest))) {
+            return false;
+        }
+
+        Log.w(TAG, "Circuit open, not starting " + agentRequest.getAgentIdentifier());
+        try {
+            ResultType staleResult = mAgentResultCache.getStale(agentRequest.getAgentIdentifier());
+            mAgentRequestController.deliverCompletion(agentRequest, staleResult);
+        } catch (ClassCastException e) {
+            Log.e(TAG, "Cache result was of an unexpected type");
+            mAgentRequestController.deliverCompletion(agentRequest, null);
+        }
+        return true;
+    }
+
+    /**
+     * Report the outcome of an execution to the CircuitBreaker. Cancelled executions are not counted.
+     */
+    private void recordCircuitOutcome(StartedAgent startedAgent, boolean success) {
+        if (mCircuitBreaker == null || startedAgent.getCircuitBreakerGroup() == null) {
+            return;
+        }
+
+        if (success) {
+            mCircuitBreaker.recordSuccess(startedAgent.getCircuitBreakerGroup());
+        } else {
+            mCircuitBreaker.recordFailure(startedAgent.getCircuitBreakerGroup());
+        }
+    }
+
     /**
      * Request is not already in progress. Enqueue it.
      */
     private <ResultType, ProgressType> void addNewPendingAgentExecution(AgentRequest<ResultType, ProgressType> agentRequest) {
         //Store the StartedAgent data.
-        Agent<ResultType, ProgressType> agent = agentRequest.getAgent();
+        final Agent<ResultType, ProgressType> agent = agentRequest.getAgent();
         Job agentJob = new Job(mAgentExecutorService.getNextJobId(), agent, agent.getRunTimeoutMs(), agentRequest.getJobPriority());
-        StartedAgent startedAgent = StartedAgent.newStartedAgent(agentRequest, agent, agentJob);
+        agentJob.setConcurrencyGroup(agentRequest.getConcurrencyGroup());
+        agentJob.setRateLimitGroup(agentRequest.getRateLimitGroup());
+        agentJob.setFairShareKey(agentRequest.getFairShareKey());
+        setSchedulingHints(agentJob, agent, agentRequest.getDeadline());
+        final StartedAgent startedAgent = StartedAgent.newStartedAgent(agentRequest, agent, agentJob);
+        startedAgent.setCircuitBreakerGroup(getCircuitBreakerGroup(agentRequest));
+        startedAgent.setDroppedRunnable(new Runnable() {
+            @Override
+            public void run() {
+                dropExecution(startedAgent, agent);
+            }
+        });
         agentJob.setJobExecutionListener(startedAgent);
         addStartedAgent(agentRequest.getAgentIdentifier(), startedAgent);
 
         //Set the agent executor to this instance.
         agent.setAgentExecutor(this);
 
-        //Set the listener to an anonymous instance.
-        agent.setAgentListener(new AgentListener<ResultType, ProgressType>() {
+        //Set the listener to an instance bound to this execution.
+        agent.setAgentListener(createAgentListener(startedAgent, agent));
+
+        mAgentExecutorService.enqueue(agentJob);
+
+        scheduleHedge(agentRequest, startedAgent);
+    }
+
+    /**
+     * Create the listener for one running instance of an Agent. With hedged execution two instances share
+     * a StartedAgent and only the first to complete is delivered.
+     */
+    private <ResultType, ProgressType> AgentListener<ResultType, ProgressType> createAgentListener(final StartedAgent startedAgent, final Agent<ResultType, ProgressType> agent) {
+        return new AgentListener<ResultType, ProgressType>() {
             @Override
             public void onCompletion(String agentIdentifier, ResultType result) {
-                StartedAgent startedAgent = removeStartedAgent(agentIdentifier);
-                mAgentRequestController.notifyAgentCompletion(agentIdentifier, result);
-                //The startedAgent may be null if an agent is cancelled then expunged by exceeding time limits and sends completion later anyway.
-                if (startedAgent != null) {
-                    mAgentResultCache.put(agentIdentifier, result, startedAgent.getInitialCacheAgeMs());
+                if (scheduleRetry(startedAgent, agent, result)) {
+                    return;
                 }
+                completeExecution(startedAgent, agent, agentIdentifier, result);
             }
 
             @Override
             public void onProgress(String agentIdentifier, ProgressType progress) {
                 mAgentRequestController.notifyAgentProgress(agentIdentifier, progress);
             }
-        });
+        };
+    }
 
-        mAgentExecutorService.enqueue(agentJob);
+    /**
+     * Deliver the result of an execution to all requests and cache it.
+     */
+    private <ResultType> void completeExecution(StartedAgent startedAgent, Agent agent, String agentIdentifier, ResultType result) {
+        if (!startedAgent.markCompleted()) {
+            //Another instance already delivered for this execution.
+            return;
+        }
+        boolean removed = removeStartedAgent(agentIdentifier, startedAgent);
+        startedAgent.cancelOtherInstances(agent);
+        removeLosingHedge(startedAgent, agent);
+        recordRuntime(startedAgent, agent);
+        if (!startedAgent.isCancelled()) {
+            recordCircuitOutcome(startedAgent, result != null);
+        }
+        //The startedAgent may not be present if an agent is cancelled then expunged by exceeding time limits and sends completion later anyway.
+        //Cache before delivery so that a listener which immediately requests the Agent again sees the result.
+        if (removed) {
+            mAgentResultCache.put(agentIdentifier, result, startedAgent.getInitialCacheAgeMs());
+        }
+        mAgentRequestController.notifyAgentCompletion(agentIdentifier, result);
+    }
+
+    /**
+     * Remove the hedge of an execution the primary instance completed if it is still waiting in the queue, otherwise
+     * it would later occupy a worker thread for work that will be discarded.
+     */
+    private void removeLosingHedge(StartedAgent startedAgent, Agent completedAgent) {
+        synchronized (mExecutionLock) {
+            Job hedgeJob = startedAgent.getHedgeJob();
+            if (hedgeJob != null && completedAgent != startedAgent.getHedgeAgent()) {
+                mAgentExecutorService.removeJob(hedgeJob.getId());
+            }
+        }
+    }
+
+    /**
+     * A queued Job of the execution was dropped from a full agent executor service queue. Deliver null to its
+     * requests now instead of leaving them to wait for their deadline and cancel anything it started.
+     */
+    private void dropExecution(StartedAgent startedAgent, Agent agent) {
+        if (!startedAgent.markCompleted()) {
+            return;
+        }
+        String agentIdentifier = agent.getUniqueIdentifier();
+        Log.w(TAG, "Dropped queued agent " + agentIdentifier);
+        removeStartedAgent(agentIdentifier, startedAgent);
+        startedAgent.cancel();
+        //Drops are reported by whichever thread enqueued, possibly the UI thread while holding the execution lock. Never deliver directly here.
+        mAgentRequestController.notifyAgentCompletion(agentIdentifier, null, false);
+    }
+
+    /**
+     * If the result is retryable under the execution's RetryPolicy, schedule another attempt on the timer
+     * and return true. The StartedAgent stays registered so coalesced requests remain attached.
+     */
+    private <ResultType, ProgressType> boolean scheduleRetry(final StartedAgent startedAgent, final Agent<ResultType, ProgressType> agent, final ResultType result) {
+        RetryPolicy retryPolicy = startedAgent.getRetryPolicy();
+        if (retryPolicy == null || startedAgent.getHedgeAgent() != null) {
+            return false;
+        }
+
+        synchronized (mExecutionLock) {
+            if (startedAgent.isCancelled() || startedAgent.isCompleted()
+                    || startedAgent.getAttemptCount() >= retryPolicy.getMaxAttempts()
+                    || !retryPolicy.isRetryable(result)) {
+                return false;
+            }
+
+            long delayMs = retryPolicy.getDelayMs(startedAgent.getAttemptCount() + 1, mRetryJitterRandom);
+            if (SystemClock.uptimeMillis() + delayMs >= startedAgent.getRequestDeadline()) {
+                //The next attempt could not start before the requests expire.
+                return false;
+            }
+
+            final Agent<ResultType, ProgressType> retryAgent = createRetryAgent(startedAgent, agent);
+            if (retryAgent == null) {
+                return false;
+            }
+
+            int attempt = startedAgent.beginRetryDelay(delayMs);
+            Log.i(TAG, "Retrying " + agent.getUniqueIdentifier() + " attempt " + attempt + " in " + delayMs + "ms");
+            mHandlerCache.getHandler(mTimerLooperId).postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    startRetry(startedAgent, agent, retryAgent, result);
+                }
+            }, delayMs);
+        }
+        return true;
+    }
+
+    /**
+     * Return the instance to run for the next attempt. A {@link RetryableAgent} supplies a new instance or null to decline
+     * the retry, other Agents are run again.
+     */
+    private <ResultType, ProgressType> Agent<ResultType, ProgressType> createRetryAgent(StartedAgent startedAgent, Agent<ResultType, ProgressType> agent) {
+        if (!(agent instanceof RetryableAgent)) {
+            return agent;
+        }
+
+        Agent<ResultType, ProgressType> retryAgent = ((RetryableAgent<ResultType, ProgressType>) agent).createRetry();
+        if (retryAgent == null) {
+            return null;
+        } else if (retryAgent == agent || !TextUtils.equals(agent.getUniqueIdentifier(), retryAgent.getUniqueIdentifier())) {
+            Log.e(TAG, "Retry for " + agent.getUniqueIdentifier() + " must be a new instance with the same unique identifier");
+            return null;
+        }
+
+        retryAgent.setAgentExecutor(this);
+        retryAgent.setAgentListener(createAgentListener(startedAgent, retryAgent));
+        return retryAgent;
+    }
+
+    private <ResultType, ProgressType> void startRetry(StartedAgent startedAgent, Agent<ResultType, ProgressType> agent, Agent<ResultType, ProgressType> retryAgent, ResultType previousResult) {
+        synchronized (mExecutionLock) {
+            if (!startedAgent.isCancelled() && getStartedAgent(agent.getUniqueIdentifier()) == startedAgent) {
+                startedAgent.setAgent(retryAgent);
+                Job retryJob = new Job(mAgentExecutorService.getNextJobId(), retryAgent, retryAgent.getRunTimeoutMs(), startedAgent.getJobPriority());
+                retryJob.setConcurrencyGroup(startedAgent.getJob().getConcurrencyGroup());
+                retryJob.setRateLimitGroup(startedAgent.getJob().getRateLimitGroup());
+                retryJob.setFairShareKey(startedAgent.getJob().getFairShareKey());
+                setSchedulingHints(retryJob, retryAgent, startedAgent.getRequestDeadline());
+                retryJob.setJobExecutionListener(startedAgent);
+                startedAgent.setRetryJob(retryJob);
+                mAgentExecutorService.enqueue(retryJob);
+                return;
+            }
+        }
+
+        //Cancelled while waiting to retry, deliver the last result.
+        completeExecution(startedAgent, agent, agent.getUniqueIdentifier(), previousResult);
+    }
+
+    private void recordRuntime(StartedAgent startedAgent, Agent agent) {
+        long startTime = startedAgent.getInstanceStartTime(agent);
+        if (startTime > 0) {
+            mRuntimeHistory.record(getRuntimeKey(agent), SystemClock.uptimeMillis() - startTime);
+        }
+    }
+
+    /**
+     * Supply the expected run time and deadline used by runtime aware JobOrdering of the agent executor service.
+     */
+    private void setSchedulingHints(Job job, Agent agent, long deadline) {
+        job.setExpectedRuntimeMs(Math.max(0, mRuntimeHistory.getAverageMs(getRuntimeKey(agent))));
+        job.setDeadline(deadline);
+    }
+
+    private String getRuntimeKey(Agent agent) {
+        return agent.getClass().getName();
+    }
+
+    /**
+     * If the policy requests hedging, schedule a check to start a second instance once the primary has run for the hedge delay.
+     */
+    private <ResultType, ProgressType> void scheduleHedge(AgentRequest<ResultType, ProgressType> agentRequest, final StartedAgent startedAgent) {
+        if (agentRequest.getHedgeDelayMs() <= 0 && agentRequest.getHedgeLatencyPercentile() <= 0) {
+            return;
+        }
+
+        Agent<ResultType, ProgressType> agent = agentRequest.getAgent();
+        if (!(agent instanceof HedgeableAgent)) {
+            Log.w(TAG, "Hedging requested for " + agent.getUniqueIdentifier() + " which is not a HedgeableAgent");
+            return;
+        }
+
+        long hedgeDelayMs = agentRequest.getHedgeDelayMs();
+        if (agentRequest.getHedgeLatencyPercentile() > 0) {
+            long percentileMs = mRuntimeHistory.getPercentileMs(getRuntimeKey(agent), agentRequest.getHedgeLatencyPercentile());
+            if (percentileMs > 0) {
+                hedgeDelayMs = percentileMs;
+            }
+        }
+
+        if (hedgeDelayMs > 0) {
+            final long finalHedgeDelayMs = hedgeDelayMs;
+            mHandlerCache.getHandler(mTimerLooperId).postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    checkHedge(startedAgent, finalHedgeDelayMs, this);
+                }
+            }, hedgeDelayMs);
+        }
+    }
+
+    /**
+     * Start the hedge instance if the primary has been running for the hedge delay, otherwise check again when it will have.
+     */
+    private void checkHedge(StartedAgent startedAgent, long hedgeDelayMs, Runnable hedgeCheck) {
+        synchronized (mExecutionLock) {
+            String agentIdentifier = startedAgent.getAgent().getUniqueIdentifier();
+            if (getStartedAgent(agentIdentifier) != startedAgent || startedAgent.isCancelled() || startedAgent.isCompleted() || startedAgent.getHedgeAgent() != null) {
+                return;
+            }
+
+            long executionStartTime = startedAgent.getExecutionStartTime();
+            long remainingMs = executionStartTime > 0 ? executionStartTime + hedgeDelayMs - SystemClock.uptimeMillis() : hedgeDelayMs;
+            if (remainingMs > 0) {
+                mHandlerCache.getHandler(mTimerLooperId).postDelayed(hedgeCheck, remainingMs);
+                return;
+            }
+
+            startHedge(startedAgent, (HedgeableAgent<?, ?>) startedAgent.getAgent());
+        }
+    }
+
+    private <ResultType, ProgressType> void startHedge(StartedAgent startedAgent, HedgeableAgent<ResultType, ProgressType> primaryAgent) {
+        Agent<ResultType, ProgressType> hedgeAgent = primaryAgent.createHedge();
+        if (hedgeAgent == null) {
+            return;
+        } else if (hedgeAgent == primaryAgent || !TextUtils.equals(primaryAgent.getUniqueIdentifier(), hedgeAgent.getUniqueIdentifier())) {
+            Log.e(TAG, "Hedge for " + primaryAgent.getUniqueIdentifier() + " must be a new instance with the same unique identifier");
+            return;
+        }
+
+        hedgeAgent.setAgentExecutor(this);
+        hedgeAgent.setAgentListener(createAgentListener(startedAgent, hedgeAgent));
+        Job hedgeJob = new Job(mAgentExecutorService.getNextJobId(), hedgeAgent, hedgeAgent.getRunTimeoutMs(), startedAgent.getJobPriority());
+        hedgeJob.setConcurrencyGroup(startedAgent.getJob().getConcurrencyGroup());
+        hedgeJob.setRateLimitGroup(startedAgent.getJob().getRateLimitGroup());
+        hedgeJob.setFairShareKey(startedAgent.getJob().getFairShareKey());
+        setSchedulingHints(hedgeJob, hedgeAgent, startedAgent.getRequestDeadline());
+        hedgeJob.setJobExecutionListener(startedAgent);
+        startedAgent.setHedge(hedgeAgent, hedgeJob);
+        mAgentExecutorService.enqueue(hedgeJob);
     }
 
     /**
      * Request is already in progress. Update any escalations, add this request to the delivery list and request a progress update.
      */
     private <ResultType, ProgressType> void updatePendingAgentExecution(StartedAgent startedAgent, AgentRequest<ResultType, ProgressType> agentRequest) {
-        //Check job priority against queued/running job to promote if necessary.
-        Job agentJob = startedAgent.getJob();
-        if (agentJob != null && agentJob.getPriority().compareTo(agentRequest.getJobPriority()) < 0) {
-            mAgentExecutorService.updateJobPriority(agentJob.getId(), agentRequest.getJobPriority());
-        }
+        //Check job priority against queued/running job, continuation and children to promote if necessary.
+        promoteStartedAgent(startedAgent, agentRequest.getJobPriority());
+
+        //A coalesced request with a later deadline extends the budget available to children.
+        startedAgent.extendRequestDeadline(agentRequest.getDeadline());
 
         //Adjust max cache age for coalesced requests before completion.
         startedAgent.setInitialCacheAgeMs(Math.max(startedAgent.getInitialCacheAgeMs(), agentRequest.getMaxCacheAgeMs()));
 
         //Request progress update
         startedAgent.requestProgressUpdate();
+
+        //Send the items a streaming Agent has already emitted to the new request.
+        if (startedAgent.getAgent() instanceof StreamingAgent) {
+            replayStream((StreamingAgent<?>) startedAgent.getAgent(), agentRequest);
+        }
+    }
+
+    /**
+     * Deliver the accumulated prefix of a running stream to a request which joined after it started. This happens
+     * after the request is added so that any chunk it misses is included in the replay.
+     */
+    @SuppressWarnings("unchecked")
+    private void replayStream(StreamingAgent<?> streamingAgent, AgentRequest agentRequest) {
+        StreamChunk<?> replayChunk = streamingAgent.getReplayChunk();
+        if (replayChunk != null) {
+            mAgentRequestController.deliverProgress(agentRequest, replayChunk);
+        }
+    }
+
+    /**
+     * Raise the priority of a started Agent, its queued Jobs, and any child Agents it has started.
+     */
+    private void promoteStartedAgent(StartedAgent startedAgent, JobPriority jobPriority) {
+        synchronized (mExecutionLock) {
+            if (startedAgent.getJobPriority().compareTo(jobPriority) <= 0) {
+                return;
+            }
+
+            startedAgent.setJobPriority(jobPriority);
+            Job agentJob = startedAgent.getJob();
+            if (agentJob != null && agentJob.getPriority().compareTo(jobPriority) > 0) {
+                mAgentExecutorService.updateJobPriority(agentJob.getId(), jobPriority);
+            }
+            updateFollowUpJobPriority(startedAgent, jobPriority);
+
+            for (String childAgentIdentifier : startedAgent.getChildAgentIdentifierSet()) {
+                StartedAgent childStartedAgent = getStartedAgent(childAgentIdentifier);
+                if (childStartedAgent != null) {
+                    promoteStartedAgent(childStartedAgent, jobPriority);
+                }
+            }
+        }
+    }
+
+    /**
+     * Lower the priority of a started Agent and its queued Jobs. Running Jobs are not affected and child Agents
+     * keep the priority of their own requests.
+     */
+    private void demoteStartedAgent(StartedAgent startedAgent, JobPriority jobPriority) {
+        synchronized (mExecutionLock) {
+            if (startedAgent.getJobPriority().compareTo(jobPriority) >= 0) {
+                return;
+            }
+
+            startedAgent.setJobPriority(jobPriority);
+            Job agentJob = startedAgent.getJob();
+            if (agentJob != null && agentJob.getPriority().compareTo(jobPriority) < 0) {
+                mAgentExecutorService.updateJobPriority(agentJob.getId(), jobPriority);
+            }
+            updateFollowUpJobPriority(startedAgent, jobPriority);
+        }
+    }
+
+    /**
+     * Apply the priority to the continuation, hedge, and retry Jobs of a started Agent if they are queued.
+     */
+    private void updateFollowUpJobPriority(StartedAgent startedAgent, JobPriority jobPriority) {
+        Job continuationJob = startedAgent.getContinuationJob();
+        if (continuationJob != null) {
+            mAgentExecutorService.updateJobPriority(continuationJob.getId(), jobPriority);
+        }
+        Job hedgeJob = startedAgent.getHedgeJob();
+        if (hedgeJob != null) {
+            mAgentExecutorService.updateJobPriority(hedgeJob.getId(), jobPriority);
+        }
+        Job retryJob = startedAgent.getRetryJob();
+        if (retryJob != null) {
+            mAgentExecutorService.updateJobPriority(retryJob.getId(), jobPriority);
+        }
+    }
+
+    /**
+     * Record that an Agent is being started on behalf of a running parent Agent so that it follows the parent's promotions.
+     */
+    public void registerChildAgent(String parentAgentIdentifier, String childAgentIdentifier) {
+        synchronized (mExecutionLock) {
+            StartedAgent parentStartedAgent = getStartedAgent(parentAgentIdentifier);
+            if (parentStartedAgent != null) {
+                parentStartedAgent.getChildAgentIdentifierSet().add(childAgentIdentifier);
+            }
+        }
+    }
+
+    /**
+     * Return the current priority of a running Agent or null if it is not running.
+     */
+    public JobPriority getAgentPriority(String agentIdentifier) {
+        StartedAgent startedAgent = getStartedAgent(agentIdentifier);
+        return startedAgent != null ? startedAgent.getJobPriority() : null;
+    }
+
+    /**
+     * Return the time remaining before the latest request deadline of a running Agent or 0 if it is not running or past due.
+     */
+    public long getRemainingDeadlineMs(String agentIdentifier) {
+        StartedAgent startedAgent = getStartedAgent(agentIdentifier);
+        if (startedAgent == null) {
+            return 0;
+        }
+        return Math.max(0, startedAgent.getRequestDeadline() - SystemClock.uptimeMillis());
+    }
+
+    /**
+     * Queue the remainder of a running Agent's work as a new Job with the Agent's current priority. An Agent
+     * which returns from run() while it waits on other work, such as a {@link com.bottlerocketstudios.groundcontrol.dependency.DependencyHandlingAgent},
+     * releases its execution slot and uses this to resume. Returns false if the Agent is not running on this AgentExecutor.
+     */
+    public boolean enqueueContinuation(String agentIdentifier, Runnable continuation) {
+        synchronized (mExecutionLock) {
+            StartedAgent startedAgent = getStartedAgent(agentIdentifier);
+            if (startedAgent == null) {
+                return false;
+            }
+            Job continuationJob = new Job(mAgentExecutorService.getNextJobId(), continuation, startedAgent.getAgent().getRunTimeoutMs(), startedAgent.getJobPriority());
+            continuationJob.setConcurrencyGroup(startedAgent.getJob().getConcurrencyGroup());
+            continuationJob.setFairShareKey(startedAgent.getJob().getFairShareKey());
+            continuationJob.setDeadline(startedAgent.getRequestDeadline());
+            continuationJob.setJobExecutionListener(startedAgent);
+            startedAgent.setContinuationJob(continuationJob);
+            mAgentExecutorService.enqueue(continuationJob);
+        }
+        return true;
+    }
+
+    /**
+     * Return true if the Agent is running at {@link JobPriority#PREFETCH} priority and higher priority work has
+     * been enqueued since it started. Prefetch Agents should check this between chunks of work and call
+     * {@link #yieldAgent(String, Runnable)} then return from run() when it is true.
+     */
+    public boolean shouldYield(String agentIdentifier) {
+        StartedAgent startedAgent = getStartedAgent(agentIdentifier);
+        return startedAgent != null && JobPriority.PREFETCH.equals(startedAgent.getJobPriority()) && startedAgent.isYieldRequested();
+    }
+
+    /**
+     * Release a running prefetch Agent's execution slot and queue the supplied Runnable to resume its work once
+     * the pool is otherwise idle again. The resumed work follows promotions and its timeouts restart when it runs.
+     * Returns false if the Agent is not running on this AgentExecutor.
+     */
+    public boolean yieldAgent(String agentIdentifier, Runnable resume) {
+        synchronized (mExecutionLock) {
+            StartedAgent startedAgent = getStartedAgent(agentIdentifier);
+            if (startedAgent == null) {
+                return false;
+            }
+            Job resumeJob = new Job(mAgentExecutorService.getNextJobId(), resume, startedAgent.getAgent().getRunTimeoutMs(), startedAgent.getJobPriority());
+            resumeJob.setConcurrencyGroup(startedAgent.getJob().getConcurrencyGroup());
+            resumeJob.setFairShareKey(startedAgent.getJob().getFairShareKey());
+            resumeJob.setDeadline(startedAgent.getRequestDeadline());
+            resumeJob.setJobExecutionListener(startedAgent);
+            startedAgent.setContinuationJob(resumeJob);
+            startedAgent.suspendDeadlines();
+            mAgentExecutorService.enqueue(resumeJob);
+        }
+        return true;
+    }
+
+    /**
+     * Run a short, non-blocking Runnable on this AgentExecutor's timer Looper after the supplied delay.
+     */
+    public void postDelayed(Runnable runnable, long delayMs) {
+        mHandlerCache.getHandler(mTimerLooperId).postDelayed(runnable, delayMs);
     }
 
     /**
@@ -360,15 +845,137 @@ public class AgentExecutor implements InactivityCleanupListener {
     }
 
     /**
-     * Notify an agent that it should cancel.
+     * Treat the request associated with this tether as LOW priority while its UI is in the background. Queued Jobs
+     * for the Agent are demoted unless another request for it still needs a higher priority.
+     */
+    public void tetherPause(AgentTether tether, String agentIdentifier, AgentListener agentListener) {
+        updateRequestPaused(agentIdentifier, agentListener, true);
+    }
+
+    /**
+     * Restore the priority of a request paused by {@link #tetherPause(AgentTether, String, AgentListener)} and
+     * promote the queued Jobs for the Agent to match.
+     */
+    public void tetherResume(AgentTether tether, String agentIdentifier, AgentListener agentListener) {
+        updateRequestPaused(agentIdentifier, agentListener, false);
+    }
+
+    private void updateRequestPaused(String agentIdentifier, AgentListener agentListener, boolean paused) {
+        synchronized (mExecutionLock) {
+            if (!mAgentRequestController.setRequestPaused(agentIdentifier, agentListener, paused)) {
+                return;
+            }
+
+            StartedAgent startedAgent = getStartedAgent(agentIdentifier);
+            JobPriority jobPriority = mAgentRequestController.getHighestJobPriority(agentIdentifier);
+            if (startedAgent == null || jobPriority == null) {
+                return;
+            }
+
+            if (paused) {
+                demoteStartedAgent(startedAgent, jobPriority);
+            } else {
+                promoteStartedAgent(startedAgent, jobPriority);
+            }
+        }
+    }
+
+    /**
+     * Associate the execution represented by the tether and listener with the slot key and supersede the execution
+     * previously associated with it. The superseded request is released and its Agent is removed from the queue
+     * if no other requests are waiting for it.
+     */
+    public void occupySlot(Object slotKey, AgentTether agentTether, AgentListener agentListener) {
+        SlotOccupant previousOccupant;
+        synchronized (mSlotOccupantMap) {
+            previousOccupant = mSlotOccupantMap.put(slotKey, new SlotOccupant(agentTether, agentListener));
+        }
+        if (previousOccupant == null) {
+            return;
+        }
+
+        String previousAgentIdentifier = previousOccupant.getAgentIdentifier();
+        AgentListener previousAgentListener = previousOccupant.getAgentListener();
+        boolean sameAgent = previousAgentIdentifier.equals(agentTether.getAgentIdentifier());
+        if (previousAgentListener == null || (sameAgent && previousAgentListener.equals(agentListener))) {
+            //The previous request has been delivered or is the same request as the new one.
+            return;
+        }
+
+        mAgentRequestController.removeRequestForAgent(previousAgentIdentifier, previousAgentListener);
+        AgentTether previousAgentTether = previousOccupant.getAgentTether();
+        if (previousAgentTether != null) {
+            mAbandonedCacheController.removeWeakTether(previousAgentIdentifier, previousAgentTether);
+        }
+        if (!sameAgent) {
+            removeQueuedAgent(previousAgentIdentifier);
+        }
+    }
+
+    /**
+     * Remove an Agent which is waiting in the execution queue if there are no requests waiting for it.
+     */
+    private void removeQueuedAgent(String agentIdentifier) {
+        StartedAgent startedAgent;
+        synchronized (mExecutionLock) {
+            startedAgent = getStartedAgent(agentIdentifier);
+            if (startedAgent == null || mAgentRequestController.hasActiveRequests(agentIdentifier)
+                    || !removeQueuedJobs(startedAgent) || !startedAgent.markCompleted()) {
+                return;
+            }
+            removeStartedAgent(agentIdentifier, startedAgent);
+        }
+        //Release anything a continuation was waiting on.
+        startedAgent.cancel();
+    }
+
+    /**
+     * Notify an agent that it should cancel. If it is waiting in the execution queue it is removed so that it
+     * never occupies a worker thread and any remaining requests are delivered null now.
      */
     private void cancelAgent(String agentIdentifier) {
         StartedAgent startedAgent = getStartedAgent(agentIdentifier);
-        if (startedAgent != null) {
-            startedAgent.cancel();
+        if (startedAgent == null) {
+            return;
+        }
+        startedAgent.cancel();
+
+        boolean removedFromQueue;
+        synchronized (mExecutionLock) {
+            Job hedgeJob = startedAgent.getHedgeJob();
+            if (hedgeJob != null) {
+                mAgentExecutorService.removeJob(hedgeJob.getId());
+            }
+            removedFromQueue = removeQueuedJobs(startedAgent) && startedAgent.markCompleted();
+            if (removedFromQueue) {
+                removeStartedAgent(agentIdentifier, startedAgent);
+            }
+        }
+
+        if (removedFromQueue) {
+            Log.i(TAG, "Removed cancelled agent from queue " + agentIdentifier);
+            //Never deliver directly here as the caller may be a tether holding its own locks.
+            mAgentRequestController.notifyAgentCompletion(agentIdentifier, null, false);
         }
     }
 
+    /**
+     * Remove whichever Job of the primary Agent is waiting in the execution queue. Return true if one was
+     * removed, after which the execution cannot progress. Each removal is O(log n) by Job id.
+     */
+    private boolean removeQueuedJobs(StartedAgent startedAgent) {
+        boolean removed = mAgentExecutorService.removeJob(startedAgent.getJob().getId());
+        Job retryJob = startedAgent.getRetryJob();
+        if (retryJob != null) {
+            removed |= mAgentExecutorService.removeJob(retryJob.getId());
+        }
+        Job continuationJob = startedAgent.getContinuationJob();
+        if (continuationJob != null) {
+            removed |= mAgentExecutorService.removeJob(continuationJob.getId());
+        }
+        return removed;
+    }
+
     @Override
     public boolean isBusy() {
         return mStartedAgentMap.size() > 0;
@@ -377,6 +984,7 @@ public class AgentExecutor implements InactivityCleanupListener {
     @Override
     public void enterIdleState() {
         mHandlerCache.stopHandler(getBackgroundLooperId());
+        mHandlerCache.stopHandler(mTimerLooperId);
     }
 
     @Override
@@ -398,6 +1006,7 @@ public class AgentExecutor implements InactivityCleanupListener {
      */
     @SuppressWarnings("ForLoopReplaceableByForEach")
     private void cancelExpiredAgents() {
+        List<String> overdueAgentIdentifierList = new ArrayList<>();
         synchronized (mStartedAgentMap) {
             /*
              * Take a snapshot of the key Set. If the Agent notifies of failure immediately upon
@@ -416,18 +1025,40 @@ public class AgentExecutor implements InactivityCleanupListener {
                         Log.w(TAG, "Giving up on overdue agent " + startedAgent);
                         removeStartedAgent(agentIdentifier);
                     } else if (!startedAgent.isCancelled() && startedAgent.isPastCancellationDeadline()) {
-                        Log.w(TAG, "Cancelling overdue agent " + startedAgent);
-                        cancelAgent(agentIdentifier);
+                        overdueAgentIdentifierList.add(agentIdentifier);
                     }
                 }
             }
         }
+
+        //Cancel after releasing the started agent map lock as cancellation takes the execution lock first.
+        for (String agentIdentifier : overdueAgentIdentifierList) {
+            StartedAgent startedAgent = getStartedAgent(agentIdentifier);
+            if (startedAgent != null && !startedAgent.isCancelled()) {
+                Log.w(TAG, "Cancelling overdue agent " + startedAgent);
+                recordCircuitOutcome(startedAgent, false);
+                cancelAgent(agentIdentifier);
+            }
+        }
     }
 
     private StartedAgent removeStartedAgent(String agentIdentifier) {
         return mStartedAgentMap.remove(agentIdentifier);
     }
 
+    /**
+     * Remove the StartedAgent only if it is still the current execution for the agentIdentifier.
+     */
+    private boolean removeStartedAgent(String agentIdentifier, StartedAgent startedAgent) {
+        synchronized (mStartedAgentMap) {
+            if (mStartedAgentMap.get(agentIdentifier) == startedAgent) {
+                mStartedAgentMap.remove(agentIdentifier);
+                return true;
+            }
+            return false;
+        }
+    }
+
     private void addStartedAgent(String agentIdentifier, StartedAgent startedAgent) {
         synchronized (mStartedAgentMap) {
             if (mStartedAgentMap.containsKey(agentIdentifier)) {
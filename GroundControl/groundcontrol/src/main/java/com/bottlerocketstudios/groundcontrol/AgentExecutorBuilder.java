@@ -15,6 +15,7 @@
 
 package com.bottlerocketstudios.groundcontrol;
 
+import com.bottlerocketstudios.groundcontrol.breaker.CircuitBreaker;
 import com.bottlerocketstudios.groundcontrol.cache.AgentResultCache;
 import com.bottlerocketstudios.groundcontrol.cache.StandardAgentResultCache;
 import com.bottlerocketstudios.groundcontrol.executor.PriorityQueueingPoolExecutorService;
@@ -50,6 +51,7 @@ public class AgentExecutorBuilder {
     private HandlerCache mHandlerCache;
     private InactivityCleanupRunnable mInactivityCleanupRunnable;
     private long mAbandonedCacheTimeoutMs;
+    private CircuitBreaker mCircuitBreaker;
 
     /**
      * Create a builder instance with the supplied ID. This ID must be globally unique for the
@@ -210,6 +212,21 @@ public class AgentExecutorBuilder {
         return mAbandonedCacheTimeoutMs;
     }
 
+    /**
+     * Provide a CircuitBreaker to stop starting Agents whose group is failing. Requests rejected by an open
+     * circuit complete immediately with stale cache data if present or null. There is no CircuitBreaker by default.
+     *
+     * @see com.bottlerocketstudios.groundcontrol.breaker.StandardCircuitBreaker
+     */
+    public AgentExecutorBuilder setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        mCircuitBreaker = circuitBreaker;
+        return this;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return mCircuitBreaker;
+    }
+
     /**
      * Build and register a new instance of an AgentExecutor providing defaults for all unspecified values.
      */
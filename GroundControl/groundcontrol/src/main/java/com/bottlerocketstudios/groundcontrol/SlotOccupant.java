@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol;
+
+import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
+import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Execution currently associated with a slot key. The tether and listener are held weakly as the listener
+ * commonly references the slot key itself. While the request is waiting the listener is kept reachable by it.
+ */
+class SlotOccupant {
+
+    private final String mAgentIdentifier;
+    private final WeakReference<AgentTether> mAgentTetherReference;
+    private final WeakReference<AgentListener> mAgentListenerReference;
+
+    public SlotOccupant(AgentTether agentTether, AgentListener agentListener) {
+        mAgentIdentifier = agentTether.getAgentIdentifier();
+        mAgentTetherReference = new WeakReference<>(agentTether);
+        mAgentListenerReference = new WeakReference<>(agentListener);
+    }
+
+    public String getAgentIdentifier() {
+        return mAgentIdentifier;
+    }
+
+    public AgentTether getAgentTether() {
+        return mAgentTetherReference.get();
+    }
+
+    public AgentListener getAgentListener() {
+        return mAgentListenerReference.get();
+    }
+}
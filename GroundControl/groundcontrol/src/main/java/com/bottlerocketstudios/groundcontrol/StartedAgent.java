@@ -20,24 +20,47 @@ import android.os.SystemClock;
 import com.bottlerocketstudios.groundcontrol.agent.Agent;
 import com.bottlerocketstudios.groundcontrol.executor.Job;
 import com.bottlerocketstudios.groundcontrol.executor.JobExecutionListener;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.policy.RetryPolicy;
 import com.bottlerocketstudios.groundcontrol.request.AgentRequest;
 
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Container for Agents which have been sent to the Agent execution pool and not yet completed or
  * timed out.
  */
 class StartedAgent implements JobExecutionListener {
 
-    private final Agent mAgent;
+    private volatile Agent mAgent;
     private final Job mJob;
+    private JobPriority mJobPriority;
+    private Job mContinuationJob;
+    private volatile Job mRunningJob;
+    private long mRequestDeadline;
+    private long mExecutionStartTime;
+    private Agent mHedgeAgent;
+    private Job mHedgeJob;
+    private long mHedgeStartTime;
+    private boolean mCompleted;
+    private final RetryPolicy mRetryPolicy;
+    private int mAttemptCount = 1;
+    private Job mRetryJob;
+    private String mCircuitBreakerGroup;
+    private final Set<String> mChildAgentIdentifierSet = new HashSet<>();
     private long mMaximumDeadline;
     private long mCancellationDeadline;
+    private boolean mDeadlinesSuspended;
     private long mInitialCacheAgeMs;
     private boolean mCancelled;
+    private Runnable mDroppedRunnable;
 
-    private StartedAgent(Agent agent, Job job, long initialCacheAgeMs) {
+    private StartedAgent(Agent agent, Job job, long initialCacheAgeMs, RetryPolicy retryPolicy) {
         mAgent = agent;
+        mRetryPolicy = retryPolicy;
         mJob = job;
+        mJobPriority = job.getPriority();
         mInitialCacheAgeMs = initialCacheAgeMs;
     }
 
@@ -45,10 +68,57 @@ class StartedAgent implements JobExecutionListener {
         return mAgent;
     }
 
+    /**
+     * Replace the primary instance with a new one created for the next retry attempt.
+     */
+    public void setAgent(Agent agent) {
+        mAgent = agent;
+    }
+
     public Job getJob() {
         return mJob;
     }
 
+    /**
+     * Highest priority requested for this Agent. This may be higher than the priority of the Job if it was already running.
+     */
+    public JobPriority getJobPriority() {
+        return mJobPriority;
+    }
+
+    public void setJobPriority(JobPriority jobPriority) {
+        mJobPriority = jobPriority;
+    }
+
+    /**
+     * Most recent continuation Job queued by the Agent after it released its execution slot.
+     */
+    public Job getContinuationJob() {
+        return mContinuationJob;
+    }
+
+    public void setContinuationJob(Job continuationJob) {
+        mContinuationJob = continuationJob;
+    }
+
+    /**
+     * Latest deadline of the requests that have been coalesced into this execution.
+     */
+    public long getRequestDeadline() {
+        return mRequestDeadline;
+    }
+
+    public void extendRequestDeadline(long requestDeadline) {
+        mRequestDeadline = Math.max(mRequestDeadline, requestDeadline);
+    }
+
+    /**
+     * Agents started as children of this Agent which should follow its promotions. Guarded by the AgentExecutor execution lock.
+     */
+    public Set<String> getChildAgentIdentifierSet() {
+        return mChildAgentIdentifierSet;
+    }
+
     public long getInitialCacheAgeMs() {
         return mInitialCacheAgeMs;
     }
@@ -71,10 +141,154 @@ class StartedAgent implements JobExecutionListener {
 
     @Override
     public void onJobExecuted(Job job) {
+        if (job == mHedgeJob) {
+            mHedgeStartTime = getTime();
+            return;
+        }
+        mRunningJob = job;
+        if (job == mContinuationJob && mExecutionStartTime > 0) {
+            //Resuming after a prefetch yield, deadlines were suspended while waiting in the queue and restart now.
+            if (mDeadlinesSuspended) {
+                mDeadlinesSuspended = false;
+                mMaximumDeadline = getTime() + mAgent.getMaximumTimeoutMs();
+                mCancellationDeadline = getTime() + mAgent.getCancelTimeoutMs();
+            }
+            return;
+        }
+        mExecutionStartTime = getTime();
         mMaximumDeadline = getTime() + mAgent.getMaximumTimeoutMs();
         mCancellationDeadline = getTime() + mAgent.getCancelTimeoutMs();
     }
 
+    @Override
+    public void onJobDropped(Job job) {
+        //The primary instance is unaffected if its hedge is dropped.
+        if (job != mHedgeJob && mDroppedRunnable != null) {
+            mDroppedRunnable.run();
+        }
+    }
+
+    /**
+     * Runnable invoked when a queued Job of the primary Agent is dropped from a full queue.
+     */
+    public void setDroppedRunnable(Runnable droppedRunnable) {
+        mDroppedRunnable = droppedRunnable;
+    }
+
+    /**
+     * Return true if the most recently started Job of the primary Agent has been asked to yield its execution slot.
+     */
+    public boolean isYieldRequested() {
+        Job runningJob = mRunningJob;
+        return runningJob != null && runningJob.isYieldRequested();
+    }
+
+    /**
+     * Uptime at which the primary Agent began running or 0 if it is still queued.
+     */
+    public long getExecutionStartTime() {
+        return mExecutionStartTime;
+    }
+
+    /**
+     * Uptime at which the supplied instance began running or 0 if it has not started.
+     */
+    public long getInstanceStartTime(Agent agent) {
+        return agent == mHedgeAgent ? mHedgeStartTime : mExecutionStartTime;
+    }
+
+    public Agent getHedgeAgent() {
+        return mHedgeAgent;
+    }
+
+    public Job getHedgeJob() {
+        return mHedgeJob;
+    }
+
+    public void setHedge(Agent hedgeAgent, Job hedgeJob) {
+        mHedgeAgent = hedgeAgent;
+        mHedgeJob = hedgeJob;
+    }
+
+    /**
+     * RetryPolicy from the request that started this execution or null if it is not retried.
+     */
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    public int getAttemptCount() {
+        return mAttemptCount;
+    }
+
+    /**
+     * Stop counting the Agent's run timeouts while it waits in the queue to resume after a prefetch yield. They
+     * restart when the resume Job is executed.
+     */
+    public void suspendDeadlines() {
+        mDeadlinesSuspended = true;
+        mMaximumDeadline = 0;
+        mCancellationDeadline = 0;
+    }
+
+    /**
+     * Start waiting to retry after a failed attempt. Deadlines are pushed back by the delay so that
+     * time spent waiting is not counted against the Agent's run timeouts.
+     */
+    public int beginRetryDelay(long delayMs) {
+        mMaximumDeadline = getTime() + delayMs + mAgent.getMaximumTimeoutMs();
+        mCancellationDeadline = getTime() + delayMs + mAgent.getCancelTimeoutMs();
+        return ++mAttemptCount;
+    }
+
+    public Job getRetryJob() {
+        return mRetryJob;
+    }
+
+    public void setRetryJob(Job retryJob) {
+        mRetryJob = retryJob;
+    }
+
+    /**
+     * CircuitBreaker group which receives the outcome of this execution.
+     */
+    public String getCircuitBreakerGroup() {
+        return mCircuitBreakerGroup;
+    }
+
+    public void setCircuitBreakerGroup(String circuitBreakerGroup) {
+        mCircuitBreakerGroup = circuitBreakerGroup;
+    }
+
+    /**
+     * Mark this execution as complete. Returns false if it was already completed by another instance.
+     */
+    public synchronized boolean markCompleted() {
+        if (mCompleted) {
+            return false;
+        }
+        mCompleted = true;
+        return true;
+    }
+
+    public synchronized boolean isCompleted() {
+        return mCompleted;
+    }
+
+    /**
+     * Cancel whichever instance of a hedged execution did not deliver.
+     */
+    public void cancelOtherInstances(Agent completedAgent) {
+        if (mHedgeAgent == null) {
+            return;
+        }
+        if (completedAgent == mHedgeAgent) {
+            mAgent.cancel();
+        } else {
+            mHedgeAgent.cancel();
+        }
+    }
+
     public void requestProgressUpdate() {
         mAgent.onProgressUpdateRequested();
     }
@@ -82,6 +296,9 @@ class StartedAgent implements JobExecutionListener {
     public void cancel() {
         mCancelled = true;
         mAgent.cancel();
+        if (mHedgeAgent != null) {
+            mHedgeAgent.cancel();
+        }
     }
 
     public boolean isCancelled() {
@@ -105,10 +322,13 @@ class StartedAgent implements JobExecutionListener {
             throw new IllegalArgumentException("An Agent's maximumTimeout must be higher than both run and cancellation timeouts.");
         }
 
-        return new StartedAgent(
+        StartedAgent startedAgent = new StartedAgent(
                 agent,
                 agentJob,
-                agentRequest.getMaxCacheAgeMs());
+                agentRequest.getMaxCacheAgeMs(),
+                agentRequest.getRetryPolicy());
+        startedAgent.extendRequestDeadline(agentRequest.getDeadline());
+        return startedAgent;
     }
 
 }
@@ -106,6 +106,23 @@ public abstract class AbstractAgent<ResultType, ProgressType> implements Agent<R
         mAgentExecutor = agentExecutor;
     }
 
+    /**
+     * Return true if this Agent is running at PREFETCH priority and higher priority work is waiting. Check
+     * this between chunks of work and call {@link #yieldExecution()} then return from run() when it is true.
+     */
+    protected boolean shouldYield() {
+        return mAgentExecutor != null && mAgentExecutor.shouldYield(getUniqueIdentifier());
+    }
+
+    /**
+     * Give up the execution slot and have run() called again once the pool is otherwise idle. Keep any partial
+     * work in fields to continue from it, or discard it to start over. Return from run() without notifying
+     * completion after this returns true.
+     */
+    protected boolean yieldExecution() {
+        return mAgentExecutor != null && mAgentExecutor.yieldAgent(getUniqueIdentifier(), this);
+    }
+
     /**
      * Call to notify the listener of completion.
      */
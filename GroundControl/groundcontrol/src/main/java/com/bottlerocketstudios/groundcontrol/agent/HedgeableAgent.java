@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.agent;
+
+/**
+ * An Agent that can create a duplicate of itself for hedged execution. When an AgentPolicy specifies
+ * a hedge delay and this Agent has not completed within it, a duplicate is started and whichever
+ * instance completes first is delivered while the other is cancelled.
+ */
+public interface HedgeableAgent<ResultType, ProgressType> extends Agent<ResultType, ProgressType> {
+    /**
+     * Create a new instance that performs the same work with the same unique identifier. Return null
+     * to decline hedging for this execution.
+     */
+    Agent<ResultType, ProgressType> createHedge();
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.agent;
+
+/**
+ * An Agent that can create a new instance of itself for another attempt under a
+ * {@link com.bottlerocketstudios.groundcontrol.policy.RetryPolicy}. Agents which keep state from a previous
+ * run() and cannot be run twice implement this so that each retry starts from a fresh instance. Other Agents
+ * are run again as the same instance.
+ */
+public interface RetryableAgent<ResultType, ProgressType> extends Agent<ResultType, ProgressType> {
+    /**
+     * Create a new instance that performs the same work with the same unique identifier. Return null
+     * to decline retrying, the result of the previous attempt will be delivered.
+     */
+    Agent<ResultType, ProgressType> createRetry();
+}
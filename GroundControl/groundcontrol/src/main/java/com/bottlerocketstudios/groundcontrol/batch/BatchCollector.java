@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.batch;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects BatchingAgents of one batch group on one AgentExecutor into pending batches and executes each
+ * batch as a single {@link BatchExecutionAgent}.
+ */
+class BatchCollector {
+
+    private static final ConcurrentHashMap<String, BatchCollector> sBatchCollectorMap = new ConcurrentHashMap<>();
+
+    private final AgentExecutor mAgentExecutor;
+    private final String mBatchGroup;
+    private List<BatchingAgent> mPendingBatch;
+
+    private BatchCollector(AgentExecutor agentExecutor, String batchGroup) {
+        mAgentExecutor = agentExecutor;
+        mBatchGroup = batchGroup;
+    }
+
+    static BatchCollector getInstance(AgentExecutor agentExecutor, String batchGroup) {
+        String collectorKey = agentExecutor.getId() + "/" + batchGroup;
+        BatchCollector batchCollector = sBatchCollectorMap.get(collectorKey);
+        if (batchCollector == null) {
+            batchCollector = new BatchCollector(agentExecutor, batchGroup);
+            BatchCollector existingCollector = sBatchCollectorMap.putIfAbsent(collectorKey, batchCollector);
+            if (existingCollector != null) {
+                batchCollector = existingCollector;
+            }
+        }
+        return batchCollector;
+    }
+
+    /**
+     * Add an item to the pending batch, opening a new batch window if there is none.
+     */
+    void add(BatchingAgent batchingAgent) {
+        List<BatchingAgent> fullBatch = null;
+        synchronized (this) {
+            if (mPendingBatch == null) {
+                final List<BatchingAgent> pendingBatch = new ArrayList<>();
+                mPendingBatch = pendingBatch;
+                mAgentExecutor.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(pendingBatch);
+                    }
+                }, batchingAgent.getBatchWindowMs());
+            }
+            mPendingBatch.add(batchingAgent);
+            if (mPendingBatch.size() >= batchingAgent.getMaxBatchSize()) {
+                fullBatch = mPendingBatch;
+                mPendingBatch = null;
+            }
+        }
+
+        if (fullBatch != null) {
+            executeBatch(fullBatch);
+        }
+    }
+
+    /**
+     * Remove an item which has not yet been sent in a batch.
+     */
+    synchronized void remove(BatchingAgent batchingAgent) {
+        if (mPendingBatch != null) {
+            mPendingBatch.remove(batchingAgent);
+        }
+    }
+
+    private void flush(List<BatchingAgent> pendingBatch) {
+        synchronized (this) {
+            if (mPendingBatch != pendingBatch) {
+                //Already executed because it filled up.
+                return;
+            }
+            mPendingBatch = null;
+        }
+        executeBatch(pendingBatch);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void executeBatch(final List<BatchingAgent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        //Run at the most urgent priority of the items in the batch.
+        JobPriority batchPriority = JobPriority.PREFETCH;
+        for (BatchingAgent batchingAgent : batch) {
+            JobPriority agentPriority = mAgentExecutor.getAgentPriority(batchingAgent.getUniqueIdentifier());
+            if (agentPriority != null && agentPriority.compareTo(batchPriority) < 0) {
+                batchPriority = agentPriority;
+            }
+        }
+
+        GroundControl.bgAgent(mAgentExecutor, new BatchExecutionAgent(mBatchGroup, batch))
+                .bgDirectCallback(new FunctionalAgentListener<Map<Object, Object>, Void>() {
+                    @Override
+                    public void onCompletion(String agentIdentifier, Map<Object, Object> result) {
+                        for (BatchingAgent batchingAgent : batch) {
+                            batchingAgent.deliverResult(result != null ? result.get(batchingAgent.getKey()) : null);
+                        }
+                    }
+                })
+                .priority(batchPriority)
+                .disableCache()
+                .execute();
+    }
+}
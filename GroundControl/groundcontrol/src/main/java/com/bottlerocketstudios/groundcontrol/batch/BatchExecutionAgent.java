@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.batch;
+
+import android.util.Log;
+
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Agent which loads one batch of keys using the first BatchingAgent in the batch.
+ */
+class BatchExecutionAgent extends AbstractAgent<Map<Object, Object>, Void> {
+    private static final String TAG = BatchExecutionAgent.class.getSimpleName();
+
+    private static final AtomicLong sBatchSequence = new AtomicLong();
+
+    private final String mUniqueIdentifier;
+    private final List<BatchingAgent> mBatch;
+
+    BatchExecutionAgent(String batchGroup, List<BatchingAgent> batch) {
+        mUniqueIdentifier = batchGroup + ".batch" + sBatchSequence.incrementAndGet();
+        mBatch = batch;
+        BatchingAgent loaderAgent = batch.get(0);
+        setRunTimeoutMs(loaderAgent.getRunTimeoutMs());
+        setCancelTimeoutMs(loaderAgent.getCancelTimeoutMs());
+        setMaximumTimeoutMs(loaderAgent.getMaximumTimeoutMs());
+    }
+
+    @Override
+    public String getUniqueIdentifier() {
+        return mUniqueIdentifier;
+    }
+
+    @Override
+    public void cancel() {}
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void run() {
+        //Items cancelled after the batch was sent are skipped. Duplicate keys are loaded once.
+        Set<Object> keySet = new LinkedHashSet<>();
+        for (BatchingAgent batchingAgent : mBatch) {
+            if (!batchingAgent.isDelivered()) {
+                keySet.add(batchingAgent.getKey());
+            }
+        }
+
+        Map<Object, Object> result = null;
+        if (!keySet.isEmpty()) {
+            try {
+                result = mBatch.get(0).loadBatch(new ArrayList<>(keySet));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Batch " + mUniqueIdentifier + " failed", e);
+            }
+        }
+        notifyCompletion(result);
+    }
+}
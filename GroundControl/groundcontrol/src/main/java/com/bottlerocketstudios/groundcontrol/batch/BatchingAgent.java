@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.batch;
+
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Agent for a single keyed item which is loaded together with other items of the same batch group. Each
+ * instance runs and is coalesced and cached under its own unique identifier, but rather than doing work
+ * in run() it joins a pending batch. The batch is executed with one call to {@link #loadBatch(List)} once
+ * the batch window elapses or the maximum batch size is reached and each result is delivered to the
+ * Agent for its key.
+ *
+ * <p>The unique identifier must be derived from the key so that requests for the same key coalesce.</p>
+ */
+public abstract class BatchingAgent<KeyType, ResultType> extends AbstractAgent<ResultType, Void> {
+
+    private static final long DEFAULT_BATCH_WINDOW_MS = 16;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
+    private final KeyType mKey;
+    private final AtomicBoolean mDelivered = new AtomicBoolean();
+    private volatile boolean mCancelled;
+
+    protected BatchingAgent(KeyType key) {
+        mKey = key;
+    }
+
+    public KeyType getKey() {
+        return mKey;
+    }
+
+    /**
+     * Load every key in a batch. This is called on a background thread on one Agent of the batch and
+     * should return results mapped by key. Keys missing from the Map or a null Map are delivered as null.
+     */
+    public abstract Map<KeyType, ResultType> loadBatch(List<KeyType> keyList);
+
+    /**
+     * Time to wait for more items after the first item of a batch arrives.
+     */
+    public long getBatchWindowMs() {
+        return DEFAULT_BATCH_WINDOW_MS;
+    }
+
+    /**
+     * Number of items which causes the batch to execute without waiting for the rest of the window.
+     */
+    public int getMaxBatchSize() {
+        return DEFAULT_MAX_BATCH_SIZE;
+    }
+
+    /**
+     * Agents are only batched with others in the same group. Defaults to the class name.
+     */
+    public String getBatchGroup() {
+        return getClass().getName();
+    }
+
+    @Override
+    public void run() {
+        if (mCancelled) {
+            return;
+        }
+        mDelivered.set(false);
+        BatchCollector.getInstance(getAgentExecutor(), getBatchGroup()).add(this);
+    }
+
+    @Override
+    public void cancel() {
+        mCancelled = true;
+        BatchCollector.getInstance(getAgentExecutor(), getBatchGroup()).remove(this);
+        deliverResult(null);
+    }
+
+    @Override
+    public void onProgressUpdateRequested() {}
+
+    /**
+     * Deliver the result for this item once per run.
+     */
+    void deliverResult(ResultType result) {
+        if (mDelivered.compareAndSet(false, true)) {
+            notifyCompletion(result);
+        }
+    }
+
+    boolean isDelivered() {
+        return mDelivered.get();
+    }
+}
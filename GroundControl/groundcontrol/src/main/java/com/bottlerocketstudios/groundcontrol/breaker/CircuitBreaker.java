@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.breaker;
+
+/**
+ * Tracks failures for groups of Agents that share a backend and decides whether new executions for a
+ * group may start. Groups default to the Agent class name.
+ */
+public interface CircuitBreaker {
+    /**
+     * Return true if a new execution for the group may start. When the breaker is open and ready to
+     * probe this admits a single trial execution.
+     */
+    boolean allowExecution(String group);
+
+    void recordSuccess(String group);
+
+    /**
+     * Record a failed result or timeout for the group.
+     */
+    void recordFailure(String group);
+
+    CircuitState getState(String group);
+}
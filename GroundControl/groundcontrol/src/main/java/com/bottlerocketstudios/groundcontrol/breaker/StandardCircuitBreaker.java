@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.breaker;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CircuitBreaker which opens a group after a number of failures within a sliding window. Once the open
+ * duration has elapsed one probe execution is admitted; success closes the circuit and failure reopens it.
+ */
+public class StandardCircuitBreaker implements CircuitBreaker {
+    private static final String TAG = StandardCircuitBreaker.class.getSimpleName();
+
+    private final int mFailureThreshold;
+    private final long mFailureWindowMs;
+    private final long mOpenDurationMs;
+    private final Map<String, GroupState> mGroupStateMap = new HashMap<>();
+
+    private StandardCircuitBreaker(Builder builder) {
+        mFailureThreshold = builder.failureThreshold;
+        mFailureWindowMs = builder.failureWindowMs;
+        mOpenDurationMs = builder.openDurationMs;
+    }
+
+    private long getTime() {
+        return SystemClock.uptimeMillis();
+    }
+
+    private GroupState getGroupState(String group) {
+        GroupState groupState = mGroupStateMap.get(group);
+        if (groupState == null) {
+            groupState = new GroupState();
+            mGroupStateMap.put(group, groupState);
+        }
+        return groupState;
+    }
+
+    @Override
+    public boolean allowExecution(String group) {
+        synchronized (mGroupStateMap) {
+            GroupState groupState = mGroupStateMap.get(group);
+            if (groupState == null || groupState.state == CircuitState.CLOSED) {
+                return true;
+            }
+
+            //Admit a probe once the circuit has been open long enough or a previous probe never reported back.
+            if (getTime() - groupState.stateTime >= mOpenDurationMs) {
+                Log.i(TAG, "Probing " + group);
+                groupState.setState(CircuitState.HALF_OPEN, getTime());
+                return true;
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void recordSuccess(String group) {
+        synchronized (mGroupStateMap) {
+            GroupState groupState = mGroupStateMap.get(group);
+            if (groupState != null && groupState.state == CircuitState.HALF_OPEN) {
+                Log.i(TAG, "Closing " + group);
+                mGroupStateMap.remove(group);
+            }
+        }
+    }
+
+    @Override
+    public void recordFailure(String group) {
+        synchronized (mGroupStateMap) {
+            GroupState groupState = getGroupState(group);
+            long now = getTime();
+            if (groupState.state == CircuitState.HALF_OPEN) {
+                Log.w(TAG, "Probe failed, reopening " + group);
+                groupState.setState(CircuitState.OPEN, now);
+            } else if (groupState.state == CircuitState.CLOSED) {
+                groupState.failureTimes.addLast(now);
+                while (now - groupState.failureTimes.peekFirst() > mFailureWindowMs) {
+                    groupState.failureTimes.removeFirst();
+                }
+                if (groupState.failureTimes.size() >= mFailureThreshold) {
+                    Log.w(TAG, "Opening " + group + " after " + groupState.failureTimes.size() + " failures");
+                    groupState.setState(CircuitState.OPEN, now);
+                }
+            }
+        }
+    }
+
+    @Override
+    public CircuitState getState(String group) {
+        synchronized (mGroupStateMap) {
+            GroupState groupState = mGroupStateMap.get(group);
+            return groupState != null ? groupState.state : CircuitState.CLOSED;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private static class GroupState {
+        private final ArrayDeque<Long> failureTimes = new ArrayDeque<>();
+        private CircuitState state = CircuitState.CLOSED;
+        private long stateTime;
+
+        private void setState(CircuitState state, long stateTime) {
+            this.state = state;
+            this.stateTime = stateTime;
+            failureTimes.clear();
+        }
+    }
+
+    public static class Builder {
+        private static final int DEFAULT_FAILURE_THRESHOLD = 5;
+        private static final long DEFAULT_FAILURE_WINDOW_MS = TimeUnit.SECONDS.toMillis(30);
+        private static final long DEFAULT_OPEN_DURATION_MS = TimeUnit.SECONDS.toMillis(15);
+
+        private int failureThreshold;
+        private long failureWindowMs;
+        private long openDurationMs;
+
+        /**
+         * Number of failures within the failure window which opens the circuit.
+         */
+        public Builder setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * Sliding window in which failures are counted.
+         */
+        public Builder setFailureWindowMs(long failureWindowMs) {
+            this.failureWindowMs = failureWindowMs;
+            return this;
+        }
+
+        /**
+         * Time the circuit stays open before a probe execution is admitted.
+         */
+        public Builder setOpenDurationMs(long openDurationMs) {
+            this.openDurationMs = openDurationMs;
+            return this;
+        }
+
+        public StandardCircuitBreaker build() {
+            if (failureThreshold <= 0) {
+                setFailureThreshold(DEFAULT_FAILURE_THRESHOLD);
+            }
+
+            if (failureWindowMs <= 0) {
+                setFailureWindowMs(DEFAULT_FAILURE_WINDOW_MS);
+            }
+
+            if (openDurationMs <= 0) {
+                setOpenDurationMs(DEFAULT_OPEN_DURATION_MS);
+            }
+
+            return new StandardCircuitBreaker(this);
+        }
+    }
+}
@@ -23,5 +23,9 @@ package com.bottlerocketstudios.groundcontrol.cache;
 public interface AgentResultCache {
     <ResultType> void put(String agentIdentifier, ResultType value, long initialCacheLifetimeMs);
     <ResultType> ResultType get(String agentIdentifier, long requestCacheLifetimeMs);
+    /**
+     * Return a retained value regardless of the age requested by clients or null if it has been discarded.
+     */
+    <ResultType> ResultType getStale(String agentIdentifier);
     void removeCache(String agentIdentifier);
 }
@@ -77,6 +77,21 @@ public class StandardAgentResultCache implements AgentResultCache, InactivityCle
         return result;
     }
 
+    @Override
+    public <ResultType> ResultType getStale(String agentIdentifier) {
+        ResultType result = null;
+        try {
+            @SuppressWarnings("unchecked")
+            CachedAgentResult<ResultType> cachedAgentResult = mCacheMap.get(agentIdentifier);
+            if (cachedAgentResult != null) {
+                result = cachedAgentResult.getValue();
+            }
+        } catch (ClassCastException e) {
+            Log.e(TAG, "Cached object was an unexpected type", e);
+        }
+        return result;
+    }
+
     public void cleanStaleCache() {
         synchronized (mCacheMap) {
             for (Iterator<String> cacheMapKeyIterator = mCacheMap.keySet().iterator(); cacheMapKeyIterator.hasNext(); ) {
@@ -27,6 +27,8 @@ public class AgentPolicyCache {
     public static final String POLICY_IDENTIFIER_UI = "uiPolicy";
     public static final String POLICY_IDENTIFIER_BG_SERIAL = "bgSerial";
     public static final String POLICY_IDENTIFIER_BG_PARALLEL = "bgParallel";
+    public static final String POLICY_IDENTIFIER_BG_DIRECT = "bgDirect";
+    public static final String POLICY_IDENTIFIER_BG_SHARDED_SERIAL = "bgShardedSerial";
 
     private final Map<String, AgentPolicy> mAgentPolicyMap = new ConcurrentHashMap<>();
 
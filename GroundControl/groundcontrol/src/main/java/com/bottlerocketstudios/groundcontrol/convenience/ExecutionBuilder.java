@@ -17,8 +17,10 @@ package com.bottlerocketstudios.groundcontrol.convenience;
 
 import com.bottlerocketstudios.groundcontrol.agent.Agent;
 import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
 import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
 import com.bottlerocketstudios.groundcontrol.policy.AgentPolicy;
+import com.bottlerocketstudios.groundcontrol.policy.RetryPolicy;
 import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
 
 /**
@@ -72,6 +74,20 @@ public interface ExecutionBuilder<ResultType, ProgressType> {
      */
     ExecutionBuilder<ResultType, ProgressType> bgSerialPolicy();
 
+    /**
+     * Select the default Background Direct Policy as a baseline policy for this ExecutionBuilder from the AgentPolicyCache.
+     *
+     * @see ExecutionBuilder#policy(AgentPolicy)
+     */
+    ExecutionBuilder<ResultType, ProgressType> bgDirectPolicy();
+
+    /**
+     * Select the default Background Sharded Serial Policy as a baseline policy for this ExecutionBuilder from the AgentPolicyCache.
+     *
+     * @see ExecutionBuilder#policy(AgentPolicy)
+     */
+    ExecutionBuilder<ResultType, ProgressType> bgShardedSerialPolicy();
+
     /**
      * Provide a listener to be called back on the UI thread Looper. This will modify any existing policy
      * to set that callback looper. If no policy method has been called, it should call {@link ExecutionBuilder#uiPolicy()}.
@@ -101,6 +117,30 @@ public interface ExecutionBuilder<ResultType, ProgressType> {
      */
     ExecutionBuilder<ResultType, ProgressType> bgSerialCallback(AgentListener<ResultType, ProgressType> agentListener);
 
+    /**
+     * Provide a listener to be called back directly on the thread that delivers the result, usually the
+     * Agent's own thread, without being queued on the listener thread pool. Use this for cheap listeners
+     * such as one Agent handing its result to another. Listeners that exceed the direct callback budget
+     * fall back to parallel delivery. If no policy method has been called, it should call {@link ExecutionBuilder#bgDirectPolicy()}.
+     *
+     * <p><strong>Note:</strong> It is recommended to call this method before other methods if you do not explicitly set a policy.</p>
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setDirectBackgroundCallback(boolean)
+     */
+    ExecutionBuilder<ResultType, ProgressType> bgDirectCallback(AgentListener<ResultType, ProgressType> agentListener);
+
+    /**
+     * Provide a listener to be called back serially on one of several background Looper lanes for this AgentExecutor.
+     * Callbacks with the same ordering key, the agentIdentifier unless {@link #orderingKey(String)} is used, are
+     * delivered FIFO on the same lane while other keys are delivered in parallel on other lanes. If no policy
+     * method has been called, it should call {@link ExecutionBuilder#bgShardedSerialPolicy()}.
+     *
+     * <p><strong>Note:</strong> It is recommended to call this method before other methods if you do not explicitly set a policy.</p>
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setSerialCallbackLaneCount(int)
+     */
+    ExecutionBuilder<ResultType, ProgressType> bgShardedSerialCallback(AgentListener<ResultType, ProgressType> agentListener);
+
     /**
      * Set the priority for this operation and its callbacks.
      *
@@ -153,6 +193,82 @@ public interface ExecutionBuilder<ResultType, ProgressType> {
      */
     ExecutionBuilder<ResultType, ProgressType> parallelCallbackTimeout(long timeoutMs);
 
+    /**
+     * Set the key used to select a serial callback lane. Callbacks sharing an ordering key are delivered in order.
+     *
+     * @see ExecutionBuilder#bgShardedSerialCallback(AgentListener)
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setCallbackOrderingKey(String)
+     */
+    ExecutionBuilder<ResultType, ProgressType> orderingKey(String orderingKey);
+
+    /**
+     * Start a second instance of a {@link com.bottlerocketstudios.groundcontrol.agent.HedgeableAgent} if it has
+     * not completed this long after it began running and deliver whichever completes first.
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setHedgeDelayMs(long)
+     */
+    ExecutionBuilder<ResultType, ProgressType> hedge(long hedgeDelayMs);
+
+    /**
+     * Hedge once the Agent has run longer than the supplied percentile of its observed runtimes, using
+     * the fallback delay until enough runtimes have been observed.
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setHedgeLatencyPercentile(int)
+     */
+    ExecutionBuilder<ResultType, ProgressType> hedgeAtPercentile(int latencyPercentile, long fallbackHedgeDelayMs);
+
+    /**
+     * Run the Agent again after a backoff delay when it delivers a result the RetryPolicy considers retryable.
+     * No worker thread is held while waiting.
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setRetryPolicy(RetryPolicy)
+     */
+    ExecutionBuilder<ResultType, ProgressType> retry(RetryPolicy retryPolicy);
+
+    /**
+     * Count failures of this Agent against the supplied CircuitBreaker group instead of its class name.
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setCircuitBreakerGroup(String)
+     */
+    ExecutionBuilder<ResultType, ProgressType> circuitBreakerGroup(String circuitBreakerGroup);
+
+    /**
+     * Run the Agent in a concurrency group limited by the AgentExecutor's execution service.
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setConcurrencyGroup(String)
+     */
+    ExecutionBuilder<ResultType, ProgressType> concurrencyGroup(String concurrencyGroup);
+
+    /**
+     * Start the Agent no faster than the rate configured for the group on the AgentExecutor's execution service.
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setRateLimitGroup(String)
+     */
+    ExecutionBuilder<ResultType, ProgressType> rateLimitGroup(String rateLimitGroup);
+
+    /**
+     * Share execution slots fairly with other keys at the same priority when the AgentExecutor's execution
+     * service has fair share enabled. Executions with a UI object use a key for that object unless one is supplied.
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setFairShareKey(String)
+     */
+    ExecutionBuilder<ResultType, ProgressType> fairShareKey(String fairShareKey);
+
+    /**
+     * Execute as a child of an Agent already running on the same AgentExecutor. The child runs at no lower
+     * priority than the parent, follows later promotions of the parent, and its timeout is limited to the
+     * time remaining before the parent's latest request deadline.
+     */
+    ExecutionBuilder<ResultType, ProgressType> parentAgent(String parentAgentIdentifier);
+
+    /**
+     * Associate this execution with a slot such as the View of a recycled list row. Executing again for an equal
+     * slot key on the same AgentExecutor releases the previous execution for that slot and, if no other requests
+     * are waiting for its Agent, removes it from the queue before it reaches a worker thread. A running Agent is
+     * allowed to complete. Slot keys are held weakly.
+     */
+    ExecutionBuilder<ResultType, ProgressType> slotKey(Object slotKey);
+
     /**
      * Set the one-time execution identifier for this operation. Calling this method has side-effects,
      * when building, it will update the policy such that it will not bypass cache, not clear cache and has
@@ -176,4 +292,13 @@ public interface ExecutionBuilder<ResultType, ProgressType> {
      * operations
      */
     AgentTether execute();
+
+    /**
+     * Call this method last instead of supplying a listener and calling {@link #execute()}. The returned
+     * AgentFuture is completed with the Agent's result and can be composed with further stages that run
+     * inline on the completing thread. Cancelling the future cancels the underlying AgentTether. If no
+     * policy method has been called, it should call {@link ExecutionBuilder#bgDirectPolicy()} so the
+     * future is completed directly on the Agent's thread.
+     */
+    AgentFuture<ResultType> executeAsFuture();
 }
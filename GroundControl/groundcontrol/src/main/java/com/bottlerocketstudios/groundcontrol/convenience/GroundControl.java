@@ -267,6 +267,44 @@ public class GroundControl {
         getUiInformationContainer(agentExecutorId).onDestroy(uiObject);
     }
 
+    /**
+     * Call this method when your UI moves to the background to lower the priority of its queued Agents to LOW
+     * so that work for the foreground UI is started first. Agents which are also requested at a higher priority
+     * by other callers are not demoted. Agents executed for the uiObject while it is paused are queued at their
+     * policy priority and demoted to LOW as soon as their tether is added to the paused UI.
+     * This method uses the default AgentExecutor {@link GroundControl#setDefaultAgentExecutorId(String)}
+     *
+     * @param uiObject The current Activity or Fragment.
+     */
+    public static void onPause(Object uiObject) {
+        onPause(sDefaultAgentExecutorId, uiObject);
+    }
+
+    /**
+     * Full documentation {@link GroundControl#onPause(Object)}
+     */
+    public static void onPause(String agentExecutorId, Object uiObject) {
+        getUiInformationContainer(agentExecutorId).onPause(uiObject);
+    }
+
+    /**
+     * Call this method when your UI returns to the foreground to restore the priority of its queued Agents
+     * after {@link GroundControl#onPause(Object)}. This method uses the default AgentExecutor
+     * {@link GroundControl#setDefaultAgentExecutorId(String)}
+     *
+     * @param uiObject The current Activity or Fragment.
+     */
+    public static void onResume(Object uiObject) {
+        onResume(sDefaultAgentExecutorId, uiObject);
+    }
+
+    /**
+     * Full documentation {@link GroundControl#onResume(Object)}
+     */
+    public static void onResume(String agentExecutorId, Object uiObject) {
+        getUiInformationContainer(agentExecutorId).onResume(uiObject);
+    }
+
     /**
      * You must call this method when completing a one-time operation. This prevents attempted re-attach
      * and redelivery of results when the result has already been consumed. This method uses the default
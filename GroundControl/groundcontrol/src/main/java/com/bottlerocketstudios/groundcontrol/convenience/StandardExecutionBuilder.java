@@ -21,11 +21,14 @@ import android.util.Log;
 import com.bottlerocketstudios.groundcontrol.AgentExecutor;
 import com.bottlerocketstudios.groundcontrol.agent.Agent;
 import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.future.AgentFuture;
+import com.bottlerocketstudios.groundcontrol.future.FutureAgentListener;
 import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
 import com.bottlerocketstudios.groundcontrol.looper.LooperController;
 import com.bottlerocketstudios.groundcontrol.policy.AgentPolicy;
 import com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder;
 import com.bottlerocketstudios.groundcontrol.policy.StandardAgentPolicyBuilder;
+import com.bottlerocketstudios.groundcontrol.policy.RetryPolicy;
 import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
 
 import java.util.concurrent.TimeUnit;
@@ -51,6 +54,8 @@ public class StandardExecutionBuilder<ResultType, ProgressType> implements Execu
     private AgentPolicyBuilder mAgentPolicyBuilder;
     private Object mUiObject;
     private String mOneTimeId;
+    private String mParentAgentIdentifier;
+    private Object mSlotKey;
 
     /**
      * Constructor for use with normal Agent creation.
@@ -150,6 +155,16 @@ public class StandardExecutionBuilder<ResultType, ProgressType> implements Execu
         return policy(AgentPolicyCache.POLICY_IDENTIFIER_BG_SERIAL);
     }
 
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> bgDirectPolicy() {
+        return policy(AgentPolicyCache.POLICY_IDENTIFIER_BG_DIRECT);
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> bgShardedSerialPolicy() {
+        return policy(AgentPolicyCache.POLICY_IDENTIFIER_BG_SHARDED_SERIAL);
+    }
+
     @Override
     public ExecutionBuilder<ResultType, ProgressType> uiCallback(AgentListener<ResultType, ProgressType> agentListener) {
         if (mAgentListener != null) {
@@ -205,6 +220,47 @@ public class StandardExecutionBuilder<ResultType, ProgressType> implements Execu
         return this;
     }
 
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> bgDirectCallback(AgentListener<ResultType, ProgressType> agentListener) {
+        if (mAgentListener != null) {
+            throw new IllegalStateException("Cannot specify more than one listener");
+        }
+
+        if (!hasAgentPolicy()) {
+            bgDirectPolicy();
+        }
+
+        if (!getAgentPolicy().isDirectBackgroundCallback()) {
+            getAgentPolicyBuilder().setDirectBackgroundCallback(true);
+        }
+
+        mAgentListener = agentListener;
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> bgShardedSerialCallback(AgentListener<ResultType, ProgressType> agentListener) {
+        if (mAgentListener != null) {
+            throw new IllegalStateException("Cannot specify more than one listener");
+        }
+
+        if (!hasAgentPolicy()) {
+            bgShardedSerialPolicy();
+        }
+
+        String backgroundLooperId = AgentExecutor.getInstance(mAgentExecutorId).getBackgroundLooperId();
+        if (!backgroundLooperId.equals(getAgentPolicy().getCallbackLooperId())) {
+            getAgentPolicyBuilder().setCallbackLooperId(backgroundLooperId);
+        }
+
+        if (getAgentPolicy().getSerialCallbackLaneCount() <= 1) {
+            getAgentPolicyBuilder().setSerialCallbackLaneCount(mAgentPolicyCache.get(AgentPolicyCache.POLICY_IDENTIFIER_BG_SHARDED_SERIAL).getSerialCallbackLaneCount());
+        }
+
+        mAgentListener = agentListener;
+        return this;
+    }
+
     @Override
     public ExecutionBuilder<ResultType, ProgressType> priority(JobPriority jobPriority) {
         if (!hasAgentPolicy()) {
@@ -284,6 +340,111 @@ public class StandardExecutionBuilder<ResultType, ProgressType> implements Execu
         return this;
     }
 
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> orderingKey(String orderingKey) {
+        if (!hasAgentPolicy()) {
+            throw new IllegalStateException("You must establish a baseline policy first see policy method documentation.");
+        }
+
+        if (!TextUtils.equals(getAgentPolicy().getCallbackOrderingKey(), orderingKey)) {
+            getAgentPolicyBuilder().setCallbackOrderingKey(orderingKey);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> hedge(long hedgeDelayMs) {
+        if (!hasAgentPolicy()) {
+            throw new IllegalStateException("You must establish a baseline policy first see policy method documentation.");
+        }
+
+        if (getAgentPolicy().getHedgeDelayMs() != hedgeDelayMs) {
+            getAgentPolicyBuilder().setHedgeDelayMs(hedgeDelayMs);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> hedgeAtPercentile(int latencyPercentile, long fallbackHedgeDelayMs) {
+        hedge(fallbackHedgeDelayMs);
+        if (getAgentPolicy().getHedgeLatencyPercentile() != latencyPercentile) {
+            getAgentPolicyBuilder().setHedgeLatencyPercentile(latencyPercentile);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> retry(RetryPolicy retryPolicy) {
+        if (!hasAgentPolicy()) {
+            throw new IllegalStateException("You must establish a baseline policy first see policy method documentation.");
+        }
+
+        if (getAgentPolicy().getRetryPolicy() != retryPolicy) {
+            getAgentPolicyBuilder().setRetryPolicy(retryPolicy);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> circuitBreakerGroup(String circuitBreakerGroup) {
+        if (!hasAgentPolicy()) {
+            throw new IllegalStateException("You must establish a baseline policy first see policy method documentation.");
+        }
+
+        if (!TextUtils.equals(getAgentPolicy().getCircuitBreakerGroup(), circuitBreakerGroup)) {
+            getAgentPolicyBuilder().setCircuitBreakerGroup(circuitBreakerGroup);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> concurrencyGroup(String concurrencyGroup) {
+        if (!hasAgentPolicy()) {
+            throw new IllegalStateException("You must establish a baseline policy first see policy method documentation.");
+        }
+
+        if (!TextUtils.equals(getAgentPolicy().getConcurrencyGroup(), concurrencyGroup)) {
+            getAgentPolicyBuilder().setConcurrencyGroup(concurrencyGroup);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> rateLimitGroup(String rateLimitGroup) {
+        if (!hasAgentPolicy()) {
+            throw new IllegalStateException("You must establish a baseline policy first see policy method documentation.");
+        }
+
+        if (!TextUtils.equals(getAgentPolicy().getRateLimitGroup(), rateLimitGroup)) {
+            getAgentPolicyBuilder().setRateLimitGroup(rateLimitGroup);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> fairShareKey(String fairShareKey) {
+        if (!hasAgentPolicy()) {
+            throw new IllegalStateException("You must establish a baseline policy first see policy method documentation.");
+        }
+
+        if (!TextUtils.equals(getAgentPolicy().getFairShareKey(), fairShareKey)) {
+            getAgentPolicyBuilder().setFairShareKey(fairShareKey);
+        }
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> parentAgent(String parentAgentIdentifier) {
+        mParentAgentIdentifier = parentAgentIdentifier;
+        return this;
+    }
+
+    @Override
+    public ExecutionBuilder<ResultType, ProgressType> slotKey(Object slotKey) {
+        mSlotKey = slotKey;
+        return this;
+    }
+
     @Override
     public ExecutionBuilder<ResultType, ProgressType> oneTime(String oneTimeIdentifier) {
         mOneTimeId = oneTimeIdentifier;
@@ -301,10 +462,18 @@ public class StandardExecutionBuilder<ResultType, ProgressType> implements Execu
         build();
         AgentTether agentTether;
         AgentPolicy agentPolicy = getAgentPolicy();
+        AgentExecutor agentExecutor = AgentExecutor.getInstance(mAgentExecutorId);
         if (mReattach) {
-            agentTether = AgentExecutor.getInstance(mAgentExecutorId).reattachToOneTimeAgent(mReattachAgentIdentifier, agentPolicy, mAgentListener);
+            agentTether = agentExecutor.reattachToOneTimeAgent(mReattachAgentIdentifier, agentPolicy, mAgentListener);
         } else {
-            agentTether = AgentExecutor.getInstance(mAgentExecutorId).runAgent(mAgent, agentPolicy, mAgentListener);
+            if (!TextUtils.isEmpty(mParentAgentIdentifier)) {
+                agentExecutor.registerChildAgent(mParentAgentIdentifier, mAgent.getUniqueIdentifier());
+            }
+            agentTether = agentExecutor.runAgent(mAgent, agentPolicy, mAgentListener);
+        }
+
+        if (mSlotKey != null) {
+            agentExecutor.occupySlot(mSlotKey, agentTether, mAgentListener);
         }
 
         if (mUiObject != null) {
@@ -313,6 +482,42 @@ public class StandardExecutionBuilder<ResultType, ProgressType> implements Execu
         return agentTether;
     }
 
+    @Override
+    public AgentFuture<ResultType> executeAsFuture() {
+        if (mAgentListener != null) {
+            throw new IllegalStateException("Cannot specify a listener when executing as a future");
+        }
+
+        if (!hasAgentPolicy()) {
+            bgDirectPolicy();
+        }
+
+        AgentFuture<ResultType> agentFuture = new AgentFuture<>();
+        mAgentListener = new FutureAgentListener<>(agentFuture);
+        agentFuture.setAgentTether(execute());
+        return agentFuture;
+    }
+
+    /**
+     * Raise priority to match the parent and limit the timeout to the parent's remaining deadline.
+     */
+    private void inheritFromParentAgent() {
+        AgentExecutor agentExecutor = AgentExecutor.getInstance(mAgentExecutorId);
+        JobPriority parentPriority = agentExecutor.getAgentPriority(mParentAgentIdentifier);
+        if (parentPriority != null && parentPriority.compareTo(getAgentPolicy().getJobPriority()) < 0) {
+            priority(parentPriority);
+        }
+
+        long remainingDeadlineMs = agentExecutor.getRemainingDeadlineMs(mParentAgentIdentifier);
+        if (remainingDeadlineMs > 0 && remainingDeadlineMs < getAgentPolicy().getPolicyTimeoutMs()) {
+            timeout(remainingDeadlineMs);
+        }
+    }
+
+    private String getPendingFairShareKey() {
+        return hasAgentPolicyBuilder() ? getAgentPolicyBuilder().getFairShareKey() : getAgentPolicy().getFairShareKey();
+    }
+
     private void build() {
 
         if (mReattach) {
@@ -328,6 +533,15 @@ public class StandardExecutionBuilder<ResultType, ProgressType> implements Execu
             }
         }
 
+        if (!TextUtils.isEmpty(mParentAgentIdentifier) && !mReattach) {
+            inheritFromParentAgent();
+        }
+
+        //Executions for a UI object share fairly with other UI objects unless a key was supplied.
+        if (mUiObject != null && hasAgentPolicy() && getPendingFairShareKey() == null) {
+            fairShareKey(mUiObject.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(mUiObject)));
+        }
+
         //If a builder has been made due to policy changes, build the policy.
         if (hasAgentPolicyBuilder()) {
             mAgentPolicy = getAgentPolicyBuilder().build();
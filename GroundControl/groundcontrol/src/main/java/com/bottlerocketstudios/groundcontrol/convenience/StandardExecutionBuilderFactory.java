@@ -31,6 +31,8 @@ import com.bottlerocketstudios.groundcontrol.policy.StandardAgentPolicyBuilder;
 public class StandardExecutionBuilderFactory implements ExecutionBuilderFactory {
     private static final String TAG = StandardExecutionBuilderFactory.class.getSimpleName();
 
+    private static final int DEFAULT_SERIAL_CALLBACK_LANE_COUNT = 4;
+
     private final Class<? extends AgentPolicyBuilder> mAgentPolicyBuilderClass;
     private final String mAgentExecutorId;
     private final AgentPolicyCache mAgentPolicyCache = new AgentPolicyCache();
@@ -47,6 +49,15 @@ public class StandardExecutionBuilderFactory implements ExecutionBuilderFactory
         mAgentPolicyCache.put(AgentPolicyCache.POLICY_IDENTIFIER_UI, uiPolicy);
         mAgentPolicyCache.put(AgentPolicyCache.POLICY_IDENTIFIER_BG_SERIAL, backgroundSerialPolicy);
         mAgentPolicyCache.put(AgentPolicyCache.POLICY_IDENTIFIER_BG_PARALLEL, backgroundParallelPolicy);
+        mAgentPolicyCache.put(AgentPolicyCache.POLICY_IDENTIFIER_BG_DIRECT,
+                createAgentPolicyBuilder()
+                        .setDirectBackgroundCallback(true)
+                        .build());
+        mAgentPolicyCache.put(AgentPolicyCache.POLICY_IDENTIFIER_BG_SHARDED_SERIAL,
+                createAgentPolicyBuilder()
+                        .buildUpon(backgroundSerialPolicy)
+                        .setSerialCallbackLaneCount(DEFAULT_SERIAL_CALLBACK_LANE_COUNT)
+                        .build());
     }
 
     /**
@@ -86,6 +97,17 @@ public class StandardExecutionBuilderFactory implements ExecutionBuilderFactory
                         .clear()
                         .setParallelBackgroundCallback(true)
                         .build());
+        mAgentPolicyCache.put(AgentPolicyCache.POLICY_IDENTIFIER_BG_DIRECT,
+                agentPolicyBuilder
+                        .clear()
+                        .setDirectBackgroundCallback(true)
+                        .build());
+        mAgentPolicyCache.put(AgentPolicyCache.POLICY_IDENTIFIER_BG_SHARDED_SERIAL,
+                agentPolicyBuilder
+                        .clear()
+                        .setCallbackLooperId(AgentExecutor.getInstance(mAgentExecutorId).getBackgroundLooperId())
+                        .setSerialCallbackLaneCount(DEFAULT_SERIAL_CALLBACK_LANE_COUNT)
+                        .build());
     }
 
     private AgentPolicyBuilder createAgentPolicyBuilder() {
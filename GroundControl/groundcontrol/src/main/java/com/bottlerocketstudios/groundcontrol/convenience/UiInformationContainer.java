@@ -39,6 +39,22 @@ public class UiInformationContainer {
         uiAgentTetherCollection.addTether(agentTether);
     }
 
+    public void onPause(Object uiObject) {
+        UIAgentTetherCollection uiAgentTetherCollection = mUIAgentTetherCollectionMap.get(uiObject);
+        if (uiAgentTetherCollection == null) {
+            uiAgentTetherCollection = new UIAgentTetherCollection();
+            mUIAgentTetherCollectionMap.put(uiObject, uiAgentTetherCollection);
+        }
+        uiAgentTetherCollection.pause();
+    }
+
+    public void onResume(Object uiObject) {
+        UIAgentTetherCollection uiAgentTetherCollection = mUIAgentTetherCollectionMap.get(uiObject);
+        if (uiAgentTetherCollection != null) {
+            uiAgentTetherCollection.resume();
+        }
+    }
+
     public void onDestroy(Object uiObject) {
         UIAgentTetherCollection uiAgentTetherCollection = mUIAgentTetherCollectionMap.get(uiObject);
         if (uiAgentTetherCollection != null) {
@@ -0,0 +1,377 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.dependency;
+
+import android.util.Log;
+
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
+import com.bottlerocketstudios.groundcontrol.agent.Agent;
+import com.bottlerocketstudios.groundcontrol.convenience.GroundControl;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Executes a directed acyclic graph of Agents. Each {@link GraphNode} is started as soon as all of its
+ * inputs have completed and receives their results through {@link GraphInputs}.
+ *
+ * <ul>
+ *     <li>
+ *         Nodes can only take inputs from nodes that have already been added, so the graph is acyclic
+ *         by construction.
+ *     </li>
+ *     <li>
+ *         Only nodes upstream of the result node are executed. Nodes on the critical path, the longest
+ *         chain of estimated cost, are executed one JobPriority above the base priority.
+ *     </li>
+ *     <li>
+ *         Results are delivered directly on the completing worker Thread which then starts the
+ *         downstream nodes, avoiding a Looper hop between each phase.
+ *     </li>
+ *     <li>
+ *         When a node fails, by delivering a null result or throwing from its {@link NodeAgentFactory},
+ *         all downstream nodes are cancelled along with any upstream work that no longer has a live consumer.
+ *     </li>
+ * </ul>
+ */
+public class DependencyGraph {
+    private static final String TAG = DependencyGraph.class.getSimpleName();
+
+    private final Object mLock = new Object();
+    private final List<GraphNode<?>> mNodeList = new ArrayList<>();
+    private final Set<GraphNode<?>> mRequiredNodeSet = new HashSet<>();
+
+    private AgentExecutor mAgentExecutor;
+    private GraphNode<?> mResultNode;
+    private GraphListener<?> mGraphListener;
+    private String mParentAgentIdentifier;
+    private boolean mExecuted;
+    private boolean mFinished;
+
+    /**
+     * Add a node which will be executed after all of the supplied inputs have completed.
+     */
+    public <ResultType> GraphNode<ResultType> addNode(String name, NodeAgentFactory<ResultType> nodeAgentFactory, GraphNode<?>... inputs) {
+        if (nodeAgentFactory == null) throw new NullPointerException("NodeAgentFactory cannot be null");
+        synchronized (mLock) {
+            if (mExecuted) throw new IllegalStateException("Cannot add nodes after execution has started");
+            List<GraphNode<?>> inputList = Arrays.asList(inputs);
+            for (GraphNode<?> input : inputList) {
+                if (input == null || input.getDependencyGraph() != this) {
+                    throw new IllegalArgumentException("Inputs must be nodes previously added to this graph");
+                }
+            }
+            GraphNode<ResultType> node = new GraphNode<>(this, name, nodeAgentFactory, inputList);
+            for (GraphNode<?> input : new HashSet<>(inputList)) {
+                input.addDependent(node);
+            }
+            mNodeList.add(node);
+            return node;
+        }
+    }
+
+    /**
+     * Execute nodes as children of the supplied running Agent so that they inherit its priority promotions and remaining deadline.
+     */
+    public void setParentAgentIdentifier(String parentAgentIdentifier) {
+        synchronized (mLock) {
+            mParentAgentIdentifier = parentAgentIdentifier;
+        }
+    }
+
+    /**
+     * Begin executing the nodes required to produce the result node. The supplied listener will be
+     * notified exactly once with the result or null on failure or cancellation.
+     */
+    public <ResultType> void execute(AgentExecutor agentExecutor, GraphNode<ResultType> resultNode, JobPriority basePriority, GraphListener<ResultType> graphListener) {
+        if (agentExecutor == null || graphListener == null) throw new NullPointerException("AgentExecutor and GraphListener are required");
+        if (resultNode == null || resultNode.getDependencyGraph() != this) throw new IllegalArgumentException("Result node must belong to this graph");
+
+        List<GraphNode<?>> readyList = new LinkedList<>();
+        synchronized (mLock) {
+            if (mExecuted) throw new IllegalStateException("A DependencyGraph can only be executed once");
+            mExecuted = true;
+            mAgentExecutor = agentExecutor;
+            mResultNode = resultNode;
+            mGraphListener = graphListener;
+
+            collectRequiredNodes(resultNode);
+            assignPriorities(basePriority);
+            for (GraphNode<?> node : mNodeList) {
+                if (!mRequiredNodeSet.contains(node)) {
+                    node.setState(GraphNode.State.CANCELLED);
+                    continue;
+                }
+                node.setPendingInputCount(new HashSet<>(node.getInputList()).size());
+                node.setLiveDependentCount(countRequiredDependents(node) + (node == resultNode ? 1 : 0));
+                if (node.getPendingInputCount() == 0) {
+                    readyList.add(node);
+                }
+            }
+        }
+
+        startNodes(readyList);
+    }
+
+    /**
+     * Cancel all outstanding nodes. The GraphListener will be notified with a null result if it has not already been notified.
+     */
+    public void cancel() {
+        List<AgentTether> cancelList = new LinkedList<>();
+        synchronized (mLock) {
+            for (GraphNode<?> node : mNodeList) {
+                if (!node.isFinished()) {
+                    cancelNode(node, cancelList);
+                }
+            }
+        }
+        cancelTethers(cancelList);
+        finish(null);
+    }
+
+    private void collectRequiredNodes(GraphNode<?> node) {
+        if (mRequiredNodeSet.add(node)) {
+            for (GraphNode<?> input : node.getInputList()) {
+                collectRequiredNodes(input);
+            }
+        }
+    }
+
+    private int countRequiredDependents(GraphNode<?> node) {
+        int count = 0;
+        for (GraphNode<?> dependent : node.getDependentList()) {
+            if (mRequiredNodeSet.contains(dependent)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Nodes are stored in insertion order which is already a topological order. A node is on the critical
+     * path when the longest chain through it is as long as the longest chain through the graph.
+     */
+    private void assignPriorities(JobPriority basePriority) {
+        Map<GraphNode<?>, Long> headCostMap = new HashMap<>();
+        Map<GraphNode<?>, Long> tailCostMap = new HashMap<>();
+        long longestPath = 0;
+
+        for (GraphNode<?> node : mNodeList) {
+            if (!mRequiredNodeSet.contains(node)) continue;
+            long longestInput = 0;
+            for (GraphNode<?> input : node.getInputList()) {
+                longestInput = Math.max(longestInput, headCostMap.get(input));
+            }
+            long headCost = longestInput + node.getEstimatedCostMs();
+            headCostMap.put(node, headCost);
+            longestPath = Math.max(longestPath, headCost);
+        }
+
+        for (int i = mNodeList.size() - 1; i >= 0; i--) {
+            GraphNode<?> node = mNodeList.get(i);
+            if (!mRequiredNodeSet.contains(node)) continue;
+            long longestDependent = 0;
+            for (GraphNode<?> dependent : node.getDependentList()) {
+                if (mRequiredNodeSet.contains(dependent)) {
+                    longestDependent = Math.max(longestDependent, tailCostMap.get(dependent));
+                }
+            }
+            long tailCost = longestDependent + node.getEstimatedCostMs();
+            tailCostMap.put(node, tailCost);
+
+            boolean critical = headCostMap.get(node) + tailCost - node.getEstimatedCostMs() == longestPath;
+            node.setOnCriticalPath(critical);
+            node.setJobPriority(critical ? promote(basePriority) : basePriority);
+        }
+    }
+
+    private JobPriority promote(JobPriority jobPriority) {
+        switch (jobPriority) {
+            case LOW:
+                return JobPriority.NORMAL;
+            case NORMAL:
+                return JobPriority.HIGH;
+            default:
+                return jobPriority;
+        }
+    }
+
+    private void startNodes(List<GraphNode<?>> readyList) {
+        for (GraphNode<?> node : readyList) {
+            startNode(node);
+        }
+    }
+
+    private <ResultType> void startNode(GraphNode<ResultType> node) {
+        Map<GraphNode<?>, Object> inputResultMap = new HashMap<>();
+        synchronized (mLock) {
+            if (node.getState() != GraphNode.State.PENDING) return;
+            node.setState(GraphNode.State.RUNNING);
+            for (GraphNode<?> input : node.getInputList()) {
+                inputResultMap.put(input, input.getResult());
+            }
+        }
+
+        Agent<ResultType, ?> agent = null;
+        try {
+            agent = node.getNodeAgentFactory().createAgent(new GraphInputs(inputResultMap));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to create agent for " + node, e);
+        }
+
+        if (agent == null) {
+            failNode(node);
+        } else {
+            executeNodeAgent(node, agent);
+        }
+    }
+
+    private <ResultType, ProgressType> void executeNodeAgent(final GraphNode<ResultType> node, Agent<ResultType, ProgressType> agent) {
+        AgentTether agentTether = GroundControl.bgAgent(mAgentExecutor, agent)
+                .bgDirectCallback(new FunctionalAgentListener<ResultType, ProgressType>() {
+                    @Override
+                    public void onCompletion(String agentIdentifier, ResultType result) {
+                        onNodeCompleted(node, result);
+                    }
+                })
+                .priority(node.getJobPriority())
+                .parentAgent(mParentAgentIdentifier)
+                .execute();
+
+        boolean cancelled;
+        synchronized (mLock) {
+            cancelled = node.getState() == GraphNode.State.CANCELLED;
+            if (!cancelled && node.getState() == GraphNode.State.RUNNING) {
+                node.setAgentTether(agentTether);
+            }
+        }
+
+        if (cancelled) {
+            agentTether.cancel();
+        }
+    }
+
+    private <ResultType> void onNodeCompleted(GraphNode<ResultType> node, ResultType result) {
+        if (result == null) {
+            failNode(node);
+            return;
+        }
+
+        List<GraphNode<?>> readyList = new LinkedList<>();
+        boolean graphComplete = false;
+        synchronized (mLock) {
+            if (node.getState() != GraphNode.State.RUNNING) return;
+            node.setState(GraphNode.State.COMPLETE);
+            node.setResult(result);
+            node.setAgentTether(null);
+
+            if (node == mResultNode) {
+                graphComplete = true;
+            } else {
+                for (GraphNode<?> dependent : new HashSet<>(node.getDependentList())) {
+                    if (!mRequiredNodeSet.contains(dependent)) continue;
+                    dependent.setPendingInputCount(dependent.getPendingInputCount() - 1);
+                    if (dependent.getPendingInputCount() == 0 && dependent.getState() == GraphNode.State.PENDING) {
+                        readyList.add(dependent);
+                    }
+                }
+            }
+        }
+
+        startNodes(readyList);
+        if (graphComplete) {
+            finish(result);
+        }
+    }
+
+    private void failNode(GraphNode<?> node) {
+        List<AgentTether> cancelList = new LinkedList<>();
+        boolean graphFailed;
+        synchronized (mLock) {
+            if (node.isFinished()) return;
+            Log.w(TAG, "Node failed " + node);
+            node.setState(GraphNode.State.FAILED);
+            node.setAgentTether(null);
+            cancelDependents(node, cancelList);
+            releaseInputs(node, cancelList);
+            graphFailed = mResultNode.isFinished();
+        }
+
+        cancelTethers(cancelList);
+        if (graphFailed) {
+            finish(null);
+        }
+    }
+
+    /**
+     * Cancel a node, everything downstream of it, and upstream work that is no longer needed. Must hold mLock.
+     */
+    private void cancelNode(GraphNode<?> node, List<AgentTether> cancelList) {
+        if (node.isFinished()) return;
+        node.setState(GraphNode.State.CANCELLED);
+        if (node.getAgentTether() != null) {
+            cancelList.add(node.getAgentTether());
+            node.setAgentTether(null);
+        }
+        cancelDependents(node, cancelList);
+        releaseInputs(node, cancelList);
+    }
+
+    private void cancelDependents(GraphNode<?> node, List<AgentTether> cancelList) {
+        for (GraphNode<?> dependent : node.getDependentList()) {
+            if (mRequiredNodeSet.contains(dependent)) {
+                cancelNode(dependent, cancelList);
+            }
+        }
+    }
+
+    private void releaseInputs(GraphNode<?> node, List<AgentTether> cancelList) {
+        for (GraphNode<?> input : new HashSet<>(node.getInputList())) {
+            input.setLiveDependentCount(input.getLiveDependentCount() - 1);
+            if (input.getLiveDependentCount() <= 0) {
+                cancelNode(input, cancelList);
+            }
+        }
+    }
+
+    private void cancelTethers(List<AgentTether> cancelList) {
+        for (AgentTether agentTether : cancelList) {
+            agentTether.cancel();
+        }
+    }
+
+    private void finish(Object result) {
+        GraphListener<?> graphListener;
+        synchronized (mLock) {
+            if (mFinished || mGraphListener == null) return;
+            mFinished = true;
+            graphListener = mGraphListener;
+            mGraphListener = null;
+        }
+        //The listener type always matches the type of the result node supplied with it in execute().
+        //noinspection unchecked
+        ((GraphListener<Object>) graphListener).onGraphCompleted(result);
+    }
+}
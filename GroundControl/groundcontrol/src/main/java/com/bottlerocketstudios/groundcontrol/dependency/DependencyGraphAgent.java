@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.dependency;
+
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+import com.bottlerocketstudios.groundcontrol.agent.Agent;
+import com.bottlerocketstudios.groundcontrol.agent.RetryableAgent;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+
+/**
+ * Extend this Agent to produce its result from a {@link DependencyGraph}. Unlike {@link DependencyHandlingAgent}
+ * the completion is delivered exactly once, multi-phase work can be expressed in a single Agent, and
+ * each node receives typed results from its inputs.
+ *
+ * <p>The graph can only be executed once, so this Agent is not retried under a RetryPolicy unless
+ * {@link #createRetry()} is overridden to supply a new instance.</p>
+ */
+public abstract class DependencyGraphAgent<ResultType> extends AbstractAgent<ResultType, Void> implements RetryableAgent<ResultType, Void> {
+
+    private final DependencyGraph mDependencyGraph = new DependencyGraph();
+
+    /**
+     * Add nodes to the supplied graph and return the node whose result will be the result of this Agent.
+     */
+    protected abstract GraphNode<ResultType> buildGraph(DependencyGraph dependencyGraph);
+
+    /**
+     * Base priority for nodes in the graph, this Agent's current priority by default. Nodes on the critical
+     * path will run one priority higher.
+     */
+    protected JobPriority getGraphPriority() {
+        JobPriority jobPriority = getAgentExecutor().getAgentPriority(getUniqueIdentifier());
+        return jobPriority != null ? jobPriority : JobPriority.NORMAL;
+    }
+
+    @Override
+    public void run() {
+        GraphNode<ResultType> resultNode = buildGraph(mDependencyGraph);
+        mDependencyGraph.setParentAgentIdentifier(getUniqueIdentifier());
+        mDependencyGraph.execute(getAgentExecutor(), resultNode, getGraphPriority(), new GraphListener<ResultType>() {
+            @Override
+            public void onGraphCompleted(ResultType result) {
+                getAgentListener().onCompletion(getUniqueIdentifier(), result);
+            }
+        });
+    }
+
+    /**
+     * Return a new instance with the same unique identifier to allow retries. Returns null by default
+     * which delivers the first result without retrying.
+     */
+    @Override
+    public Agent<ResultType, Void> createRetry() {
+        return null;
+    }
+
+    @Override
+    public void cancel() {
+        mDependencyGraph.cancel();
+    }
+
+    @Override
+    public void onProgressUpdateRequested() {
+        //This space left intentionally blank.
+    }
+}
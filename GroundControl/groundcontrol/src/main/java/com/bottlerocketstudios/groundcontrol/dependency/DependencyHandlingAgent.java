@@ -15,6 +15,7 @@
 
 package com.bottlerocketstudios.groundcontrol.dependency;
 
+import com.bottlerocketstudios.groundcontrol.AgentExecutor;
 import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
 import com.bottlerocketstudios.groundcontrol.convenience.ExecutionBuilder;
 import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
@@ -36,13 +37,22 @@ import java.util.List;
  *          you should typically add all of them then call executeDependencies once. The onDependenciesCompleted method
  *          will be called as many times as the number of outstanding executions hits zero which may
  *          be sooner than is expected for short duration work. If your process has multiple dependent
- *          phases it should be split into multiple agents.
+ *          phases consider a {@link DependencyGraphAgent}.
+ *      </li>
+ *      <li>
+ *          Return from run() after calling executeDependencies. The execution slot is released while the
+ *          dependencies run and {@link DependencyHandlingAgent#onDependenciesCompleted()} is queued as a
+ *          continuation Job with this Agent's current priority.
+ *      </li>
+ *      <li>
+ *          Dependencies inherit this Agent's priority, including later promotions, and their timeout
+ *          is limited to the time remaining before this Agent's request deadline.
  *      </li>
  *      <li>
  *          Mixing {@link DependencyHandlingAgent#addParallelDependency(ExecutionBuilder, AgentListener)} and
  *          {@link DependencyHandlingAgent#addSerialDependency(ExecutionBuilder, AgentListener)} should be
- *          done with care. The {@link DependencyHandlingAgent#onDependenciesCompleted()} will execute
- *          on whichever Thread delivers last in an indeterminate way, which is probably not what you
+ *          done with care. The {@link DependencyHandlingAgent#onDependenciesCompleted()} will be queued
+ *          after whichever callback delivers last in an indeterminate way, which is probably not what you
  *          expect if you are using serial callbacks.
  *      </li>
  *      <li>
@@ -55,7 +65,31 @@ import java.util.List;
  */
 public abstract class DependencyHandlingAgent<ResultType, ProgressType> extends AbstractAgent<ResultType, ProgressType> implements DependencyHandler.DependencyHandlerListener {
 
-    private final DependencyHandler mDependencyHandler = new DependencyHandler(this);
+    private final DependencyHandler mDependencyHandler = new DependencyHandler(new DependencyHandler.DependencyHandlerListener() {
+        @Override
+        public void onDependenciesCompleted() {
+            dispatchDependenciesCompleted();
+        }
+    });
+
+    /**
+     * Resume as a continuation Job on the AgentExecutor so that the work in onDependenciesCompleted()
+     * gets an execution slot and priority instead of running on the Thread of the last dependency callback.
+     * This Agent does not hold an execution slot while it waits because run() has already returned.
+     */
+    private void dispatchDependenciesCompleted() {
+        AgentExecutor agentExecutor = getAgentExecutor();
+        boolean queued = agentExecutor != null && agentExecutor.enqueueContinuation(getUniqueIdentifier(), new Runnable() {
+            @Override
+            public void run() {
+                onDependenciesCompleted();
+            }
+        });
+
+        if (!queued) {
+            onDependenciesCompleted();
+        }
+    }
 
     /**
      * Add ExecutionBuilder built without a listener and the supplied listener. This will execute the
@@ -63,7 +97,7 @@ public abstract class DependencyHandlingAgent<ResultType, ProgressType> extends
      * possible but sticking to one or the other is easier to reason about.
      */
     protected <R, P> void addParallelDependency(ExecutionBuilder<R, P> executionBuilder, AgentListener<R, P> agentListener) {
-        mDependencyHandler.addParallelDependency(executionBuilder, agentListener);
+        mDependencyHandler.addParallelDependency(inheritFromThisAgent(executionBuilder), agentListener);
     }
 
     /**
@@ -72,7 +106,7 @@ public abstract class DependencyHandlingAgent<ResultType, ProgressType> extends
      * possible but sticking to one or the other is easier to reason about.
      */
     protected <R, P> void addSerialDependency(ExecutionBuilder<R, P> executionBuilder, AgentListener<R, P> agentListener) {
-        mDependencyHandler.addSerialDependency(executionBuilder, agentListener);
+        mDependencyHandler.addSerialDependency(inheritFromThisAgent(executionBuilder), agentListener);
     }
 
     /**
@@ -81,7 +115,14 @@ public abstract class DependencyHandlingAgent<ResultType, ProgressType> extends
      * as its callback listener will never call onDependenciesCompleted()
      */
     protected <R, P> void addDependency(ExecutionBuilder<R, P> executionBuilder) {
-        mDependencyHandler.addDependency(executionBuilder);
+        mDependencyHandler.addDependency(inheritFromThisAgent(executionBuilder));
+    }
+
+    /**
+     * Dependencies run with at least this Agent's priority, follow its promotions, and are limited to its remaining deadline.
+     */
+    private <R, P> ExecutionBuilder<R, P> inheritFromThisAgent(ExecutionBuilder<R, P> executionBuilder) {
+        return executionBuilder.parentAgent(getUniqueIdentifier());
     }
 
     /**
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.dependency;
+
+import java.util.Map;
+
+/**
+ * Typed access to the results of the upstream nodes of a {@link GraphNode}.
+ */
+public class GraphInputs {
+    private final Map<GraphNode<?>, Object> mInputResultMap;
+
+    GraphInputs(Map<GraphNode<?>, Object> inputResultMap) {
+        mInputResultMap = inputResultMap;
+    }
+
+    /**
+     * Return the result of the supplied upstream node. The node must have been declared as an input.
+     */
+    public <T> T get(GraphNode<T> inputNode) {
+        if (!mInputResultMap.containsKey(inputNode)) {
+            throw new IllegalArgumentException("Node " + inputNode + " is not an input of this node");
+        }
+        //The GraphNode type parameter is the type of the result it was completed with.
+        //noinspection unchecked
+        return (T) mInputResultMap.get(inputNode);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.dependency;
+
+/**
+ * Notified exactly once when a {@link DependencyGraph} finishes.
+ */
+public interface GraphListener<ResultType> {
+    /**
+     * Called with the result of the result node or null if the graph failed or was cancelled. This is
+     * delivered on whichever Thread completed the final node.
+     */
+    void onGraphCompleted(ResultType result);
+}
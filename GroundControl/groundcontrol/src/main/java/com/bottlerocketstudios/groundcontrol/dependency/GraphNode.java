@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.dependency;
+
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
+import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A node in a {@link DependencyGraph}. The type parameter is the result type of the node's Agent and
+ * is used to retrieve that result with type safety from {@link GraphInputs}. All mutable state is
+ * guarded by the owning DependencyGraph.
+ */
+public class GraphNode<ResultType> {
+
+    enum State {
+        PENDING,
+        RUNNING,
+        COMPLETE,
+        FAILED,
+        CANCELLED
+    }
+
+    private final DependencyGraph mDependencyGraph;
+    private final String mName;
+    private final NodeAgentFactory<ResultType> mNodeAgentFactory;
+    private final List<GraphNode<?>> mInputList;
+    private final List<GraphNode<?>> mDependentList = new ArrayList<>();
+
+    private long mEstimatedCostMs = 1;
+    private State mState = State.PENDING;
+    private ResultType mResult;
+    private int mPendingInputCount;
+    private int mLiveDependentCount;
+    private boolean mOnCriticalPath;
+    private JobPriority mJobPriority;
+    private AgentTether mAgentTether;
+
+    GraphNode(DependencyGraph dependencyGraph, String name, NodeAgentFactory<ResultType> nodeAgentFactory, List<GraphNode<?>> inputList) {
+        mDependencyGraph = dependencyGraph;
+        mName = name;
+        mNodeAgentFactory = nodeAgentFactory;
+        mInputList = Collections.unmodifiableList(new ArrayList<>(inputList));
+    }
+
+    /**
+     * Set the expected run time of this node relative to others in the graph. This is used to find the
+     * critical path, the default cost is 1.
+     */
+    public GraphNode<ResultType> setEstimatedCostMs(long estimatedCostMs) {
+        if (estimatedCostMs < 0) {
+            throw new IllegalArgumentException("Estimated cost cannot be negative");
+        }
+        mEstimatedCostMs = estimatedCostMs;
+        return this;
+    }
+
+    public long getEstimatedCostMs() {
+        return mEstimatedCostMs;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * Return true if this node had no slack on the longest path through the graph when it was executed.
+     */
+    public boolean isOnCriticalPath() {
+        return mOnCriticalPath;
+    }
+
+    /**
+     * Return the JobPriority this node was executed with or null if it has not been executed.
+     */
+    public JobPriority getJobPriority() {
+        return mJobPriority;
+    }
+
+    DependencyGraph getDependencyGraph() {
+        return mDependencyGraph;
+    }
+
+    NodeAgentFactory<ResultType> getNodeAgentFactory() {
+        return mNodeAgentFactory;
+    }
+
+    List<GraphNode<?>> getInputList() {
+        return mInputList;
+    }
+
+    List<GraphNode<?>> getDependentList() {
+        return mDependentList;
+    }
+
+    void addDependent(GraphNode<?> dependent) {
+        mDependentList.add(dependent);
+    }
+
+    State getState() {
+        return mState;
+    }
+
+    void setState(State state) {
+        mState = state;
+    }
+
+    boolean isFinished() {
+        return mState == State.COMPLETE || mState == State.FAILED || mState == State.CANCELLED;
+    }
+
+    ResultType getResult() {
+        return mResult;
+    }
+
+    void setResult(ResultType result) {
+        mResult = result;
+    }
+
+    int getPendingInputCount() {
+        return mPendingInputCount;
+    }
+
+    void setPendingInputCount(int pendingInputCount) {
+        mPendingInputCount = pendingInputCount;
+    }
+
+    int getLiveDependentCount() {
+        return mLiveDependentCount;
+    }
+
+    void setLiveDependentCount(int liveDependentCount) {
+        mLiveDependentCount = liveDependentCount;
+    }
+
+    void setOnCriticalPath(boolean onCriticalPath) {
+        mOnCriticalPath = onCriticalPath;
+    }
+
+    void setJobPriority(JobPriority jobPriority) {
+        mJobPriority = jobPriority;
+    }
+
+    AgentTether getAgentTether() {
+        return mAgentTether;
+    }
+
+    void setAgentTether(AgentTether agentTether) {
+        mAgentTether = agentTether;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphNode{" + mName + ", " + mState + "}";
+    }
+}
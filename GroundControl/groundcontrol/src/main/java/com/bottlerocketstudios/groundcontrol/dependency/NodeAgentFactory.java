@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.dependency;
+
+import com.bottlerocketstudios.groundcontrol.agent.Agent;
+
+/**
+ * Creates the Agent for a {@link GraphNode} once all of its inputs have completed.
+ */
+public interface NodeAgentFactory<ResultType> {
+    /**
+     * Create the Agent to run for this node. Use {@link GraphInputs#get(GraphNode)} to obtain the
+     * results of upstream nodes. Returning null or throwing will fail the node.
+     */
+    Agent<ResultType, ?> createAgent(GraphInputs inputs);
+}
@@ -26,6 +26,14 @@ public class Job {
     private final Runnable mRunnable;
     private final long mMaximumExecutionTimeMs;
     private JobExecutionListener mJobExecutionListener;
+    private String mConcurrencyGroup;
+    private String mRateLimitGroup;
+    private String mFairShareKey;
+    private volatile boolean mYieldRequested;
+    private long mExpectedRuntimeMs;
+    private long mDeadline;
+    private long mSortKey;
+    private long mQueuedTime;
 
     private volatile int mHashCode;
 
@@ -60,6 +68,97 @@ public class Job {
         return mMaximumExecutionTimeMs;
     }
 
+    /**
+     * Group whose simultaneous executions are limited separately from the rest of the pool or null.
+     * Must be set before the Job is enqueued.
+     */
+    public String getConcurrencyGroup() {
+        return mConcurrencyGroup;
+    }
+
+    public void setConcurrencyGroup(String concurrencyGroup) {
+        mConcurrencyGroup = concurrencyGroup;
+    }
+
+    /**
+     * Group whose Job start rate is limited by the executing service or null. Must be set before the Job is enqueued.
+     */
+    public String getRateLimitGroup() {
+        return mRateLimitGroup;
+    }
+
+    public void setRateLimitGroup(String rateLimitGroup) {
+        mRateLimitGroup = rateLimitGroup;
+    }
+
+    /**
+     * Key whose Jobs share execution fairly with other keys at the same priority when fair share is enabled, or null.
+     * Must be set before the Job is enqueued.
+     */
+    public String getFairShareKey() {
+        return mFairShareKey;
+    }
+
+    public void setFairShareKey(String fairShareKey) {
+        mFairShareKey = fairShareKey;
+    }
+
+    /**
+     * Estimated run time in milliseconds used by runtime aware ordering or 0 if unknown. Must be set before the Job is enqueued.
+     */
+    public long getExpectedRuntimeMs() {
+        return mExpectedRuntimeMs;
+    }
+
+    public void setExpectedRuntimeMs(long expectedRuntimeMs) {
+        mExpectedRuntimeMs = expectedRuntimeMs;
+    }
+
+    /**
+     * Uptime by which the result of this Job is needed used by deadline ordering or 0 if none. Must be set before the Job is enqueued.
+     */
+    public long getDeadline() {
+        return mDeadline;
+    }
+
+    public void setDeadline(long deadline) {
+        mDeadline = deadline;
+    }
+
+    /**
+     * Order of this Job among queued Jobs of the same priority, assigned by the executing service when it is enqueued.
+     */
+    public long getSortKey() {
+        return mSortKey;
+    }
+
+    public void setSortKey(long sortKey) {
+        mSortKey = sortKey;
+    }
+
+    /**
+     * Uptime from which this Job has waited at its current priority, assigned by the executing service for priority aging.
+     * Must not be changed while the Job is queued.
+     */
+    public long getQueuedTime() {
+        return mQueuedTime;
+    }
+
+    public void setQueuedTime(long queuedTime) {
+        mQueuedTime = queuedTime;
+    }
+
+    /**
+     * Ask a running prefetch Job to give up its execution slot at its next convenience.
+     */
+    public void requestYield() {
+        mYieldRequested = true;
+    }
+
+    public boolean isYieldRequested() {
+        return mYieldRequested;
+    }
+
     public void setJobExecutionListener(JobExecutionListener jobExecutionListener) {
         mJobExecutionListener = jobExecutionListener;
     }
@@ -70,6 +169,12 @@ public class Job {
         }
     }
 
+    public void notifyJobDropped() {
+        if (mJobExecutionListener != null) {
+            mJobExecutionListener.onJobDropped(this);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o instanceof Job) {
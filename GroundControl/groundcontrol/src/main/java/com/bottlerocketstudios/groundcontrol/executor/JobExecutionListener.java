@@ -17,4 +17,9 @@ package com.bottlerocketstudios.groundcontrol.executor;
 
 public interface JobExecutionListener {
     void onJobExecuted(Job job);
+
+    /**
+     * The Job was removed from a full queue without being executed.
+     */
+    void onJobDropped(Job job);
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.executor;
+
+/**
+ * Order in which queued Jobs of the same {@link JobPriority} are started.
+ */
+public enum JobOrdering {
+    /**
+     * First in, first out.
+     */
+    FIFO,
+    /**
+     * Jobs with a shorter expected run time go first. A Job is ordered as if it arrived its expected run time
+     * after it really did, so later arrivals can only pass a long Job for that long and it is never starved.
+     */
+    SHORTEST_EXPECTED_FIRST,
+    /**
+     * Jobs with an earlier deadline go first. Jobs without a deadline use their maximum execution time as
+     * an implicit deadline so they move forward as newer Jobs arrive.
+     */
+    EARLIEST_DEADLINE_FIRST,
+    /**
+     * Last in, first out. Suited to work requested while scrolling where the newest requests are the ones on
+     * screen. Combine with a maximum queue size so that requests which have scrolled away are dropped.
+     */
+    LIFO
+}
@@ -22,5 +22,10 @@ public enum JobPriority {
     IMMEDIATE,
     HIGH,
     NORMAL,
-    LOW
+    LOW,
+    /**
+     * Speculative work which is only started while no other work is running or queued. Running prefetch
+     * Jobs are asked to yield as soon as higher priority work is enqueued.
+     */
+    PREFETCH
 }
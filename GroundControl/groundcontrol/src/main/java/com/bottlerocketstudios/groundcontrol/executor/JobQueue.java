@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.executor;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Priority ordered queue of Jobs partitioned by concurrency and rate limit group and indexed by id. A saturated
+ * partition can be skipped without blocking Jobs behind it and queued Jobs can be found, removed or
+ * reprioritized in O(log n). Each priority also keeps its Jobs ordered by queued time so that the longest
+ * waiting Job of a priority can be found without scanning. This class is not thread safe, callers must synchronize access.
+ *
+ * <p>
+ *     With fair share enabled, Jobs are also partitioned by fair share key and keys take turns within each priority
+ *     using start time fair queuing. Each start charges the key's virtual time in inverse proportion to its weight
+ *     and the key with the earliest virtual start is chosen. A key that has been idle starts at the priority's current
+ *     virtual time so it cannot claim a burst for time it did not use.
+ * </p>
+ */
+public class JobQueue {
+
+    private static final long FAIR_SHARE_COST = 1000000;
+
+    private final Comparator<Job> mJobComparator;
+    private final Map<List<String>, TreeSet<Job>> mPartitionMap = new HashMap<>();
+    private final Map<Long, Job> mJobIdMap = new HashMap<>();
+    private final Map<JobPriority, TreeSet<Job>> mPriorityAgeMap = new EnumMap<>(JobPriority.class);
+    private final Map<String, Integer> mFairShareWeightMap;
+    private final Map<JobPriority, Long> mVirtualTimeMap = new EnumMap<>(JobPriority.class);
+    private final Map<JobPriority, Map<String, Long>> mFinishTagMap = new EnumMap<>(JobPriority.class);
+    private volatile int mSize;
+
+    public JobQueue() {
+        this(new JobPriorityAndIdComparator());
+    }
+
+    /**
+     * @param jobComparator Ordering of Jobs within and across partitions, must be consistent with Job id equality.
+     */
+    public JobQueue(Comparator<Job> jobComparator) {
+        this(jobComparator, null);
+    }
+
+    /**
+     * @param jobComparator         Ordering of Jobs within and across partitions, must be consistent with Job id equality.
+     * @param fairShareWeightMap    Weight of each fair share key, keys which are not present have a weight of 1. A null
+     *                              map disables fair share.
+     */
+    public JobQueue(Comparator<Job> jobComparator, Map<String, Integer> fairShareWeightMap) {
+        mJobComparator = jobComparator;
+        mFairShareWeightMap = fairShareWeightMap;
+        for (JobPriority priority : JobPriority.values()) {
+            mPriorityAgeMap.put(priority, new TreeSet<>(new QueuedTimeComparator()));
+            mVirtualTimeMap.put(priority, 0L);
+            mFinishTagMap.put(priority, new HashMap<String, Long>());
+        }
+    }
+
+    private boolean isFairShare() {
+        return mFairShareWeightMap != null;
+    }
+
+    /**
+     * Decides whether the highest priority Job of a partition may be started now.
+     */
+    public interface JobFilter {
+        boolean canExecute(Job job);
+    }
+
+    private List<String> getPartition(Job job) {
+        if (isFairShare()) {
+            return Arrays.asList(job.getConcurrencyGroup(), job.getRateLimitGroup(), job.getFairShareKey());
+        }
+        return Arrays.asList(job.getConcurrencyGroup(), job.getRateLimitGroup());
+    }
+
+    public void add(Job job) {
+        List<String> partition = getPartition(job);
+        TreeSet<Job> partitionQueue = mPartitionMap.get(partition);
+        if (partitionQueue == null) {
+            partitionQueue = new TreeSet<>(mJobComparator);
+            mPartitionMap.put(partition, partitionQueue);
+        }
+        if (partitionQueue.add(job)) {
+            mJobIdMap.put(job.getId(), job);
+            mPriorityAgeMap.get(job.getPriority()).add(job);
+            mSize = mJobIdMap.size();
+        }
+    }
+
+    public Job get(long jobId) {
+        return mJobIdMap.get(jobId);
+    }
+
+    /**
+     * Remove the queued Job with the supplied id and return it or null if it is not queued.
+     */
+    public Job remove(long jobId) {
+        Job job = mJobIdMap.remove(jobId);
+        if (job != null) {
+            List<String> partition = getPartition(job);
+            TreeSet<Job> partitionQueue = mPartitionMap.get(partition);
+            partitionQueue.remove(job);
+            if (partitionQueue.isEmpty()) {
+                mPartitionMap.remove(partition);
+            }
+            mPriorityAgeMap.get(job.getPriority()).remove(job);
+            mSize = mJobIdMap.size();
+        }
+        return job;
+    }
+
+    /**
+     * Change the priority of a queued Job, reinserting it so that ordering remains correct. A Job whose priority
+     * changes starts waiting at its new priority from the supplied queued time. Return false if it is not queued.
+     */
+    public boolean updatePriority(long jobId, JobPriority priority, long queuedTime) {
+        Job job = remove(jobId);
+        if (job == null) {
+            return false;
+        }
+        if (!job.getPriority().equals(priority)) {
+            job.setPriority(priority);
+            job.setQueuedTime(queuedTime);
+        }
+        add(job);
+        return true;
+    }
+
+    /**
+     * Remove and return the highest priority Job among partitions whose head is accepted by the filter or null if none are.
+     */
+    public Job poll(JobFilter jobFilter) {
+        Job bestJob = null;
+        long bestStartTag = 0;
+        for (Iterator<TreeSet<Job>> partitionIterator = mPartitionMap.values().iterator(); partitionIterator.hasNext(); ) {
+            Job head = partitionIterator.next().first();
+            long startTag = isFairShare() ? getStartTag(head) : 0;
+            if ((bestJob == null || isBefore(head, startTag, bestJob, bestStartTag)) && jobFilter.canExecute(head)) {
+                bestJob = head;
+                bestStartTag = startTag;
+            }
+        }
+
+        if (bestJob == null) {
+            return null;
+        }
+        if (isFairShare()) {
+            chargeFairShare(bestJob, bestStartTag);
+        }
+        return remove(bestJob.getId());
+    }
+
+    /**
+     * Fair share start tags only decide between Jobs of the same priority, otherwise the comparator decides.
+     */
+    private boolean isBefore(Job job, long startTag, Job otherJob, long otherStartTag) {
+        if (isFairShare() && job.getPriority().equals(otherJob.getPriority()) && startTag != otherStartTag) {
+            return startTag < otherStartTag;
+        }
+        return mJobComparator.compare(job, otherJob) < 0;
+    }
+
+    private long getStartTag(Job job) {
+        long virtualTime = mVirtualTimeMap.get(job.getPriority());
+        Long finishTag = mFinishTagMap.get(job.getPriority()).get(job.getFairShareKey());
+        return finishTag != null ? Math.max(finishTag, virtualTime) : virtualTime;
+    }
+
+    /**
+     * Advance the priority's virtual time to the start of this Job and charge its key, then forget keys which
+     * are no longer ahead of the virtual time as they would start from it anyway.
+     */
+    private void chargeFairShare(Job job, long startTag) {
+        Integer weight = mFairShareWeightMap.get(job.getFairShareKey());
+        long cost = FAIR_SHARE_COST / (weight != null ? weight : 1);
+        mVirtualTimeMap.put(job.getPriority(), startTag);
+
+        Map<String, Long> finishTagMap = mFinishTagMap.get(job.getPriority());
+        finishTagMap.put(job.getFairShareKey(), startTag + cost);
+        for (Iterator<Long> finishTagIterator = finishTagMap.values().iterator(); finishTagIterator.hasNext(); ) {
+            if (finishTagIterator.next() <= startTag) {
+                finishTagIterator.remove();
+            }
+        }
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Number of queued Jobs with the supplied priority.
+     */
+    public int size(JobPriority priority) {
+        return mPriorityAgeMap.get(priority).size();
+    }
+
+    /**
+     * Return the queued Job with the supplied priority that has the earliest queued time without removing it or null if there are none.
+     */
+    public Job peekOldest(JobPriority priority) {
+        TreeSet<Job> ageQueue = mPriorityAgeMap.get(priority);
+        return ageQueue.isEmpty() ? null : ageQueue.first();
+    }
+
+    private static class QueuedTimeComparator implements Comparator<Job> {
+        @Override
+        public int compare(Job lhs, Job rhs) {
+            if (lhs.getQueuedTime() != rhs.getQueuedTime()) {
+                return lhs.getQueuedTime() < rhs.getQueuedTime() ? -1 : 1;
+            }
+            return lhs.getId() < rhs.getId() ? -1 : (lhs.getId() == rhs.getId() ? 0 : 1);
+        }
+    }
+}
@@ -35,10 +35,17 @@ public interface PriorityQueueingPoolExecutorService {
     /**
      * Update the priority on a queued job identified by the jobId to the supplied priority.
      * If the priority changes to {@link com.bottlerocketstudios.groundcontrol.executor.JobPriority#IMMEDIATE}
-     * then the job will be executed immediately.
+     * then the job will be executed immediately. Promoting a job from {@link com.bottlerocketstudios.groundcontrol.executor.JobPriority#PREFETCH}
+     * asks running prefetch jobs to yield.
      */
     void updateJobPriority(long jobId, JobPriority priority);
 
+    /**
+     * Remove the queued job identified by the jobId so that it is never executed. Return false if it is not
+     * queued, for example because it has already started.
+     */
+    boolean removeJob(long jobId);
+
     /**
      * Return a number unique to this instance of the service which can be used for the next job.
      */
@@ -35,6 +35,10 @@ public class RunningJob {
         trackJobStarted(startTime);
     }
 
+    public Job getJob() {
+        return mJob;
+    }
+
     public long getJobId() {
         return mJob.getId();
     }
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.executor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records recent run times for a type of work so that latency percentiles and the expected run time can be estimated.
+ */
+public class RuntimeHistory {
+    private static final int DEFAULT_SAMPLE_COUNT = 64;
+    private static final int DEFAULT_MINIMUM_SAMPLE_COUNT = 10;
+    private static final double AVERAGE_WEIGHT = 0.2;
+
+    private final int mSampleCount;
+    private final int mMinimumSampleCount;
+    private final Map<String, Samples> mSampleMap = new HashMap<>();
+
+    public RuntimeHistory() {
+        this(DEFAULT_SAMPLE_COUNT, DEFAULT_MINIMUM_SAMPLE_COUNT);
+    }
+
+    /**
+     * @param sampleCount        Number of most recent samples to keep for each key.
+     * @param minimumSampleCount Number of samples required before percentiles are reported.
+     */
+    public RuntimeHistory(int sampleCount, int minimumSampleCount) {
+        if (sampleCount <= 0 || minimumSampleCount <= 0 || minimumSampleCount > sampleCount) {
+            throw new IllegalArgumentException("Sample counts must be > 0 and minimumSampleCount cannot exceed sampleCount");
+        }
+        mSampleCount = sampleCount;
+        mMinimumSampleCount = minimumSampleCount;
+    }
+
+    public void record(String key, long durationMs) {
+        synchronized (mSampleMap) {
+            Samples samples = mSampleMap.get(key);
+            if (samples == null) {
+                samples = new Samples(mSampleCount);
+                mSampleMap.put(key, samples);
+            }
+            samples.add(durationMs);
+        }
+    }
+
+    /**
+     * Return the duration at or below which the supplied percentage of recent samples fall, or -1 if
+     * there are not yet enough samples.
+     */
+    public long getPercentileMs(String key, int percentile) {
+        long[] sortedSamples;
+        synchronized (mSampleMap) {
+            Samples samples = mSampleMap.get(key);
+            if (samples == null || samples.size() < mMinimumSampleCount) {
+                return -1;
+            }
+            sortedSamples = samples.copy();
+        }
+        Arrays.sort(sortedSamples);
+        int index = (int) Math.ceil(percentile / 100.0 * sortedSamples.length) - 1;
+        return sortedSamples[Math.max(0, Math.min(sortedSamples.length - 1, index))];
+    }
+
+    /**
+     * Return the exponentially weighted moving average of run times favoring recent samples, or -1 if
+     * there are no samples. Unlike percentiles this is available after the first sample.
+     */
+    public long getAverageMs(String key) {
+        synchronized (mSampleMap) {
+            Samples samples = mSampleMap.get(key);
+            return samples != null ? Math.round(samples.getAverage()) : -1;
+        }
+    }
+
+    /**
+     * Fixed size ring of samples with a moving average.
+     */
+    private static class Samples {
+        private final long[] mValues;
+        private int mNext;
+        private int mSize;
+        private double mAverage;
+
+        Samples(int capacity) {
+            mValues = new long[capacity];
+        }
+
+        void add(long value) {
+            mAverage = mSize == 0 ? value : mAverage + AVERAGE_WEIGHT * (value - mAverage);
+            mValues[mNext] = value;
+            mNext = (mNext + 1) % mValues.length;
+            mSize = Math.min(mSize + 1, mValues.length);
+        }
+
+        double getAverage() {
+            return mAverage;
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        long[] copy() {
+            return Arrays.copyOf(mValues, mSize);
+        }
+    }
+}
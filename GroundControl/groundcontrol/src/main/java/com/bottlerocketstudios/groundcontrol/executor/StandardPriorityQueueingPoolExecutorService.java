@@ -25,11 +25,14 @@ import com.bottlerocketstudios.groundcontrol.inactivity.StandardInactivityCleanu
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
@@ -39,12 +42,13 @@ import java.util.concurrent.TimeUnit;
  */
 public class StandardPriorityQueueingPoolExecutorService implements PriorityQueueingPoolExecutorService, InactivityCleanupListener {
 
-    private static final JobPriorityAndIdComparator JOB_PRIORITY_COMPARATOR = new JobPriorityAndIdComparator();
-    private static final int DEFAULT_QUEUE_SIZE = 10;
-
     private final int mMaxSimultaneousJobs;
-    private final PriorityBlockingQueue<Job> mJobQueue;
+    private final JobQueue mJobQueue;
     private final List<RunningJob> mRunningJobs;
+    private final Map<String, Integer> mConcurrencyGroupLimitMap;
+    private final Map<String, Integer> mRunningGroupCountMap;
+    private final Map<String, TokenBucket> mRateLimitBucketMap;
+    private final JobQueue.JobFilter mJobFilter;
     private final boolean mEnableLogging;
     private final ThreadFactory mThreadFactory;
     private final String mLogTag;
@@ -52,17 +56,39 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
     private final IdSequence mIdSequence;
     private final InactivityCleanupRunnable mJobCleanupRunnable;
     private final int mOsThreadPriority;
+    private final JobOrdering mJobOrdering;
+    private final long mPriorityAgingMs;
+    private final int mMaxQueuedJobs;
 
     private ExecutorService mExecutorService;
     private boolean mIdle;
+    private long mEnqueueSequence;
 
     /**
      * Enforce Builder usage.
      */
     private StandardPriorityQueueingPoolExecutorService(Builder builder) {
         mMaxSimultaneousJobs = builder.maxSimultaneousJobs;
-        mJobQueue = new PriorityBlockingQueue<>(DEFAULT_QUEUE_SIZE, JOB_PRIORITY_COMPARATOR);
+        mJobOrdering = builder.jobOrdering;
+        mPriorityAgingMs = builder.priorityAgingMs;
+        mMaxQueuedJobs = builder.maxQueuedJobs;
+        Comparator<Job> jobComparator = mJobOrdering == JobOrdering.FIFO ? new JobPriorityAndIdComparator() : new JobPriorityAndSortKeyComparator();
+        mJobQueue = new JobQueue(jobComparator, builder.fairShare ? new HashMap<>(builder.fairShareWeightMap) : null);
         mRunningJobs = Collections.synchronizedList(new ArrayList<RunningJob>());
+        mConcurrencyGroupLimitMap = new HashMap<>(builder.concurrencyGroupLimitMap);
+        mRunningGroupCountMap = new HashMap<>();
+        mRateLimitBucketMap = new HashMap<>();
+        for (Map.Entry<String, RateLimit> rateLimitEntry : builder.rateLimitMap.entrySet()) {
+            RateLimit rateLimit = rateLimitEntry.getValue();
+            mRateLimitBucketMap.put(rateLimitEntry.getKey(), new TokenBucket(rateLimit.permitsPerSecond, rateLimit.burstSize, getTime()));
+        }
+        mJobFilter = new JobQueue.JobFilter() {
+            @Override
+            public boolean canExecute(Job job) {
+                return (!JobPriority.PREFETCH.equals(job.getPriority()) || isIdleExceptPrefetch())
+                        && hasRateLimitToken(job.getRateLimitGroup()) && hasConcurrencyGroupCapacity(job.getConcurrencyGroup());
+            }
+        };
         mJobCleanupRunnable = builder.jobCleanupRunnable;
         mEnableLogging = builder.enableLogging;
         mThreadFactory = builder.threadFactory;
@@ -75,17 +101,139 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
 
     @Override
     public void enqueue(List<Job> jobList) {
+        boolean preemptPrefetch = false;
+        List<Job> droppedJobList = null;
         for (Job job: jobList) {
+            preemptPrefetch |= !JobPriority.PREFETCH.equals(job.getPriority());
             if (mEnableLogging) Log.i(mLogTag, "Job entered Queue " + job.toString());
-            if (job.getPriority().equals(JobPriority.IMMEDIATE)) {
+            if (job.getPriority().equals(JobPriority.IMMEDIATE) && acquireRateLimitToken(job.getRateLimitGroup())) {
                 if (mEnableLogging) Log.i(mLogTag, "Executing immediate priority work " + job.toString());
                 executeJob(job);
             } else {
                 if (mEnableLogging) Log.i(mLogTag, "Queueing job " + job.toString());
-                mJobQueue.offer(job);
+                synchronized (mJobQueue) {
+                    assignSortKey(job);
+                    job.setQueuedTime(getTime());
+                    mJobQueue.add(job);
+                    if (mMaxQueuedJobs > 0 && mJobQueue.size() > mMaxQueuedJobs) {
+                        if (droppedJobList == null) {
+                            droppedJobList = new ArrayList<>();
+                        }
+                        droppedJobList.add(dropOldestJob());
+                    }
+                }
+                //Rate limited jobs wait for tokens added by the cleanup timer.
+                mJobCleanupRunnable.restartTimer();
             }
         }
         processQueue();
+
+        if (preemptPrefetch) {
+            requestPrefetchYield();
+        }
+
+        if (droppedJobList != null) {
+            for (Job droppedJob : droppedJobList) {
+                droppedJob.notifyJobDropped();
+            }
+        }
+    }
+
+    /**
+     * Remove and return the longest waiting Job of the lowest queued priority. Must be called while holding the mJobQueue lock.
+     */
+    private Job dropOldestJob() {
+        JobPriority[] priorities = JobPriority.values();
+        for (int i = priorities.length - 1; i >= 0; i--) {
+            Job oldestJob = mJobQueue.peekOldest(priorities[i]);
+            if (oldestJob != null) {
+                Log.w(mLogTag, "Queue is full, dropping job " + oldestJob.toString());
+                return mJobQueue.remove(oldestJob.getId());
+            }
+        }
+        throw new IllegalStateException("Queue is over capacity but empty");
+    }
+
+    /**
+     * Return true if every running and queued Job is a prefetch Job. Must be called while holding the mJobQueue lock.
+     */
+    private boolean isIdleExceptPrefetch() {
+        if (mJobQueue.size() != mJobQueue.size(JobPriority.PREFETCH)) {
+            return false;
+        }
+        synchronized (mRunningJobs) {
+            for (RunningJob runningJob : mRunningJobs) {
+                if (!JobPriority.PREFETCH.equals(runningJob.getJob().getPriority())) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Signal running prefetch Jobs that higher priority work has arrived and they should yield.
+     */
+    private void requestPrefetchYield() {
+        synchronized (mRunningJobs) {
+            for (RunningJob runningJob : mRunningJobs) {
+                if (JobPriority.PREFETCH.equals(runningJob.getJob().getPriority())) {
+                    if (mEnableLogging) Log.i(mLogTag, "Requesting yield from prefetch job " + runningJob.getJob().toString());
+                    runningJob.getJob().requestYield();
+                }
+            }
+        }
+    }
+
+    /**
+     * Position the Job among queued Jobs of the same priority according to the JobOrdering. The key is
+     * fixed at enqueue time so that a waiting Job is passed by fewer newer Jobs the longer it waits.
+     */
+    private void assignSortKey(Job job) {
+        switch (mJobOrdering) {
+            case SHORTEST_EXPECTED_FIRST:
+                job.setSortKey(getTime() + Math.max(0, job.getExpectedRuntimeMs()));
+                break;
+            case EARLIEST_DEADLINE_FIRST:
+                job.setSortKey(job.getDeadline() > 0 ? job.getDeadline() : getTime() + job.getMaximumExecutionTimeMs());
+                break;
+            case LIFO:
+                job.setSortKey(-(++mEnqueueSequence));
+                break;
+            default:
+                job.setSortKey(0);
+                break;
+        }
+    }
+
+    private boolean hasRateLimitToken(String rateLimitGroup) {
+        TokenBucket tokenBucket = rateLimitGroup != null ? mRateLimitBucketMap.get(rateLimitGroup) : null;
+        return tokenBucket == null || tokenBucket.hasToken();
+    }
+
+    /**
+     * Consume a token for the rate limit group returning false if none are available. Jobs without a limited group always succeed.
+     */
+    private boolean acquireRateLimitToken(String rateLimitGroup) {
+        TokenBucket tokenBucket = rateLimitGroup != null ? mRateLimitBucketMap.get(rateLimitGroup) : null;
+        if (tokenBucket == null) {
+            return true;
+        }
+        synchronized (mJobQueue) {
+            return tokenBucket.tryAcquire();
+        }
+    }
+
+    private void refillRateLimitBuckets() {
+        if (mRateLimitBucketMap.isEmpty()) {
+            return;
+        }
+        long now = getTime();
+        synchronized (mJobQueue) {
+            for (TokenBucket tokenBucket : mRateLimitBucketMap.values()) {
+                tokenBucket.refill(now);
+            }
+        }
     }
 
     @Override
@@ -95,8 +243,16 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
 
     private void processQueue() {
         synchronized (mJobQueue) {
+            if (mPriorityAgingMs > 0) {
+                agePriorities();
+            }
             while (mJobQueue.size() > 0 && mRunningJobs.size() < mMaxSimultaneousJobs) {
-                Job job = mJobQueue.remove();
+                Job job = mJobQueue.poll(mJobFilter);
+                if (job == null) {
+                    //Every queued group is at its concurrency limit or out of rate limit tokens.
+                    break;
+                }
+                acquireRateLimitToken(job.getRateLimitGroup());
                 executeJob(job);
             }
         }
@@ -110,16 +266,97 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
     }
 
     /**
-     * Start job running on the ExecutorService.
+     * Promote queued LOW and NORMAL Jobs one priority for each aging interval they have waited at their current
+     * priority. Only the longest waiting Job of each priority is examined, so the cost is proportional to the
+     * number of promotions rather than the queue size. Must be called while holding the mJobQueue lock.
+     */
+    private void agePriorities() {
+        long now = getTime();
+        //LOW is aged first so that a Job which has waited several intervals can continue on to HIGH.
+        ageToPriority(JobPriority.LOW, JobPriority.NORMAL, now);
+        ageToPriority(JobPriority.NORMAL, JobPriority.HIGH, now);
+    }
+
+    private void ageToPriority(JobPriority priority, JobPriority promotedPriority, long now) {
+        Job oldestJob;
+        while ((oldestJob = mJobQueue.peekOldest(priority)) != null && now - oldestJob.getQueuedTime() >= mPriorityAgingMs) {
+            if (mEnableLogging) Log.i(mLogTag, "Aging job to " + promotedPriority + " " + oldestJob.toString());
+            mJobQueue.remove(oldestJob.getId());
+            oldestJob.setPriority(promotedPriority);
+            oldestJob.setQueuedTime(oldestJob.getQueuedTime() + mPriorityAgingMs);
+            mJobQueue.add(oldestJob);
+        }
+    }
+
+    /**
+     * Start job running on the ExecutorService. The slot is released as soon as the Runnable returns
+     * so that work which hands off to other Jobs, like an Agent waiting on dependencies, does not hold it.
      */
-    private void executeJob(Job job) {
+    private void executeJob(final Job job) {
         if (mEnableLogging) Log.i(mLogTag, "Executing job " + job.toString());
         mIdle = false;
         mJobCleanupRunnable.restartTimer();
-        mRunningJobs.add(new RunningJob(job, getExecutorService().submit(job.getRunnable()), getTime()));
+        synchronized (mRunningJobs) {
+            Future future = getExecutorService().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        job.getRunnable().run();
+                    } finally {
+                        onJobFinished(job);
+                    }
+                }
+            });
+            mRunningJobs.add(new RunningJob(job, future, getTime()));
+            adjustRunningGroupCount(job.getConcurrencyGroup(), 1);
+        }
         job.notifyJobExecuted();
     }
 
+    private void onJobFinished(Job job) {
+        boolean removed;
+        synchronized (mRunningJobs) {
+            removed = mRunningJobs.remove(job);
+            if (removed) {
+                adjustRunningGroupCount(job.getConcurrencyGroup(), -1);
+            }
+        }
+        if (removed) {
+            if (mEnableLogging) Log.i(mLogTag, "Released slot for finished job " + job.toString());
+            processQueue();
+        }
+    }
+
+    /**
+     * Track running Jobs per limited concurrency group. Must be called while holding the mRunningJobs lock.
+     */
+    private void adjustRunningGroupCount(String concurrencyGroup, int delta) {
+        if (concurrencyGroup == null || !mConcurrencyGroupLimitMap.containsKey(concurrencyGroup)) {
+            return;
+        }
+        Integer runningCount = mRunningGroupCountMap.get(concurrencyGroup);
+        int newCount = (runningCount != null ? runningCount : 0) + delta;
+        if (newCount > 0) {
+            mRunningGroupCountMap.put(concurrencyGroup, newCount);
+        } else {
+            mRunningGroupCountMap.remove(concurrencyGroup);
+        }
+    }
+
+    private boolean hasConcurrencyGroupCapacity(String concurrencyGroup) {
+        if (concurrencyGroup == null) {
+            return true;
+        }
+        Integer limit = mConcurrencyGroupLimitMap.get(concurrencyGroup);
+        if (limit == null) {
+            return true;
+        }
+        synchronized (mRunningJobs) {
+            Integer runningCount = mRunningGroupCountMap.get(concurrencyGroup);
+            return runningCount == null || runningCount < limit;
+        }
+    }
+
     private long getTime() {
         return SystemClock.uptimeMillis();
     }
@@ -148,14 +385,17 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
                 if (runningJob.isComplete()) {
                     if (mEnableLogging) Log.i(mLogTag, "Cleaning up completed job " + runningJob.toString());
                     runningJobIterator.remove();
+                    adjustRunningGroupCount(runningJob.getJob().getConcurrencyGroup(), -1);
                 } else if (runningJob.isPastExecutionTimeLimit(now)) {
                     Log.w(mLogTag, "Killing overdue job " + runningJob.toString());
                     runningJob.cancel(true);
                     runningJobIterator.remove();
+                    adjustRunningGroupCount(runningJob.getJob().getConcurrencyGroup(), -1);
                 }
             }
         }
 
+        refillRateLimitBuckets();
         processQueue();
     }
 
@@ -192,34 +432,58 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
             for (RunningJob runningJob : mRunningJobs) {
                 //First determine if job is already running and skip it if it is.
                 if (runningJob.getJobId() == jobId) {
+                    //A promoted prefetch Job no longer yields or holds back other prefetch Jobs.
+                    if (JobPriority.PREFETCH.equals(runningJob.getJob().getPriority())) {
+                        runningJob.getJob().setPriority(priority);
+                    }
                     return;
                 }
             }
         }
 
+        Job queuedJob;
         synchronized (mJobQueue) {
-            for (Iterator<Job> jobIterator = mJobQueue.iterator(); jobIterator.hasNext(); ) {
-                Job job = jobIterator.next();
-                if (job.getId() == jobId) {
-                    //Found it in the queue.
-                    if (priority.equals(JobPriority.IMMEDIATE)) {
-                        //If it is immediate priority, remove from queue and execute.
-                        jobIterator.remove();
-                        executeJob(job);
-                    } else {
-                        //Otherwise, just change the priority. It will dequeue appropriately.
-                        job.setPriority(priority);
-                    }
-                    return;
-                }
+            queuedJob = mJobQueue.get(jobId);
+            if (queuedJob != null && priority.equals(JobPriority.IMMEDIATE) && acquireRateLimitToken(queuedJob.getRateLimitGroup())) {
+                //If it is immediate priority, remove from queue and execute.
+                Job job = mJobQueue.remove(jobId);
+                job.setPriority(priority);
+                executeJob(job);
+            } else {
+                //Otherwise, reinsert with the new priority so it will dequeue appropriately.
+                mJobQueue.updatePriority(jobId, priority, getTime());
             }
         }
+
+        if (queuedJob != null && !JobPriority.PREFETCH.equals(priority)) {
+            requestPrefetchYield();
+        }
+    }
+
+    @Override
+    public boolean removeJob(long jobId) {
+        Job removedJob;
+        synchronized (mJobQueue) {
+            removedJob = mJobQueue.remove(jobId);
+        }
+        if (removedJob != null && mEnableLogging) Log.i(mLogTag, "Removed queued job " + removedJob.toString());
+        return removedJob != null;
     }
 
     public static Builder builder() {
         return new Builder();
     }
 
+    private static class RateLimit {
+        private final double permitsPerSecond;
+        private final int burstSize;
+
+        private RateLimit(double permitsPerSecond, int burstSize) {
+            this.permitsPerSecond = permitsPerSecond;
+            this.burstSize = burstSize;
+        }
+    }
+
     public static class Builder {
         private static final long DEFAULT_INACTIVITY_IDLE_MS = TimeUnit.MINUTES.toMillis(2);
         private static final long DEFAULT_NORMAL_CLEANUP_INTERVAL_MS = 100;
@@ -235,6 +499,13 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
         private String logTag;
         private int highSpeedQueueThreshold;
         private Integer osThreadPriority;
+        private JobOrdering jobOrdering;
+        private long priorityAgingMs;
+        private int maxQueuedJobs;
+        private boolean fairShare;
+        private final Map<String, Integer> concurrencyGroupLimitMap = new HashMap<>();
+        private final Map<String, Integer> fairShareWeightMap = new HashMap<>();
+        private final Map<String, RateLimit> rateLimitMap = new HashMap<>();
 
         public PriorityQueueingPoolExecutorService build() {
             //Configure defaults if unspecified
@@ -271,6 +542,10 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
                 setOsThreadPriority(DEFAULT_OS_THREAD_PRIORITY);
             }
 
+            if (jobOrdering == null) {
+                setJobOrdering(JobOrdering.FIFO);
+            }
+
             //Finish creation and linking.
 
             StandardPriorityQueueingPoolExecutorService priorityQueueingPoolExecutorService = new StandardPriorityQueueingPoolExecutorService(this);
@@ -296,6 +571,92 @@ public class StandardPriorityQueueingPoolExecutorService implements PriorityQueu
             return this;
         }
 
+        /**
+         * Limit the number of simultaneously executing prioritized jobs in the supplied concurrency group. Queued
+         * jobs from a group at its limit are skipped so they do not block jobs from other groups. Jobs in groups
+         * without a limit are only bound by the maximum simultaneous jobs.
+         */
+        public Builder setConcurrencyGroupLimit(String concurrencyGroup, int maxSimultaneousJobs) {
+            if (concurrencyGroup == null || maxSimultaneousJobs <= 0) {
+                throw new IllegalArgumentException("Concurrency group must be non-null with a positive limit");
+            }
+            concurrencyGroupLimitMap.put(concurrencyGroup, maxSimultaneousJobs);
+            return this;
+        }
+
+        /**
+         * Limit the rate at which jobs in the supplied rate limit group are started using a token bucket
+         * refilled by the cleanup timer. Jobs wait in the queue rather than on a thread and remain subject
+         * to priority updates. Immediate priority jobs also consume a token and are queued when none remain.
+         *
+         * @param permitsPerSecond Sustained rate of job starts.
+         * @param burstSize        Number of jobs that may start back to back after a quiet period.
+         */
+        public Builder setRateLimit(String rateLimitGroup, double permitsPerSecond, int burstSize) {
+            if (rateLimitGroup == null || permitsPerSecond <= 0 || burstSize <= 0) {
+                throw new IllegalArgumentException("Rate limit group must be non-null with a positive rate and burst size");
+            }
+            rateLimitMap.put(rateLimitGroup, new RateLimit(permitsPerSecond, burstSize));
+            return this;
+        }
+
+        /**
+         * Order in which queued jobs of the same priority are started. Defaults to {@link JobOrdering#FIFO}.
+         * Runtime aware orderings use the expected run time and deadline supplied on each Job.
+         */
+        public Builder setJobOrdering(JobOrdering jobOrdering) {
+            this.jobOrdering = jobOrdering;
+            return this;
+        }
+
+        /**
+         * Promote queued LOW and NORMAL priority jobs one priority, up to HIGH, for each interval of this many
+         * milliseconds they wait so that they are not starved by sustained higher priority work. IMMEDIATE and
+         * PREFETCH jobs are not aged. Defaults to 0 which disables aging.
+         */
+        public Builder setPriorityAgingMs(long priorityAgingMs) {
+            if (priorityAgingMs < 0) {
+                throw new IllegalArgumentException("Priority aging interval must not be negative");
+            }
+            this.priorityAgingMs = priorityAgingMs;
+            return this;
+        }
+
+        /**
+         * Limit the number of queued jobs. When a job is queued beyond the limit the longest waiting job of the
+         * lowest queued priority is dropped without being executed and its listener is notified. Defaults to 0
+         * which does not limit the queue.
+         */
+        public Builder setMaxQueuedJobs(int maxQueuedJobs) {
+            if (maxQueuedJobs < 0) {
+                throw new IllegalArgumentException("Maximum queued jobs must not be negative");
+            }
+            this.maxQueuedJobs = maxQueuedJobs;
+            return this;
+        }
+
+        /**
+         * Share execution slots between fair share keys within each priority instead of starting jobs strictly in
+         * order, so one key with many queued jobs cannot hold back a single job from another key. Ordering still
+         * applies among the jobs of each key. Defaults to false.
+         */
+        public Builder setFairShare(boolean fairShare) {
+            this.fairShare = fairShare;
+            return this;
+        }
+
+        /**
+         * Start jobs with the supplied fair share key in proportion to this weight relative to other keys when fair
+         * share is enabled. Keys without a weight have a weight of 1.
+         */
+        public Builder setFairShareWeight(String fairShareKey, int weight) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Fair share weight must be positive");
+            }
+            fairShareWeightMap.put(fairShareKey, weight);
+            return this;
+        }
+
         /**
          * Enable logging for debugging purposes.
          */
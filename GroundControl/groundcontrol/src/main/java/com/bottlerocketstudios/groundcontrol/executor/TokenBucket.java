@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.executor;
+
+/**
+ * Token bucket used to limit the rate at which Jobs in a rate limit group are started. Tokens accumulate
+ * at the permitted rate up to the burst size when refilled. This class is not thread safe, callers must
+ * synchronize access.
+ */
+public class TokenBucket {
+    private final double mPermitsPerSecond;
+    private final int mBurstSize;
+    private double mTokens;
+    private long mLastRefillTime;
+
+    public TokenBucket(double permitsPerSecond, int burstSize, long currentTime) {
+        if (permitsPerSecond <= 0 || burstSize <= 0) {
+            throw new IllegalArgumentException("Rate and burst size must be positive");
+        }
+        mPermitsPerSecond = permitsPerSecond;
+        mBurstSize = burstSize;
+        mTokens = burstSize;
+        mLastRefillTime = currentTime;
+    }
+
+    /**
+     * Add the tokens earned since the last refill.
+     */
+    public void refill(long currentTime) {
+        long elapsedMs = currentTime - mLastRefillTime;
+        if (elapsedMs > 0) {
+            mTokens = Math.min(mBurstSize, mTokens + elapsedMs * mPermitsPerSecond / 1000.0);
+            mLastRefillTime = currentTime;
+        }
+    }
+
+    public boolean hasToken() {
+        return mTokens >= 1.0;
+    }
+
+    /**
+     * Consume a token if one is available.
+     */
+    public boolean tryAcquire() {
+        if (!hasToken()) {
+            return false;
+        }
+        mTokens -= 1.0;
+        return true;
+    }
+}
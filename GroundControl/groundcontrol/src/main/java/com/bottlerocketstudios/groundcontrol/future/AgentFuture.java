@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.future;
+
+import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A composable Future for the result of an Agent. Dependent stages added with thenApply, thenCombine,
+ * thenAccept or allOf run inline on the thread that completes the stage they depend on, normally the
+ * thread delivering the Agent's result, or on the calling thread if that stage is already complete.
+ * Keep stages short as they hold up delivery like any other direct callback.
+ * </p><p>
+ * As with AgentListener, a null result indicates that the Agent failed or timed out. A stage that throws
+ * completes its dependent future exceptionally and the exception is passed down the chain.
+ * </p><p>
+ * Cancelling a future created by {@link com.bottlerocketstudios.groundcontrol.convenience.ExecutionBuilder#executeAsFuture()}
+ * cancels its AgentTether. Cancelling a dependent stage does not cancel the stages it depends on.
+ * </p>
+ */
+public class AgentFuture<ResultType> implements Future<ResultType> {
+
+    private final CountDownLatch mDoneLatch = new CountDownLatch(1);
+    private final List<Runnable> mCompletionRunnableList = new ArrayList<>();
+
+    private AgentTether mAgentTether;
+    private boolean mDone;
+    private boolean mCancelled;
+    private ResultType mResult;
+    private Throwable mFailure;
+
+    /**
+     * Associate the AgentTether which will be cancelled along with this future.
+     */
+    public void setAgentTether(AgentTether agentTether) {
+        boolean cancelled;
+        synchronized (this) {
+            mAgentTether = agentTether;
+            cancelled = mCancelled;
+        }
+        if (cancelled) {
+            agentTether.cancel();
+        }
+    }
+
+    /**
+     * Complete this future with the supplied result if it has not already completed.
+     */
+    public boolean complete(ResultType result) {
+        return finish(result, null, false);
+    }
+
+    /**
+     * Complete this future with the supplied failure if it has not already completed.
+     */
+    public boolean completeExceptionally(Throwable failure) {
+        return finish(null, failure, false);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = finish(null, new CancellationException(), true);
+        if (cancelled) {
+            AgentTether agentTether;
+            synchronized (this) {
+                agentTether = mAgentTether;
+            }
+            if (agentTether != null) {
+                agentTether.cancel();
+            }
+        }
+        return cancelled;
+    }
+
+    private boolean finish(ResultType result, Throwable failure, boolean cancelled) {
+        List<Runnable> completionRunnableList;
+        synchronized (this) {
+            if (mDone) {
+                return false;
+            }
+            mDone = true;
+            mResult = result;
+            mFailure = failure;
+            mCancelled = cancelled;
+            completionRunnableList = new ArrayList<>(mCompletionRunnableList);
+            mCompletionRunnableList.clear();
+        }
+        mDoneLatch.countDown();
+
+        for (Runnable completionRunnable : completionRunnableList) {
+            completionRunnable.run();
+        }
+        return true;
+    }
+
+    /**
+     * Run the supplied Runnable once this future is done, immediately if it already is.
+     */
+    private void whenDone(Runnable completionRunnable) {
+        synchronized (this) {
+            if (!mDone) {
+                mCompletionRunnableList.add(completionRunnable);
+                return;
+            }
+        }
+        completionRunnable.run();
+    }
+
+    private synchronized Throwable getFailure() {
+        return mFailure;
+    }
+
+    private synchronized ResultType getResult() {
+        return mResult;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return mDone;
+    }
+
+    @Override
+    public ResultType get() throws InterruptedException, ExecutionException {
+        mDoneLatch.await();
+        return reportResult();
+    }
+
+    @Override
+    public ResultType get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!mDoneLatch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return reportResult();
+    }
+
+    private synchronized ResultType reportResult() throws ExecutionException {
+        if (mCancelled) {
+            throw new CancellationException();
+        } else if (mFailure != null) {
+            throw new ExecutionException(mFailure);
+        }
+        return mResult;
+    }
+
+    /**
+     * Return a new future completed with the result of the function applied to this future's result.
+     */
+    public <NextType> AgentFuture<NextType> thenApply(final ResultFunction<? super ResultType, ? extends NextType> function) {
+        final AgentFuture<NextType> nextFuture = new AgentFuture<>();
+        whenDone(new Runnable() {
+            @Override
+            public void run() {
+                Throwable failure = getFailure();
+                if (failure != null) {
+                    nextFuture.completeExceptionally(failure);
+                    return;
+                }
+
+                try {
+                    nextFuture.complete(function.apply(getResult()));
+                } catch (RuntimeException e) {
+                    nextFuture.completeExceptionally(e);
+                }
+            }
+        });
+        return nextFuture;
+    }
+
+    /**
+     * Return a new future that is completed after the consumer has received this future's result.
+     */
+    public AgentFuture<Void> thenAccept(final ResultConsumer<? super ResultType> consumer) {
+        return thenApply(new ResultFunction<ResultType, Void>() {
+            @Override
+            public Void apply(ResultType input) {
+                consumer.accept(input);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Return a new future completed with the combination of this future's result and the other future's
+     * result once both are done.
+     */
+    public <OtherType, NextType> AgentFuture<NextType> thenCombine(final AgentFuture<? extends OtherType> otherFuture, final ResultCombiner<? super ResultType, ? super OtherType, ? extends NextType> combiner) {
+        final AgentFuture<NextType> nextFuture = new AgentFuture<>();
+        whenDone(new Runnable() {
+            @Override
+            public void run() {
+                otherFuture.whenDone(new Runnable() {
+                    @Override
+                    public void run() {
+                        Throwable failure = getFailure() != null ? getFailure() : otherFuture.getFailure();
+                        if (failure != null) {
+                            nextFuture.completeExceptionally(failure);
+                            return;
+                        }
+
+                        try {
+                            nextFuture.complete(combiner.combine(getResult(), otherFuture.getResult()));
+                        } catch (RuntimeException e) {
+                            nextFuture.completeExceptionally(e);
+                        }
+                    }
+                });
+            }
+        });
+        return nextFuture;
+    }
+
+    /**
+     * Return a new future that is completed when all of the supplied futures are done. If any of them
+     * failed, it is completed exceptionally with one of those failures.
+     */
+    public static AgentFuture<Void> allOf(final AgentFuture<?>... futures) {
+        final AgentFuture<Void> allFuture = new AgentFuture<>();
+        if (futures.length == 0) {
+            allFuture.complete(null);
+            return allFuture;
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(futures.length);
+        for (final AgentFuture<?> future : futures) {
+            future.whenDone(new Runnable() {
+                @Override
+                public void run() {
+                    if (remaining.decrementAndGet() == 0) {
+                        for (AgentFuture<?> completedFuture : futures) {
+                            if (completedFuture.getFailure() != null) {
+                                allFuture.completeExceptionally(completedFuture.getFailure());
+                                return;
+                            }
+                        }
+                        allFuture.complete(null);
+                    }
+                }
+            });
+        }
+        return allFuture;
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.future;
+
+import com.bottlerocketstudios.groundcontrol.listener.FunctionalAgentListener;
+
+/**
+ * AgentListener that completes an AgentFuture with the Agent's result.
+ */
+public class FutureAgentListener<ResultType, ProgressType> extends FunctionalAgentListener<ResultType, ProgressType> {
+    private final AgentFuture<ResultType> mAgentFuture;
+
+    public FutureAgentListener(AgentFuture<ResultType> agentFuture) {
+        mAgentFuture = agentFuture;
+    }
+
+    @Override
+    public void onCompletion(String agentIdentifier, ResultType result) {
+        mAgentFuture.complete(result);
+    }
+}
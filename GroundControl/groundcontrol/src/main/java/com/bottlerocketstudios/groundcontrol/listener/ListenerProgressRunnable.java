@@ -28,10 +28,19 @@ public class ListenerProgressRunnable<ProgressType> implements Runnable {
         mAgentIdentifier = agentIdentifier;
         mListener = listener;
         mProgress = progress;
+        if (progress instanceof TrackedProgress) {
+            ((TrackedProgress) progress).onDeliveryScheduled();
+        }
     }
 
     @Override
     public void run() {
-        mListener.onProgress(mAgentIdentifier, mProgress);
+        try {
+            mListener.onProgress(mAgentIdentifier, mProgress);
+        } finally {
+            if (mProgress instanceof TrackedProgress) {
+                ((TrackedProgress) mProgress).onDelivered();
+            }
+        }
     }
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.listener;
+
+/**
+ * Progress which is notified as each delivery to a listener is scheduled and completed. This allows the
+ * sender to apply backpressure based on how many deliveries are still outstanding.
+ */
+public interface TrackedProgress {
+    /**
+     * Called on the notifying thread when a delivery of this progress has been scheduled for a listener.
+     */
+    void onDeliveryScheduled();
+
+    /**
+     * Called after a listener has returned from onProgress with this progress.
+     */
+    void onDelivered();
+}
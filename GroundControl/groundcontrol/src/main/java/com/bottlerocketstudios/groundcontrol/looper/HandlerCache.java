@@ -19,16 +19,19 @@ package com.bottlerocketstudios.groundcontrol.looper;
 import android.os.Handler;
 import android.os.Process;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A cache of recently used Handlers that will automatically create the required Looper via
- * {@link com.bottlerocketstudios.groundcontrol.looper.LooperController}
+ * {@link com.bottlerocketstudios.groundcontrol.looper.LooperController}. Lookups of existing Handlers
+ * do not lock, only Handler creation and stopHandler are serialized.
  */
 public class HandlerCache {
 
+    private static final String LANE_SEPARATOR = "#lane";
+
     private final Map<String, Handler> mHandlerMap;
     private final int mDefaultOsThreadPriority;
 
@@ -44,8 +47,21 @@ public class HandlerCache {
      * Create a new HandlerCache that will use supplied OS thread priority as default.
      */
     public HandlerCache(int defaultOsThreadPriority) {
-        mHandlerMap = Collections.synchronizedMap(new HashMap<String, Handler>());
+        this(defaultOsThreadPriority, 0);
+    }
+
+    /**
+     * Create a new HandlerCache that will use supplied OS thread priority as default and keep warmLooperCount
+     * Loopers prestarted at that priority so new looperIds can be served without waiting on thread startup.
+     *
+     * @see LooperController#prewarmLoopers(int, int)
+     */
+    public HandlerCache(int defaultOsThreadPriority, int warmLooperCount) {
+        mHandlerMap = new ConcurrentHashMap<>();
         mDefaultOsThreadPriority = defaultOsThreadPriority;
+        if (warmLooperCount > 0) {
+            LooperController.prewarmLoopers(warmLooperCount, defaultOsThreadPriority);
+        }
     }
 
     /**
@@ -60,7 +76,16 @@ public class HandlerCache {
      * Get or create a handler with a looper using the associated looperId creating a looping Looper if necessary. If
      * creating a new looper, will use the supplied osThreadPriority.
      */
-    public synchronized Handler getHandler(String looperId, int osThreadPriority) {
+    public Handler getHandler(String looperId, int osThreadPriority) {
+        Handler handler = mHandlerMap.get(looperId);
+        if (handler == null) {
+            handler = createHandler(looperId, osThreadPriority);
+        }
+        return handler;
+    }
+
+    private synchronized Handler createHandler(String looperId, int osThreadPriority) {
+        //Another thread may have created the Handler while this one waited.
         Handler handler = mHandlerMap.get(looperId);
         if (handler == null) {
             handler = new Handler(LooperController.getLooper(looperId, osThreadPriority));
@@ -70,11 +95,30 @@ public class HandlerCache {
     }
 
     /**
-     * Shutdown the looper associated with the specified handler id.
+     * Get or create the handler for one of laneCount serial lanes belonging to looperId. The laneKey is hashed
+     * to select the lane so the same key is always delivered in order on the same Looper. Lanes are stopped
+     * along with looperId.
+     */
+    public Handler getLaneHandler(String looperId, String laneKey, int laneCount) {
+        int lane = (laneKey.hashCode() & Integer.MAX_VALUE) % laneCount;
+        return getHandler(looperId + LANE_SEPARATOR + lane);
+    }
+
+    /**
+     * Shutdown the looper associated with the specified handler id and any lanes created for it.
      */
     public synchronized void stopHandler(String looperId) {
         mHandlerMap.remove(looperId);
         LooperController.stopLooper(looperId);
+
+        String lanePrefix = looperId + LANE_SEPARATOR;
+        for (Iterator<String> looperIdIterator = mHandlerMap.keySet().iterator(); looperIdIterator.hasNext();) {
+            String laneLooperId = looperIdIterator.next();
+            if (laneLooperId.startsWith(lanePrefix)) {
+                looperIdIterator.remove();
+                LooperController.stopLooper(laneLooperId);
+            }
+        }
     }
 
 }
@@ -19,17 +19,20 @@ import android.annotation.SuppressLint;
 import android.os.Build;
 import android.os.Looper;
 import android.os.Process;
-import android.os.SystemClock;
 import android.util.Log;
 
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 /**
  * Contains a collection of Loopers in a static, synchronized map. Will instantiate loopers with a
- * newly provided identifier and restart dead Loopers.
+ * newly provided identifier and restart dead Loopers. An optional warm pool of prestarted Loopers
+ * per thread priority can be kept to serve new identifiers immediately.
  */
 public class LooperController {
     private static final String TAG = LooperController.class.getSimpleName();
@@ -39,6 +42,8 @@ public class LooperController {
     private static final long MAX_CREATION_TIME_MS = TimeUnit.SECONDS.toMillis(2);
 
     private static final Map<String, Looper> sLooperMap = Collections.synchronizedMap(new HashMap<String, Looper>());
+    private static final Map<Integer, Queue<LooperThread>> sWarmLooperPool = new HashMap<>();
+    private static final Map<Integer, Integer> sWarmLooperPoolSizeMap = new HashMap<>();
 
     /**
      * Return the main Looper associated with the UI
@@ -95,47 +100,107 @@ public class LooperController {
         }
     }
 
-    private static class Container<T> {
-        T mValue;
+    /**
+     * Start threads until the warm pool for osThreadPriority holds looperCount Loopers. When a Looper is needed for
+     * a new looperId at that priority, one is claimed from the pool instead of waiting on a new thread to start,
+     * and a replacement is started in the background. Each warm Looper holds an idle thread.
+     */
+    public static void prewarmLoopers(int looperCount, int osThreadPriority) {
+        validateThreadPriority(osThreadPriority);
+        synchronized (sWarmLooperPool) {
+            sWarmLooperPoolSizeMap.put(osThreadPriority, looperCount);
+            fillWarmLooperPool(osThreadPriority);
+        }
+    }
 
-        public void setValue(T value) {
-            mValue = value;
+    /**
+     * Start new looper threads to bring the warm pool up to its size. Must be called while synchronized on sWarmLooperPool.
+     */
+    private static void fillWarmLooperPool(int osThreadPriority) {
+        Integer poolSize = sWarmLooperPoolSizeMap.get(osThreadPriority);
+        if (poolSize == null) return;
+
+        Queue<LooperThread> looperThreadQueue = sWarmLooperPool.get(osThreadPriority);
+        if (looperThreadQueue == null) {
+            looperThreadQueue = new ArrayDeque<>();
+            sWarmLooperPool.put(osThreadPriority, looperThreadQueue);
         }
 
-        public T getValue() {
-            return mValue;
+        //Shrinking the pool quits the surplus idle Loopers.
+        while (looperThreadQueue.size() > poolSize) {
+            Looper looper = looperThreadQueue.poll().awaitLooper(MAX_CREATION_TIME_MS);
+            if (looper != null) {
+                quitLooper(looper);
+            }
+        }
+
+        while (looperThreadQueue.size() < poolSize) {
+            LooperThread looperThread = new LooperThread(osThreadPriority);
+            looperThread.start();
+            looperThreadQueue.add(looperThread);
         }
     }
 
-    private static Looper createLooper(final int osThreadPriority) {
-        final Container<Looper> looperContainer = new Container<>();
+    private static LooperThread claimWarmLooperThread(int osThreadPriority) {
+        synchronized (sWarmLooperPool) {
+            Queue<LooperThread> looperThreadQueue = sWarmLooperPool.get(osThreadPriority);
+            LooperThread looperThread = looperThreadQueue != null ? looperThreadQueue.poll() : null;
+            if (looperThread != null) {
+                fillWarmLooperPool(osThreadPriority);
+            }
+            return looperThread;
+        }
+    }
 
+    private static void validateThreadPriority(int osThreadPriority) {
         if (osThreadPriority < Process.THREAD_PRIORITY_URGENT_AUDIO || osThreadPriority > Process.THREAD_PRIORITY_LOWEST) {
             throw new IllegalArgumentException("Cannot set thread priority to " + osThreadPriority);
         }
+    }
 
-        Thread thread = new Thread() {
-            @Override
-            public void run() {
-                super.run();
-                android.os.Looper.prepare();
-                Process.setThreadPriority(osThreadPriority);
-                looperContainer.setValue(Looper.myLooper());
-                Looper.loop();
-            }
-        };
-        thread.start();
+    private static Looper createLooper(final int osThreadPriority) {
+        validateThreadPriority(osThreadPriority);
+
+        LooperThread looperThread = claimWarmLooperThread(osThreadPriority);
+        if (looperThread == null) {
+            looperThread = new LooperThread(osThreadPriority);
+            looperThread.start();
+        }
+
+        return looperThread.awaitLooper(MAX_CREATION_TIME_MS);
+    }
+
+    /**
+     * Thread that prepares a Looper at the requested priority and publishes it through a latch.
+     */
+    private static class LooperThread extends Thread {
+        private final int mOsThreadPriority;
+        private final CountDownLatch mLooperReadyLatch = new CountDownLatch(1);
+        private volatile Looper mLooper;
+
+        public LooperThread(int osThreadPriority) {
+            mOsThreadPriority = osThreadPriority;
+        }
 
-        //Wait until looper is ready.
-        long creationStart = SystemClock.uptimeMillis();
-        while (looperContainer.getValue() == null && SystemClock.uptimeMillis() - creationStart < MAX_CREATION_TIME_MS) {
+        @Override
+        public void run() {
+            android.os.Looper.prepare();
+            Process.setThreadPriority(mOsThreadPriority);
+            mLooper = Looper.myLooper();
+            mLooperReadyLatch.countDown();
+            Looper.loop();
+        }
+
+        public Looper awaitLooper(long timeoutMs) {
             try {
-                Thread.sleep(5);
+                if (!mLooperReadyLatch.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    Log.e(TAG, "Looper was not ready within " + timeoutMs + "ms");
+                }
             } catch (InterruptedException e) {
                 Log.e(TAG, "Caught java.lang.InterruptedException", e);
+                Thread.currentThread().interrupt();
             }
+            return mLooper;
         }
-
-        return looperContainer.getValue();
     }
 }
@@ -33,6 +33,17 @@ public class AgentPolicy {
     private final boolean mParallelBackgroundCallback;
     private final boolean mBypassCache;
     private final boolean mClearCache;
+    private final boolean mDirectBackgroundCallback;
+    private final long mDirectCallbackBudgetMs;
+    private final int mSerialCallbackLaneCount;
+    private final String mCallbackOrderingKey;
+    private final long mHedgeDelayMs;
+    private final int mHedgeLatencyPercentile;
+    private final RetryPolicy mRetryPolicy;
+    private final String mCircuitBreakerGroup;
+    private final String mConcurrencyGroup;
+    private final String mRateLimitGroup;
+    private final String mFairShareKey;
 
     public AgentPolicy(AgentPolicyBuilder builder) {
         mCallbackLooperId = builder.getCallbackLooperId();
@@ -43,6 +54,17 @@ public class AgentPolicy {
         mBypassCache = builder.shouldBypassCache();
         mParallelCallbackTimeoutMs = builder.getParallelCallbackTimeoutMs();
         mClearCache = builder.shouldClearCache();
+        mDirectBackgroundCallback = builder.isDirectBackgroundCallback();
+        mDirectCallbackBudgetMs = builder.getDirectCallbackBudgetMs();
+        mSerialCallbackLaneCount = builder.getSerialCallbackLaneCount();
+        mCallbackOrderingKey = builder.getCallbackOrderingKey();
+        mHedgeDelayMs = builder.getHedgeDelayMs();
+        mHedgeLatencyPercentile = builder.getHedgeLatencyPercentile();
+        mRetryPolicy = builder.getRetryPolicy();
+        mCircuitBreakerGroup = builder.getCircuitBreakerGroup();
+        mConcurrencyGroup = builder.getConcurrencyGroup();
+        mRateLimitGroup = builder.getRateLimitGroup();
+        mFairShareKey = builder.getFairShareKey();
     }
 
     public String getCallbackLooperId() {
@@ -76,4 +98,48 @@ public class AgentPolicy {
     public boolean shouldClearCache() {
         return mClearCache;
     }
+
+    public boolean isDirectBackgroundCallback() {
+        return mDirectBackgroundCallback;
+    }
+
+    public long getDirectCallbackBudgetMs() {
+        return mDirectCallbackBudgetMs;
+    }
+
+    public int getSerialCallbackLaneCount() {
+        return mSerialCallbackLaneCount;
+    }
+
+    public String getCallbackOrderingKey() {
+        return mCallbackOrderingKey;
+    }
+
+    public long getHedgeDelayMs() {
+        return mHedgeDelayMs;
+    }
+
+    public int getHedgeLatencyPercentile() {
+        return mHedgeLatencyPercentile;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    public String getCircuitBreakerGroup() {
+        return mCircuitBreakerGroup;
+    }
+
+    public String getConcurrencyGroup() {
+        return mConcurrencyGroup;
+    }
+
+    public String getRateLimitGroup() {
+        return mRateLimitGroup;
+    }
+
+    public String getFairShareKey() {
+        return mFairShareKey;
+    }
 }
@@ -58,6 +58,56 @@ public interface AgentPolicyBuilder {
 
     boolean isParallelBackgroundCallback();
 
+    /**
+     * <p>
+     * Callback operations will be invoked directly on the thread that delivered the result or progress,
+     * typically the Agent's own thread, skipping the hop onto the listener executor. This is intended
+     * for cheap listeners such as those that only hand the result to another Agent.
+     * </p><p>
+     * A listener that takes longer than the direct callback budget to return will be remembered as slow
+     * and all further deliveries to it will use the parallel background thread pool instead.
+     * </p>
+     * <strong>
+     * This implies setParallelBackgroundCallback(true) and cannot be combined with a callback Looper ID.
+     * </strong>
+     */
+    AgentPolicyBuilder setDirectBackgroundCallback(boolean directBackgroundCallback);
+
+    boolean isDirectBackgroundCallback();
+
+    /**
+     * Set the amount of time in milliseconds a directBackgroundCallback listener may take before it is
+     * considered slow and moved back to the parallel background thread pool.
+     */
+    AgentPolicyBuilder setDirectCallbackBudgetMs(long directCallbackBudgetMs);
+
+    long getDirectCallbackBudgetMs();
+
+    /**
+     * <p>
+     * Shard serial callbacks for the callback Looper ID across this many Looper threads. Each delivery is
+     * hashed by its ordering key onto one lane, so deliveries sharing a key remain FIFO and serial while
+     * deliveries for different keys no longer wait on each other. A value of 1 delivers on the single
+     * callback Looper.
+     * </p>
+     * <strong>
+     * Lanes can only be used with a background callback Looper ID, the UI Looper cannot be sharded.
+     * </strong>
+     *
+     * @see com.bottlerocketstudios.groundcontrol.policy.AgentPolicyBuilder#setCallbackOrderingKey(String)
+     */
+    AgentPolicyBuilder setSerialCallbackLaneCount(int serialCallbackLaneCount);
+
+    int getSerialCallbackLaneCount();
+
+    /**
+     * Set the key used to select a serial callback lane. Deliveries with the same key are delivered in order
+     * on the same lane. When null, the agentIdentifier is used.
+     */
+    AgentPolicyBuilder setCallbackOrderingKey(String callbackOrderingKey);
+
+    String getCallbackOrderingKey();
+
     /**
      * Timeout in milliseconds before the listener will be notified with a null completion. This timeout
      * will start running as soon as a Policy is submitted.
@@ -136,6 +186,68 @@ public interface AgentPolicyBuilder {
      */
     AgentPolicyBuilder disableCache();
 
+    /**
+     * Start a second instance of a {@link com.bottlerocketstudios.groundcontrol.agent.HedgeableAgent} if it has not
+     * completed this long after it began running. Whichever instance completes first is delivered and the other
+     * is cancelled. A value of 0 disables fixed delay hedging. When a hedge latency percentile is also set this
+     * is used until enough runtime history exists.
+     */
+    AgentPolicyBuilder setHedgeDelayMs(long hedgeDelayMs);
+
+    long getHedgeDelayMs();
+
+    /**
+     * Derive the hedge delay from this percentile of previously observed runtimes for the same Agent class,
+     * e.g. 95. A value of 0 disables percentile hedging.
+     */
+    AgentPolicyBuilder setHedgeLatencyPercentile(int hedgeLatencyPercentile);
+
+    int getHedgeLatencyPercentile();
+
+    /**
+     * Retry failed attempts according to the supplied RetryPolicy. Retries are delayed on the AgentExecutor's
+     * timer, keep coalesced listeners attached, and stop once the next attempt could not begin before the
+     * latest request deadline. A null value disables retry.
+     */
+    AgentPolicyBuilder setRetryPolicy(RetryPolicy retryPolicy);
+
+    RetryPolicy getRetryPolicy();
+
+    /**
+     * Group used by the AgentExecutor's CircuitBreaker to count failures for this Agent. Agents sharing a
+     * backend should share a group. A null value uses the Agent class name.
+     */
+    AgentPolicyBuilder setCircuitBreakerGroup(String circuitBreakerGroup);
+
+    String getCircuitBreakerGroup();
+
+    /**
+     * Concurrency group for the Agent's Jobs. Limits for each group are configured on the
+     * StandardPriorityQueueingPoolExecutorService so that one kind of Agent cannot occupy every execution slot.
+     * A null value leaves the Agent bound only by the overall limit.
+     */
+    AgentPolicyBuilder setConcurrencyGroup(String concurrencyGroup);
+
+    String getConcurrencyGroup();
+
+    /**
+     * Rate limit group for the Agent's Jobs. Rates for each group are configured on the
+     * StandardPriorityQueueingPoolExecutorService and queued Jobs wait for a token without holding a thread.
+     * A null value does not limit the rate.
+     */
+    AgentPolicyBuilder setRateLimitGroup(String rateLimitGroup);
+
+    String getRateLimitGroup();
+
+    /**
+     * Fair share key for the Agent's Jobs such as the UI object which requested them. When fair share is
+     * enabled on the StandardPriorityQueueingPoolExecutorService, keys take turns in proportion to their
+     * weight within each priority. A null value is treated as its own key.
+     */
+    AgentPolicyBuilder setFairShareKey(String fairShareKey);
+
+    String getFairShareKey();
+
     /**
      * Perform validation, set defaults, and deliver built instance of AgentPolicy.
      */
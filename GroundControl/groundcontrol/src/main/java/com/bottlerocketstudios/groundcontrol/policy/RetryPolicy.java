@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.policy;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable description of how an Agent execution is retried. Retries are scheduled on the AgentExecutor's
+ * timer so no worker Thread is held during the backoff delay. Use {@link RetryPolicy#builder()} to create.
+ */
+public class RetryPolicy {
+
+    /**
+     * Default predicate which retries null results, the standard indication of failure.
+     */
+    public static final RetryPredicate NULL_RESULT_PREDICATE = new RetryPredicate() {
+        @Override
+        public boolean isRetryable(Object result) {
+            return result == null;
+        }
+    };
+
+    private final int mMaxAttempts;
+    private final long mInitialDelayMs;
+    private final float mBackoffMultiplier;
+    private final long mMaxDelayMs;
+    private final float mJitterRatio;
+    private final RetryPredicate mRetryPredicate;
+
+    private RetryPolicy(Builder builder) {
+        mMaxAttempts = builder.maxAttempts;
+        mInitialDelayMs = builder.initialDelayMs;
+        mBackoffMultiplier = builder.backoffMultiplier;
+        mMaxDelayMs = builder.maxDelayMs;
+        mJitterRatio = builder.jitterRatio;
+        mRetryPredicate = builder.retryPredicate;
+    }
+
+    /**
+     * Total number of attempts including the first.
+     */
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    public long getInitialDelayMs() {
+        return mInitialDelayMs;
+    }
+
+    public float getBackoffMultiplier() {
+        return mBackoffMultiplier;
+    }
+
+    public long getMaxDelayMs() {
+        return mMaxDelayMs;
+    }
+
+    public float getJitterRatio() {
+        return mJitterRatio;
+    }
+
+    public boolean isRetryable(Object result) {
+        return mRetryPredicate.isRetryable(result);
+    }
+
+    /**
+     * Delay before the supplied attempt where attempt 2 is the first retry. The exponential delay is
+     * capped at the maximum delay then reduced by a random amount up to the jitter ratio.
+     */
+    public long getDelayMs(int attempt, Random random) {
+        double delayMs = mInitialDelayMs * Math.pow(mBackoffMultiplier, Math.max(0, attempt - 2));
+        delayMs = Math.min(delayMs, mMaxDelayMs);
+        delayMs -= delayMs * mJitterRatio * random.nextDouble();
+        return Math.max(0, Math.round(delayMs));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private static final int DEFAULT_MAX_ATTEMPTS = 3;
+        private static final long DEFAULT_INITIAL_DELAY_MS = 500;
+        private static final float DEFAULT_BACKOFF_MULTIPLIER = 2.0f;
+        private static final long DEFAULT_MAX_DELAY_MS = TimeUnit.SECONDS.toMillis(30);
+        private static final float DEFAULT_JITTER_RATIO = 0.5f;
+
+        private int maxAttempts;
+        private long initialDelayMs;
+        private float backoffMultiplier;
+        private long maxDelayMs;
+        private Float jitterRatio;
+        private RetryPredicate retryPredicate;
+
+        public RetryPolicy build() {
+            if (maxAttempts <= 0) {
+                setMaxAttempts(DEFAULT_MAX_ATTEMPTS);
+            }
+
+            if (initialDelayMs <= 0) {
+                setInitialDelayMs(DEFAULT_INITIAL_DELAY_MS);
+            }
+
+            if (backoffMultiplier < 1.0f) {
+                setBackoffMultiplier(DEFAULT_BACKOFF_MULTIPLIER);
+            }
+
+            if (maxDelayMs <= 0) {
+                setMaxDelayMs(Math.max(DEFAULT_MAX_DELAY_MS, initialDelayMs));
+            }
+
+            if (jitterRatio == null) {
+                setJitterRatio(DEFAULT_JITTER_RATIO);
+            } else if (jitterRatio < 0.0f || jitterRatio > 1.0f) {
+                throw new IllegalStateException("Jitter ratio must be in the range 0-1");
+            }
+
+            if (retryPredicate == null) {
+                setRetryPredicate(NULL_RESULT_PREDICATE);
+            }
+
+            return new RetryPolicy(this);
+        }
+
+        /**
+         * Total number of attempts including the first. A value of 1 disables retry.
+         */
+        public Builder setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * Delay before the first retry.
+         */
+        public Builder setInitialDelayMs(long initialDelayMs) {
+            this.initialDelayMs = initialDelayMs;
+            return this;
+        }
+
+        /**
+         * Multiplier applied to the delay for each subsequent retry. Use 1 for a constant delay.
+         */
+        public Builder setBackoffMultiplier(float backoffMultiplier) {
+            this.backoffMultiplier = backoffMultiplier;
+            return this;
+        }
+
+        /**
+         * Upper bound for the delay before jitter is applied.
+         */
+        public Builder setMaxDelayMs(long maxDelayMs) {
+            this.maxDelayMs = maxDelayMs;
+            return this;
+        }
+
+        /**
+         * Fraction of each delay, from 0 to 1, that may be randomly removed so that clients failing together
+         * do not retry together.
+         */
+        public Builder setJitterRatio(float jitterRatio) {
+            this.jitterRatio = jitterRatio;
+            return this;
+        }
+
+        /**
+         * Predicate deciding which results are retried. Defaults to retrying null results.
+         */
+        public Builder setRetryPredicate(RetryPredicate retryPredicate) {
+            this.retryPredicate = retryPredicate;
+            return this;
+        }
+    }
+}
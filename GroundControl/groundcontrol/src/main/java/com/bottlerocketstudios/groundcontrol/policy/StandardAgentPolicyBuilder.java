@@ -34,6 +34,7 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
     private static final long DEFAULT_PARALLEL_CALLBACK_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(6);
     private static final JobPriority DEFAULT_JOB_PRIORITY = JobPriority.NORMAL;
     private static final boolean DEFAULT_PARALLEL_BACKGROUND_CALLBACK = false;
+    private static final long DEFAULT_DIRECT_CALLBACK_BUDGET_MS = 10;
 
     private String mDefaultCallbackLooperId;
     private long mDefaultPolicyTimeoutMs;
@@ -41,6 +42,7 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
     private long mDefaultParallelCallbackTimeoutMs;
     private JobPriority mDefaultJobPriority;
     private boolean mDefaultParallelBackgroundCallback;
+    private long mDefaultDirectCallbackBudgetMs;
 
     private String mCallbackLooperId;
     private long mPolicyTimeoutMs;
@@ -50,6 +52,17 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
     private Boolean mParallelBackgroundCallback;
     private boolean mBypassCache;
     private boolean mClearCache;
+    private boolean mDirectBackgroundCallback;
+    private long mDirectCallbackBudgetMs;
+    private int mSerialCallbackLaneCount;
+    private String mCallbackOrderingKey;
+    private long mHedgeDelayMs;
+    private int mHedgeLatencyPercentile;
+    private RetryPolicy mRetryPolicy;
+    private String mCircuitBreakerGroup;
+    private String mConcurrencyGroup;
+    private String mRateLimitGroup;
+    private String mFairShareKey;
 
     private boolean mCallbackSet;
 
@@ -60,6 +73,7 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
         mDefaultParallelCallbackTimeoutMs = DEFAULT_PARALLEL_CALLBACK_TIMEOUT_MS;
         mDefaultJobPriority = DEFAULT_JOB_PRIORITY;
         mDefaultParallelBackgroundCallback = DEFAULT_PARALLEL_BACKGROUND_CALLBACK;
+        mDefaultDirectCallbackBudgetMs = DEFAULT_DIRECT_CALLBACK_BUDGET_MS;
         clear();
     }
 
@@ -93,6 +107,10 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
         mDefaultParallelBackgroundCallback = defaultParallelBackgroundCallback;
     }
 
+    public void setDefaultDirectCallbackBudgetMs(long defaultDirectCallbackBudgetMs) {
+        mDefaultDirectCallbackBudgetMs = defaultDirectCallbackBudgetMs;
+    }
+
     @Override
     public AgentPolicyBuilder setCallbackLooperId(String callbackLooperId) {
         if (mCallbackSet) {
@@ -131,6 +149,131 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
         return mParallelBackgroundCallback;
     }
 
+    @Override
+    public AgentPolicyBuilder setDirectBackgroundCallback(boolean directBackgroundCallback) {
+        if (!directBackgroundCallback) {
+            throw new IllegalArgumentException("Do not setDirectBackgroundCallback(false) instead call setParallelBackgroundCallback or setCallbackLooperId");
+        }
+        setParallelBackgroundCallback(true);
+        mDirectBackgroundCallback = true;
+        return this;
+    }
+
+    @Override
+    public boolean isDirectBackgroundCallback() {
+        return mDirectBackgroundCallback;
+    }
+
+    @Override
+    public AgentPolicyBuilder setDirectCallbackBudgetMs(long directCallbackBudgetMs) {
+        mDirectCallbackBudgetMs = directCallbackBudgetMs;
+        return this;
+    }
+
+    @Override
+    public long getDirectCallbackBudgetMs() {
+        return mDirectCallbackBudgetMs;
+    }
+
+    @Override
+    public AgentPolicyBuilder setSerialCallbackLaneCount(int serialCallbackLaneCount) {
+        mSerialCallbackLaneCount = serialCallbackLaneCount;
+        return this;
+    }
+
+    @Override
+    public int getSerialCallbackLaneCount() {
+        return mSerialCallbackLaneCount;
+    }
+
+    @Override
+    public AgentPolicyBuilder setCallbackOrderingKey(String callbackOrderingKey) {
+        mCallbackOrderingKey = callbackOrderingKey;
+        return this;
+    }
+
+    @Override
+    public String getCallbackOrderingKey() {
+        return mCallbackOrderingKey;
+    }
+
+    @Override
+    public AgentPolicyBuilder setHedgeDelayMs(long hedgeDelayMs) {
+        mHedgeDelayMs = hedgeDelayMs;
+        return this;
+    }
+
+    @Override
+    public long getHedgeDelayMs() {
+        return mHedgeDelayMs;
+    }
+
+    @Override
+    public AgentPolicyBuilder setHedgeLatencyPercentile(int hedgeLatencyPercentile) {
+        mHedgeLatencyPercentile = hedgeLatencyPercentile;
+        return this;
+    }
+
+    @Override
+    public int getHedgeLatencyPercentile() {
+        return mHedgeLatencyPercentile;
+    }
+
+    @Override
+    public AgentPolicyBuilder setRetryPolicy(RetryPolicy retryPolicy) {
+        mRetryPolicy = retryPolicy;
+        return this;
+    }
+
+    @Override
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    @Override
+    public AgentPolicyBuilder setCircuitBreakerGroup(String circuitBreakerGroup) {
+        mCircuitBreakerGroup = circuitBreakerGroup;
+        return this;
+    }
+
+    @Override
+    public String getCircuitBreakerGroup() {
+        return mCircuitBreakerGroup;
+    }
+
+    @Override
+    public AgentPolicyBuilder setConcurrencyGroup(String concurrencyGroup) {
+        mConcurrencyGroup = concurrencyGroup;
+        return this;
+    }
+
+    @Override
+    public String getConcurrencyGroup() {
+        return mConcurrencyGroup;
+    }
+
+    @Override
+    public AgentPolicyBuilder setRateLimitGroup(String rateLimitGroup) {
+        mRateLimitGroup = rateLimitGroup;
+        return this;
+    }
+
+    @Override
+    public String getRateLimitGroup() {
+        return mRateLimitGroup;
+    }
+
+    @Override
+    public AgentPolicyBuilder setFairShareKey(String fairShareKey) {
+        mFairShareKey = fairShareKey;
+        return this;
+    }
+
+    @Override
+    public String getFairShareKey() {
+        return mFairShareKey;
+    }
+
     @Override
     public AgentPolicyBuilder setPolicyTimeoutMs(long policyTimeoutMs) {
         mPolicyTimeoutMs = policyTimeoutMs;
@@ -201,6 +344,7 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
     public AgentPolicyBuilder clear() {
         mCallbackLooperId = null;
         mParallelBackgroundCallback = false;
+        mDirectBackgroundCallback = false;
         mCallbackSet = false;
         setPolicyTimeoutMs(0);
         setMaxCacheAgeMs(-1);
@@ -208,6 +352,16 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
         setJobPriority(null);
         setBypassCache(false);
         setClearCache(false);
+        setDirectCallbackBudgetMs(0);
+        setSerialCallbackLaneCount(0);
+        setCallbackOrderingKey(null);
+        setHedgeDelayMs(0);
+        setHedgeLatencyPercentile(0);
+        setRetryPolicy(null);
+        setCircuitBreakerGroup(null);
+        setConcurrencyGroup(null);
+        setRateLimitGroup(null);
+        setFairShareKey(null);
         return this;
     }
 
@@ -220,7 +374,9 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
             return this;
         }
 
-        if (agentPolicy.isParallelBackgroundCallback()) {
+        if (agentPolicy.isDirectBackgroundCallback()) {
+            setDirectBackgroundCallback(true);
+        } else if (agentPolicy.isParallelBackgroundCallback()) {
             setParallelBackgroundCallback(true);
         } else {
             setCallbackLooperId(agentPolicy.getCallbackLooperId());
@@ -231,6 +387,16 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
         setJobPriority(agentPolicy.getJobPriority());
         setBypassCache(agentPolicy.shouldBypassCache());
         setClearCache(agentPolicy.shouldClearCache());
+        setDirectCallbackBudgetMs(agentPolicy.getDirectCallbackBudgetMs());
+        setSerialCallbackLaneCount(agentPolicy.getSerialCallbackLaneCount());
+        setCallbackOrderingKey(agentPolicy.getCallbackOrderingKey());
+        setHedgeDelayMs(agentPolicy.getHedgeDelayMs());
+        setHedgeLatencyPercentile(agentPolicy.getHedgeLatencyPercentile());
+        setRetryPolicy(agentPolicy.getRetryPolicy());
+        setCircuitBreakerGroup(agentPolicy.getCircuitBreakerGroup());
+        setConcurrencyGroup(agentPolicy.getConcurrencyGroup());
+        setRateLimitGroup(agentPolicy.getRateLimitGroup());
+        setFairShareKey(agentPolicy.getFairShareKey());
         return this;
     }
 
@@ -260,6 +426,14 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
             setJobPriority(mDefaultJobPriority);
         }
 
+        if (getDirectCallbackBudgetMs() <= 0) {
+            setDirectCallbackBudgetMs(mDefaultDirectCallbackBudgetMs);
+        }
+
+        if (getSerialCallbackLaneCount() <= 0) {
+            setSerialCallbackLaneCount(1);
+        }
+
         validatePolicy();
 
         return new AgentPolicy(this);
@@ -277,6 +451,14 @@ public class StandardAgentPolicyBuilder implements AgentPolicyBuilder {
             throw new IllegalStateException("Cannot build a policy that will use cache for a background delivery. Cache should only be used for UI Looper delivery. Call setBypassCache(true).");
         }
 
+        if (getSerialCallbackLaneCount() > 1 && (isParallelBackgroundCallback() || !isBackgroundLooper(getCallbackLooperId()))) {
+            throw new IllegalStateException("Serial callback lanes can only be used with a background callback looper.");
+        }
+
+        if (getHedgeDelayMs() < 0 || getHedgeLatencyPercentile() < 0 || getHedgeLatencyPercentile() >= 100) {
+            throw new IllegalStateException("Hedge delay must be >= 0 and hedge latency percentile must be in the range 0-99.");
+        }
+
         if (shouldClearCache()) {
             //Cannot clear cache without also bypassing it.
             setBypassCache(true);
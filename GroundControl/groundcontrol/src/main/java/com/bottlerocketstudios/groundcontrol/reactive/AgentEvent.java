@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.reactive;
+
+/**
+ * Element published by an {@link AgentPublisher}, either a progress update or the final result. As with
+ * AgentListener, a null result indicates that the Agent failed or timed out.
+ */
+public class AgentEvent<ResultType, ProgressType> {
+
+    private final boolean mResult;
+    private final ResultType mResultValue;
+    private final ProgressType mProgress;
+
+    private AgentEvent(boolean result, ResultType resultValue, ProgressType progress) {
+        mResult = result;
+        mResultValue = resultValue;
+        mProgress = progress;
+    }
+
+    public static <ResultType, ProgressType> AgentEvent<ResultType, ProgressType> progress(ProgressType progress) {
+        return new AgentEvent<>(false, null, progress);
+    }
+
+    public static <ResultType, ProgressType> AgentEvent<ResultType, ProgressType> result(ResultType result) {
+        return new AgentEvent<>(true, result, null);
+    }
+
+    /**
+     * Return true if this is the final result, false if it is progress.
+     */
+    public boolean isResult() {
+        return mResult;
+    }
+
+    public ResultType getResult() {
+        return mResultValue;
+    }
+
+    public ProgressType getProgress() {
+        return mProgress;
+    }
+
+    @Override
+    public String toString() {
+        return mResult ? "Result " + String.valueOf(mResultValue) : "Progress " + String.valueOf(mProgress);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.reactive;
+
+import com.bottlerocketstudios.groundcontrol.convenience.ExecutionBuilder;
+import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
+import com.bottlerocketstudios.groundcontrol.tether.AgentTether;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * Publisher which executes an Agent from an ExecutionBuilder when its Subscriber first signals demand. The
+ * Agent is run through the AgentExecutor as usual, so it is coalesced with other requests for the same
+ * identifier and its result is cached. Progress is published as it arrives while there is demand, otherwise
+ * only the latest progress is kept. The result is published once demand allows followed by onComplete and
+ * any progress not yet published is discarded. Cancelling the Subscription cancels the AgentTether.
+ * </p><p>
+ * The listener is set with {@link ExecutionBuilder#bgDirectCallback(AgentListener)} so signals are emitted
+ * on the delivering thread without a hop per event unless the policy already specifies a callback Looper.
+ * An AgentPublisher supports a single Subscriber, create another to subscribe again.
+ * </p>
+ */
+public class AgentPublisher<ResultType, ProgressType> implements Publisher<AgentEvent<ResultType, ProgressType>> {
+
+    private final ExecutionBuilder<ResultType, ProgressType> mExecutionBuilder;
+    private final AtomicBoolean mSubscribed = new AtomicBoolean();
+
+    /**
+     * Supply an ExecutionBuilder with the Agent and any policy changes, but no listener.
+     */
+    public AgentPublisher(ExecutionBuilder<ResultType, ProgressType> executionBuilder) {
+        if (executionBuilder == null) {
+            throw new IllegalArgumentException("ExecutionBuilder cannot be null");
+        }
+        mExecutionBuilder = executionBuilder;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super AgentEvent<ResultType, ProgressType>> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+
+        if (!mSubscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("AgentPublisher allows only one Subscriber"));
+            return;
+        }
+
+        subscriber.onSubscribe(new AgentSubscription(subscriber));
+    }
+
+    private class AgentSubscription implements Subscription, AgentListener<ResultType, ProgressType> {
+        private final Subscriber<? super AgentEvent<ResultType, ProgressType>> mSubscriber;
+        private final AtomicLong mDemand = new AtomicLong();
+        private final AtomicInteger mDrainCount = new AtomicInteger();
+        private final AtomicReference<AgentEvent<ResultType, ProgressType>> mLatestProgress = new AtomicReference<>();
+        private final AtomicBoolean mStarted = new AtomicBoolean();
+        private volatile AgentEvent<ResultType, ProgressType> mResult;
+        private volatile boolean mTerminated;
+        private AgentTether mAgentTether;
+        private boolean mCancelled;
+
+        private AgentSubscription(Subscriber<? super AgentEvent<ResultType, ProgressType>> subscriber) {
+            mSubscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (mTerminated) {
+                return;
+            }
+
+            if (n <= 0) {
+                cancel();
+                mSubscriber.onError(new IllegalArgumentException("Subscription request must be positive, was " + n));
+                return;
+            }
+
+            long current;
+            long updated;
+            do {
+                current = mDemand.get();
+                updated = current + n < 0 ? Long.MAX_VALUE : current + n;
+            } while (!mDemand.compareAndSet(current, updated));
+
+            if (mStarted.compareAndSet(false, true)) {
+                setAgentTether(mExecutionBuilder.bgDirectCallback(this).execute());
+            }
+            drain();
+        }
+
+        private void setAgentTether(AgentTether agentTether) {
+            boolean cancelled;
+            synchronized (this) {
+                mAgentTether = agentTether;
+                cancelled = mCancelled;
+            }
+            if (cancelled) {
+                agentTether.cancel();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            mTerminated = true;
+            AgentTether agentTether;
+            synchronized (this) {
+                mCancelled = true;
+                agentTether = mAgentTether;
+            }
+            if (agentTether != null) {
+                agentTether.cancel();
+            }
+        }
+
+        @Override
+        public void onCompletion(String agentIdentifier, ResultType result) {
+            mResult = AgentEvent.result(result);
+            drain();
+        }
+
+        @Override
+        public void onProgress(String agentIdentifier, ProgressType progress) {
+            if (mResult == null) {
+                mLatestProgress.set(AgentEvent.<ResultType, ProgressType>progress(progress));
+                drain();
+            }
+        }
+
+        /**
+         * Emit whatever the current demand allows. Only one thread drains at a time and signals which arrive
+         * meanwhile are picked up by that thread before it leaves, so Subscriber signals are serial.
+         */
+        private void drain() {
+            if (mDrainCount.getAndIncrement() != 0) {
+                return;
+            }
+
+            int missed = 1;
+            do {
+                if (mTerminated) {
+                    return;
+                }
+
+                if (mDemand.get() > 0) {
+                    AgentEvent<ResultType, ProgressType> result = mResult;
+                    if (result != null) {
+                        mTerminated = true;
+                        mSubscriber.onNext(result);
+                        mSubscriber.onComplete();
+                        return;
+                    }
+
+                    AgentEvent<ResultType, ProgressType> progress = mLatestProgress.getAndSet(null);
+                    if (progress != null) {
+                        if (mDemand.get() != Long.MAX_VALUE) {
+                            mDemand.decrementAndGet();
+                        }
+                        mSubscriber.onNext(progress);
+                        continue;
+                    }
+                }
+
+                missed = mDrainCount.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
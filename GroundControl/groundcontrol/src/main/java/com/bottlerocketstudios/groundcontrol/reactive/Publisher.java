@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.reactive;
+
+/**
+ * Provider of a potentially unbounded number of sequenced elements published according to the demand
+ * received from its Subscribers. This mirrors org.reactivestreams.Publisher and java.util.concurrent.Flow.Publisher,
+ * which are not available on all supported API levels, so that a one line adapter can bridge to either.
+ */
+public interface Publisher<T> {
+    /**
+     * Request the Publisher to start streaming data to the Subscriber.
+     */
+    void subscribe(Subscriber<? super T> subscriber);
+}
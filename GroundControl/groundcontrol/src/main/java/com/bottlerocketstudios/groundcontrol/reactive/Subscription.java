@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.reactive;
+
+/**
+ * One to one lifecycle of a Subscriber subscribing to a Publisher. Mirrors org.reactivestreams.Subscription.
+ */
+public interface Subscription {
+    /**
+     * Add demand for up to n more elements. n must be positive.
+     */
+    void request(long n);
+
+    /**
+     * Request the Publisher to stop sending data and clean up resources.
+     */
+    void cancel();
+}
@@ -21,6 +21,7 @@ import com.bottlerocketstudios.groundcontrol.agent.Agent;
 import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
 import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
 import com.bottlerocketstudios.groundcontrol.policy.AgentPolicy;
+import com.bottlerocketstudios.groundcontrol.policy.RetryPolicy;
 
 /**
  * A client's request details collected into a single object. This houses all data associated with
@@ -31,6 +32,7 @@ public class AgentRequest<ResultType, ProgressType> {
     private final AgentListener<ResultType, ProgressType> mAgentListener;
     private final AgentPolicy mAgentPolicy;
     private final long mDeadline;
+    private volatile boolean mPaused;
 
     public AgentRequest(Agent<ResultType, ProgressType> agent, AgentListener<ResultType, ProgressType> agentListener, AgentPolicy agentPolicy) {
         mAgent = agent;
@@ -55,10 +57,29 @@ public class AgentRequest<ResultType, ProgressType> {
         return mAgentListener;
     }
 
+    /**
+     * Uptime at which this request will be notified of failure if the Agent has not completed.
+     */
+    public long getDeadline() {
+        return mDeadline;
+    }
+
     public boolean isPastDeadline() {
         return mDeadline < getTime();
     }
 
+    public boolean isPaused() {
+        return mPaused;
+    }
+
+    /**
+     * Mark this request as belonging to UI which is in the background. A paused request is treated as
+     * LOW priority unless its policy priority is already lower.
+     */
+    public void setPaused(boolean paused) {
+        mPaused = paused;
+    }
+
     /********* Agent Policy Proxy **********/
 
     public String getCallbackLooperId() {
@@ -74,7 +95,20 @@ public class AgentRequest<ResultType, ProgressType> {
     }
 
     public JobPriority getJobPriority() {
-        return mAgentPolicy.getJobPriority();
+        JobPriority jobPriority = mAgentPolicy.getJobPriority();
+        if (mPaused && jobPriority.compareTo(JobPriority.LOW) < 0) {
+            return JobPriority.LOW;
+        }
+        return jobPriority;
+    }
+
+    /**
+     * Priority for the cache check and listener delivery Jobs of this request. Only Agent execution waits for an
+     * idle pool at {@link JobPriority#PREFETCH}, so those Jobs are queued at LOW instead.
+     */
+    public JobPriority getSupportJobPriority() {
+        JobPriority jobPriority = getJobPriority();
+        return JobPriority.PREFETCH.equals(jobPriority) ? JobPriority.LOW : jobPriority;
     }
 
     public boolean shouldBypassCache() {
@@ -88,4 +122,48 @@ public class AgentRequest<ResultType, ProgressType> {
     public boolean shouldClearCache() {
         return mAgentPolicy.shouldClearCache();
     }
+
+    public boolean isDirectBackgroundCallback() {
+        return mAgentPolicy.isDirectBackgroundCallback();
+    }
+
+    public long getDirectCallbackBudgetMs() {
+        return mAgentPolicy.getDirectCallbackBudgetMs();
+    }
+
+    public int getSerialCallbackLaneCount() {
+        return mAgentPolicy.getSerialCallbackLaneCount();
+    }
+
+    public String getCallbackOrderingKey() {
+        return mAgentPolicy.getCallbackOrderingKey();
+    }
+
+    public long getHedgeDelayMs() {
+        return mAgentPolicy.getHedgeDelayMs();
+    }
+
+    public int getHedgeLatencyPercentile() {
+        return mAgentPolicy.getHedgeLatencyPercentile();
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return mAgentPolicy.getRetryPolicy();
+    }
+
+    public String getCircuitBreakerGroup() {
+        return mAgentPolicy.getCircuitBreakerGroup();
+    }
+
+    public String getConcurrencyGroup() {
+        return mAgentPolicy.getConcurrencyGroup();
+    }
+
+    public String getRateLimitGroup() {
+        return mAgentPolicy.getRateLimitGroup();
+    }
+
+    public String getFairShareKey() {
+        return mAgentPolicy.getFairShareKey();
+    }
 }
@@ -15,6 +15,7 @@
 
 package com.bottlerocketstudios.groundcontrol.request;
 
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
 import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
 
 /**
@@ -44,6 +45,13 @@ public interface AgentRequestController {
      */
     <ResultType> void notifyAgentCompletion(String agentIdentifier, ResultType result);
 
+    /**
+     * Notify all AgentListeners associated with the agentIdentifier of the result in order of priority. When
+     * allowDirect is false, direct background callbacks are delivered on the thread pool instead of the calling
+     * thread so that no listener runs while the caller holds a lock.
+     */
+    <ResultType> void notifyAgentCompletion(String agentIdentifier, ResultType result, boolean allowDirect);
+
     /**
      * Notify all AgentListeners associated with the agentIdentifier of progress in order of priority.
      */
@@ -59,6 +67,18 @@ public interface AgentRequestController {
      */
     boolean hasActiveRequests(String agentIdentifier);
 
+    /**
+     * Pause or resume the AgentRequest associated with agentIdentifier and supplied AgentListener. Return
+     * true if a matching request was found and changed.
+     */
+    boolean setRequestPaused(String agentIdentifier, AgentListener agentListener, boolean paused);
+
+    /**
+     * Return the highest priority of the AgentRequests pending delivery for the specified agentIdentifier
+     * or null if there are none.
+     */
+    JobPriority getHighestJobPriority(String agentIdentifier);
+
     /**
      * Walk through collection of AgentRequests and notify those that are past their deadline with
      * a null completion message.
@@ -15,9 +15,12 @@
 
 package com.bottlerocketstudios.groundcontrol.request;
 
+import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.bottlerocketstudios.groundcontrol.executor.Job;
+import com.bottlerocketstudios.groundcontrol.executor.JobPriority;
 import com.bottlerocketstudios.groundcontrol.executor.PriorityQueueingPoolExecutorService;
 import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
 import com.bottlerocketstudios.groundcontrol.listener.ListenerCompletionRunnable;
@@ -30,6 +33,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 /**
  * Standard implementation of AgentRequestController that will serve as a conduit to notify AgentListeners.
@@ -40,26 +45,27 @@ public class StandardAgentRequestController implements AgentRequestController {
     private final HandlerCache mHandlerCache;
     private final PriorityQueueingPoolExecutorService mListenerExecutorService;
     private final Map<String, List<AgentRequest>> mAgentRequestMap;
+    private final Set<AgentListener> mSlowDirectListenerSet;
 
     public StandardAgentRequestController(PriorityQueueingPoolExecutorService listenerExecutorService, HandlerCache handlerCache) {
         mAgentRequestMap = Collections.synchronizedMap(new HashMap<String, List<AgentRequest>>());
+        mSlowDirectListenerSet = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<AgentListener, Boolean>()));
         mListenerExecutorService = listenerExecutorService;
         mHandlerCache = handlerCache;
     }
 
     @Override
     public  <ResultType> void deliverCompletion(AgentRequest<ResultType, ?> agentRequest, ResultType result) {
+        deliverCompletion(agentRequest, result, true);
+    }
+
+    private <ResultType> void deliverCompletion(AgentRequest<ResultType, ?> agentRequest, ResultType result, boolean allowDirect) {
         ListenerCompletionRunnable<ResultType> completionRunnable = new ListenerCompletionRunnable<>(
                 agentRequest.getAgentIdentifier(),
                 agentRequest.getAgentListener(),
                 result);
 
-        if (agentRequest.getCallbackLooperId() != null) {
-            mHandlerCache.getHandler(agentRequest.getCallbackLooperId()).post(completionRunnable);
-        } else {
-            Job listenerCompletionJob = new Job(mListenerExecutorService.getNextJobId(), completionRunnable, agentRequest.getParallelCallbackTimeoutMs(), agentRequest.getJobPriority());
-            mListenerExecutorService.enqueue(listenerCompletionJob);
-        }
+        deliverRunnable(agentRequest, completionRunnable, allowDirect);
     }
 
     @Override
@@ -69,14 +75,55 @@ public class StandardAgentRequestController implements AgentRequestController {
                 agentRequest.getAgentListener(),
                 progress);
 
+        deliverRunnable(agentRequest, completionRunnable, true);
+    }
+
+    private void deliverRunnable(AgentRequest<?, ?> agentRequest, Runnable deliveryRunnable, boolean allowDirect) {
         if (agentRequest.getCallbackLooperId() != null) {
-            mHandlerCache.getHandler(agentRequest.getCallbackLooperId()).post(completionRunnable);
+            getCallbackHandler(agentRequest).post(deliveryRunnable);
+        } else if (allowDirect && agentRequest.isDirectBackgroundCallback() && !mSlowDirectListenerSet.contains(agentRequest.getAgentListener())) {
+            deliverDirectly(agentRequest, deliveryRunnable);
         } else {
-            Job listenerCompletionJob = new Job(mListenerExecutorService.getNextJobId(), completionRunnable, agentRequest.getParallelCallbackTimeoutMs(), agentRequest.getJobPriority());
-            mListenerExecutorService.enqueue(listenerCompletionJob);
+            Job listenerJob = new Job(mListenerExecutorService.getNextJobId(), deliveryRunnable, agentRequest.getParallelCallbackTimeoutMs(), agentRequest.getSupportJobPriority());
+            mListenerExecutorService.enqueue(listenerJob);
         }
     }
 
+    /**
+     * Get the Handler for the request's callback Looper, or for its lane when serial callbacks are sharded.
+     */
+    private Handler getCallbackHandler(AgentRequest<?, ?> agentRequest) {
+        if (agentRequest.getSerialCallbackLaneCount() > 1) {
+            String orderingKey = agentRequest.getCallbackOrderingKey();
+            if (orderingKey == null) {
+                orderingKey = agentRequest.getAgentIdentifier();
+            }
+            return mHandlerCache.getLaneHandler(agentRequest.getCallbackLooperId(), orderingKey, agentRequest.getSerialCallbackLaneCount());
+        }
+        return mHandlerCache.getHandler(agentRequest.getCallbackLooperId());
+    }
+
+    /**
+     * Run the delivery on the calling thread. A listener cannot be interrupted here, so one that overruns
+     * its budget is only detected afterward and will receive all future deliveries on the thread pool.
+     */
+    private void deliverDirectly(AgentRequest<?, ?> agentRequest, Runnable deliveryRunnable) {
+        long startTime = getTime();
+        try {
+            deliveryRunnable.run();
+        } finally {
+            long elapsedMs = getTime() - startTime;
+            if (elapsedMs > agentRequest.getDirectCallbackBudgetMs()) {
+                Log.w(TAG, "Direct callback for " + agentRequest.getAgentIdentifier() + " took " + elapsedMs + "ms, using thread pool for further deliveries to this listener");
+                mSlowDirectListenerSet.add(agentRequest.getAgentListener());
+            }
+        }
+    }
+
+    private long getTime() {
+        return SystemClock.uptimeMillis();
+    }
+
     @Override
     public void addAgentRequest(AgentRequest agentRequest) {
         synchronized (mAgentRequestMap) {
@@ -95,6 +142,11 @@ public class StandardAgentRequestController implements AgentRequestController {
 
     @Override
     public <ResultType> void notifyAgentCompletion(String agentIdentifier, ResultType result) {
+        notifyAgentCompletion(agentIdentifier, result, true);
+    }
+
+    @Override
+    public <ResultType> void notifyAgentCompletion(String agentIdentifier, ResultType result, boolean allowDirect) {
         List<AgentRequest> agentRequestList = mAgentRequestMap.remove(agentIdentifier);
         if (agentRequestList != null) {
             try {
@@ -107,7 +159,7 @@ public class StandardAgentRequestController implements AgentRequestController {
                 //We know that all AgentRequests for the specified agentIdentifier are of the expected type.
                 //noinspection unchecked
                 for (AgentRequest<ResultType, ?> agentRequest : agentRequestList) {
-                    deliverCompletion(agentRequest, result);
+                    deliverCompletion(agentRequest, result, allowDirect);
                 }
             } catch (ClassCastException e) {
                 Log.e(TAG, "AgentRequest ResultType mismatch " + agentIdentifier, e);
@@ -163,6 +215,40 @@ public class StandardAgentRequestController implements AgentRequestController {
         return (agentRequestList != null && agentRequestList.size() > 0);
     }
 
+    @Override
+    public boolean setRequestPaused(String agentIdentifier, AgentListener agentListener, boolean paused) {
+        boolean changed = false;
+        List<AgentRequest> agentRequestList = mAgentRequestMap.get(agentIdentifier);
+        if (agentRequestList != null) {
+            synchronized (agentRequestList) {
+                for (AgentRequest agentRequest : agentRequestList) {
+                    if (agentRequest.getAgentListener().equals(agentListener) && agentRequest.isPaused() != paused) {
+                        agentRequest.setPaused(paused);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public JobPriority getHighestJobPriority(String agentIdentifier) {
+        JobPriority highestJobPriority = null;
+        List<AgentRequest> agentRequestList = mAgentRequestMap.get(agentIdentifier);
+        if (agentRequestList != null) {
+            synchronized (agentRequestList) {
+                for (AgentRequest agentRequest : agentRequestList) {
+                    JobPriority jobPriority = agentRequest.getJobPriority();
+                    if (highestJobPriority == null || jobPriority.compareTo(highestJobPriority) < 0) {
+                        highestJobPriority = jobPriority;
+                    }
+                }
+            }
+        }
+        return highestJobPriority;
+    }
+
     @Override
     public void notifyPastDeadline() {
         synchronized (mAgentRequestMap) {
@@ -171,9 +257,10 @@ public class StandardAgentRequestController implements AgentRequestController {
                 for (Iterator<AgentRequest> agentRequestIterator = agentRequestList.iterator(); agentRequestIterator.hasNext(); ) {
                     AgentRequest agentRequest = agentRequestIterator.next();
                     if (agentRequest.isPastDeadline()) {
-                        //The type of the AgentRequest does not matter, we are delivering null.
+                        //The type of the AgentRequest does not matter, we are delivering null. Never deliver
+                        //directly here as the listener could modify the map while it is being walked.
                         //noinspection unchecked
-                        deliverCompletion(agentRequest, null);
+                        deliverCompletion(agentRequest, null, false);
                         agentRequestIterator.remove();
                     }
                 }
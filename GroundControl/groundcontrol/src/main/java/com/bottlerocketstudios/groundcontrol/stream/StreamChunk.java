@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.stream;
+
+import com.bottlerocketstudios.groundcontrol.listener.TrackedProgress;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ordered portion of a {@link StreamingAgent}'s result delivered as progress. The offset is the position
+ * of the first item in the complete result. A chunk replayed to a request which joined a running stream
+ * starts at offset 0 and may overlap chunks delivered afterward.
+ */
+public class StreamChunk<ItemType> implements TrackedProgress {
+
+    private final int mOffset;
+    private final List<ItemType> mItemList;
+    private final Semaphore mBufferSemaphore;
+    private final AtomicInteger mPendingDeliveryCount = new AtomicInteger(1);
+
+    StreamChunk(int offset, List<ItemType> itemList, Semaphore bufferSemaphore) {
+        mOffset = offset;
+        mItemList = Collections.unmodifiableList(itemList);
+        mBufferSemaphore = bufferSemaphore;
+    }
+
+    public int getOffset() {
+        return mOffset;
+    }
+
+    /**
+     * Offset immediately after the last item of this chunk.
+     */
+    public int getEndOffset() {
+        return mOffset + mItemList.size();
+    }
+
+    public List<ItemType> getItemList() {
+        return mItemList;
+    }
+
+    @Override
+    public void onDeliveryScheduled() {
+        mPendingDeliveryCount.incrementAndGet();
+    }
+
+    @Override
+    public void onDelivered() {
+        releaseDelivery();
+    }
+
+    /**
+     * Called by the StreamingAgent once every delivery has been scheduled. The buffer slot is released
+     * after this and all scheduled deliveries have completed.
+     */
+    void seal() {
+        releaseDelivery();
+    }
+
+    private void releaseDelivery() {
+        if (mPendingDeliveryCount.decrementAndGet() == 0 && mBufferSemaphore != null) {
+            mBufferSemaphore.release();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.stream;
+
+import com.bottlerocketstudios.groundcontrol.agent.AbstractAgent;
+import com.bottlerocketstudios.groundcontrol.agent.Agent;
+import com.bottlerocketstudios.groundcontrol.agent.RetryableAgent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agent which delivers its List result in ordered chunks as it is produced. Chunks are sent to every coalesced
+ * listener as {@link StreamChunk} progress and the complete List is delivered and cached on completion. A request
+ * which joins a running stream is first sent a replay of every item emitted so far.
+ *
+ * <p>At most {@link #getBufferSize()} chunks may be awaiting delivery to listeners. Once the buffer is full
+ * {@link #emit(List)} blocks until the oldest chunk has been delivered, so a producer cannot run far ahead of a
+ * slow listener. Use {@link StreamingAgentListener} to receive chunks in order without duplicates.</p>
+ *
+ * <p>Emitted items accumulate for the life of the instance, so this Agent is not retried under a RetryPolicy
+ * unless {@link #createRetry()} is overridden to supply a new instance.</p>
+ */
+public abstract class StreamingAgent<ItemType> extends AbstractAgent<List<ItemType>, StreamChunk<ItemType>> implements RetryableAgent<List<ItemType>, StreamChunk<ItemType>> {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4;
+    private static final long BUFFER_WAIT_INTERVAL_MS = 50;
+
+    private final List<ItemType> mStreamedItemList = new ArrayList<>();
+    private Semaphore mBufferSemaphore;
+    private volatile boolean mCancelled;
+
+    /**
+     * Maximum number of chunks which may be awaiting delivery before emit blocks.
+     */
+    public int getBufferSize() {
+        return DEFAULT_BUFFER_SIZE;
+    }
+
+    private synchronized Semaphore getBufferSemaphore() {
+        if (mBufferSemaphore == null) {
+            mBufferSemaphore = new Semaphore(Math.max(1, getBufferSize()));
+        }
+        return mBufferSemaphore;
+    }
+
+    /**
+     * Deliver the next items of the result to listeners, blocking while the buffer is full. Call this from
+     * run() only. Returns false if the Agent was cancelled or interrupted and should stop producing.
+     */
+    protected boolean emit(List<ItemType> itemList) {
+        Semaphore bufferSemaphore = getBufferSemaphore();
+        try {
+            while (!bufferSemaphore.tryAcquire(BUFFER_WAIT_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                if (mCancelled) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            return false;
+        }
+
+        if (mCancelled) {
+            bufferSemaphore.release();
+            return false;
+        }
+
+        StreamChunk<ItemType> streamChunk;
+        synchronized (mStreamedItemList) {
+            streamChunk = new StreamChunk<>(mStreamedItemList.size(), new ArrayList<>(itemList), bufferSemaphore);
+            mStreamedItemList.addAll(itemList);
+        }
+        notifyProgress(streamChunk);
+        streamChunk.seal();
+        return true;
+    }
+
+    /**
+     * Return a new instance with the same unique identifier to allow retries. Returns null by default
+     * which delivers the first result without retrying.
+     */
+    @Override
+    public Agent<List<ItemType>, StreamChunk<ItemType>> createRetry() {
+        return null;
+    }
+
+    /**
+     * Deliver every emitted item as the result of this Agent.
+     */
+    protected void completeStream() {
+        List<ItemType> result;
+        synchronized (mStreamedItemList) {
+            result = new ArrayList<>(mStreamedItemList);
+        }
+        notifyCompletion(result);
+    }
+
+    /**
+     * Return a chunk at offset 0 containing every item emitted so far or null if nothing has been emitted.
+     */
+    public StreamChunk<ItemType> getReplayChunk() {
+        synchronized (mStreamedItemList) {
+            if (mStreamedItemList.isEmpty()) {
+                return null;
+            }
+            return new StreamChunk<>(0, new ArrayList<>(mStreamedItemList), null);
+        }
+    }
+
+    protected boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Subclasses overriding cancel must call through so that a blocked emit returns.
+     */
+    @Override
+    public void cancel() {
+        mCancelled = true;
+    }
+
+    @Override
+    public void onProgressUpdateRequested() {
+        //Requests which join a running stream receive a replay instead.
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016. Bottle Rocket LLC
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bottlerocketstudios.groundcontrol.stream;
+
+import com.bottlerocketstudios.groundcontrol.listener.AgentListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Listener which reassembles the chunks of a {@link StreamingAgent}. Replayed and overlapping items are
+ * skipped and chunks which arrive out of order, as with parallel callbacks, are held until the items
+ * before them arrive. Implement onItems to receive each newly available run of items in order and
+ * onStreamCompletion to receive the result. Any items the result contains beyond those already streamed
+ * are delivered to onItems first, as the result may overtake the last chunks on parallel callbacks.
+ */
+public abstract class StreamingAgentListener<ItemType> implements AgentListener<List<ItemType>, StreamChunk<ItemType>> {
+
+    private final List<ItemType> mStreamedItemList = new ArrayList<>();
+    private final Map<Integer, StreamChunk<ItemType>> mPendingChunkMap = new TreeMap<>();
+    private boolean mComplete;
+
+    @Override
+    public final void onProgress(String agentIdentifier, StreamChunk<ItemType> streamChunk) {
+        synchronized (mStreamedItemList) {
+            if (mComplete) {
+                return;
+            }
+            StreamChunk<ItemType> pendingChunk = mPendingChunkMap.get(streamChunk.getOffset());
+            if (pendingChunk == null || pendingChunk.getEndOffset() < streamChunk.getEndOffset()) {
+                mPendingChunkMap.put(streamChunk.getOffset(), streamChunk);
+            }
+
+            int previousSize = mStreamedItemList.size();
+            for (Iterator<StreamChunk<ItemType>> chunkIterator = mPendingChunkMap.values().iterator(); chunkIterator.hasNext(); ) {
+                StreamChunk<ItemType> nextChunk = chunkIterator.next();
+                if (nextChunk.getOffset() > mStreamedItemList.size()) {
+                    break;
+                }
+                chunkIterator.remove();
+                if (nextChunk.getEndOffset() > mStreamedItemList.size()) {
+                    List<ItemType> chunkItemList = nextChunk.getItemList();
+                    mStreamedItemList.addAll(chunkItemList.subList(mStreamedItemList.size() - nextChunk.getOffset(), chunkItemList.size()));
+                }
+            }
+
+            notifyNewItems(agentIdentifier, previousSize);
+        }
+    }
+
+    @Override
+    public final void onCompletion(String agentIdentifier, List<ItemType> result) {
+        synchronized (mStreamedItemList) {
+            mComplete = true;
+            mPendingChunkMap.clear();
+            int previousSize = mStreamedItemList.size();
+            if (result != null && result.size() > previousSize) {
+                mStreamedItemList.addAll(result.subList(previousSize, result.size()));
+            }
+            notifyNewItems(agentIdentifier, previousSize);
+        }
+        onStreamCompletion(agentIdentifier, result);
+    }
+
+    private void notifyNewItems(String agentIdentifier, int previousSize) {
+        if (mStreamedItemList.size() > previousSize) {
+            onItems(agentIdentifier, Collections.unmodifiableList(mStreamedItemList.subList(previousSize, mStreamedItemList.size())), Collections.unmodifiableList(mStreamedItemList));
+        }
+    }
+
+    /**
+     * Newly available items in order. Both Lists are only valid for the duration of this call.
+     *
+     * @param newItemList      Items which were not previously available.
+     * @param streamedItemList Every item received so far including the new items.
+     */
+    public abstract void onItems(String agentIdentifier, List<ItemType> newItemList, List<ItemType> streamedItemList);
+
+    /**
+     * The complete List after every item in it has been passed to onItems or null if the Agent failed or timed out.
+     */
+    public abstract void onStreamCompletion(String agentIdentifier, List<ItemType> result);
+}
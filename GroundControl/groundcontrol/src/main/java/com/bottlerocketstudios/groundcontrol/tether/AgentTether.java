@@ -32,6 +32,17 @@ public interface AgentTether {
      */
     void release();
 
+    /**
+     * Lower the priority of this request to LOW while the UI waiting on it is in the background. Queued
+     * work for the Agent is demoted unless another request for it needs a higher priority.
+     */
+    void pause();
+
+    /**
+     * Restore the priority of a request after {@link #pause()}.
+     */
+    void resume();
+
     /**
      * Return the agent identifier associated with this agent tether
      */
@@ -43,6 +43,16 @@ public class StandardAgentTether implements AgentTether {
         mAgentExecutor.tetherRelease(this, mAgentIdentifier, mAgentListener);
     }
 
+    @Override
+    public void pause() {
+        mAgentExecutor.tetherPause(this, mAgentIdentifier, mAgentListener);
+    }
+
+    @Override
+    public void resume() {
+        mAgentExecutor.tetherResume(this, mAgentIdentifier, mAgentListener);
+    }
+
     @Override
     public String getAgentIdentifier() {
         return mAgentIdentifier;
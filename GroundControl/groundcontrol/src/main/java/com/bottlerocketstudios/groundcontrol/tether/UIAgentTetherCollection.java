@@ -30,6 +30,7 @@ public class UIAgentTetherCollection {
     private static final String TAG = UIAgentTetherCollection.class.getSimpleName();
 
     private boolean mDestroyCalled;
+    private boolean mPaused;
 
     private final List<AgentTether> mAgentTetherList;
 
@@ -41,18 +42,48 @@ public class UIAgentTetherCollection {
         return mDestroyCalled;
     }
 
+    public boolean isPaused() {
+        return mPaused;
+    }
+
     public void addTether(AgentTether agentTether) {
-        if (agentTether != null) mAgentTetherList.add(agentTether);
+        if (agentTether != null) {
+            mAgentTetherList.add(agentTether);
+            if (mPaused) agentTether.pause();
+        }
     }
 
     public void addAllTethers(Collection<AgentTether> agentTetherCollection) {
-        mAgentTetherList.addAll(agentTetherCollection);
+        for (AgentTether agentTether : agentTetherCollection) {
+            addTether(agentTether);
+        }
     }
 
     public void removeTether(AgentTether agentTether) {
         mAgentTetherList.remove(agentTether);
     }
 
+    /**
+     * Pause all held tethers and any tethers added until {@link #resume()} is called. Tethers are added after their
+     * request has been queued, so work for a tether added while paused is demoted rather than queued at LOW.
+     */
+    public void pause() {
+        mPaused = true;
+        for (AgentTether agentTether : mAgentTetherList) {
+            agentTether.pause();
+        }
+    }
+
+    /**
+     * Resume all held tethers.
+     */
+    public void resume() {
+        mPaused = false;
+        for (AgentTether agentTether : mAgentTetherList) {
+            agentTether.resume();
+        }
+    }
+
     /**
      * Release all held tethers.
      */